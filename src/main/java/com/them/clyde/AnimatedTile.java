@@ -1,7 +1,7 @@
 package com.them.clyde;
 //==============================================================================
 // Date Created:		18 November 2011
-// Last Updated:		24 December 2011
+// Last Updated:		16 October 2026
 //
 // File Name:			AnimatedTile.java
 // File Author:			M Matthew Hydock
@@ -54,6 +54,14 @@ public class AnimatedTile extends Tile
 		return animation;
 	}
 
+	public boolean isActive()
+	// Animated tiles have to be updated, unless they are sporadic; the frame
+	// of a sporadic tile is worked out when it is drawn (see
+	// GameAnimation.getFrameAt()).
+	{
+		return animation != null && !animation.isSporadic();
+	}
+
 	public void update()
 	// Update the animation.
 	{
@@ -71,4 +79,28 @@ public class AnimatedTile extends Tile
 			image.draw(g,x,y);
 		}
 	}
+	
+	public void draw(Graphics g, int x, int y, int frame)
+	// Draw a specific frame of the tile at location (x,y), without touching
+	// the current frame of the image strip. Safe to call from a thread other
+	// than the one updating the animation.
+	{
+		if (image != null && !image.isBroken())
+			image.drawFrame(g,x,y,frame);
+	}
+	
+	public void draw(Renderer r, int x, int y)
+	// Draw the animation's current frame at location (x,y) with a Renderer.
+	// Unlike the Graphics version, the image strip's frame is left alone.
+	{
+		if (image != null && !image.isBroken())
+			image.drawFrame(r,x,y,(animation != null)?animation.getCurrentFrame():image.getCurrentFrame(),false);
+	}
+	
+	public void draw(Renderer r, int x, int y, int frame)
+	// Draw a specific frame of the tile at location (x,y) with a Renderer.
+	{
+		if (image != null && !image.isBroken())
+			image.drawFrame(r,x,y,frame,false);
+	}
 }
@@ -0,0 +1,467 @@
+package com.them.clyde;
+//==============================================================================
+// Date Created:		16 October 2026
+// Last Updated:		16 October 2026
+//
+// File Name:			BandedRenderer.java
+// File Author:			M Matthew Hydock
+//
+// File Description:	A software Renderer that composes a whole frame in
+//						parallel, straight into the int[] pixels of its back
+//						buffer. Drawing calls are only recorded; end() splits
+//						the frame into horizontal bands of rows, and a
+//						ForkJoinPool draws every band at once, each replaying
+//						the recorded calls clipped to its own rows. Bands never
+//						share pixels, so no locking is needed, and each band is
+//						drawn in the order the calls were made.
+//
+//						Images are read from an int[] copy of their pixels,
+//						made the first time each one is drawn (see
+//						imageChanged()). The copy also records, for every
+//						pixel, how many fully opaque pixels follow it in its
+//						row, so opaque runs are copied with System.arraycopy(),
+//						fully transparent pixels are skipped, and only the rest
+//						are blended. Blending matches Java2D's SrcOver, so
+//						frames come out the same as with Java2DRenderer.
+//
+//						Images with no transparency at all (see
+//						GameImage.getTransparency()) skip the runs entirely:
+//						every row is copied in one go. Bitmask images never
+//						reach the blend, since all of their pixels are either
+//						copied or skipped.
+//
+//						The finished frame is an ordinary BufferedImage (see
+//						getImage()), to be blitted to the screen once per frame.
+//==============================================================================
+
+import java.awt.*;
+import java.awt.image.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+public class BandedRenderer implements Renderer
+{
+	private static final int MIN_BAND_HEIGHT = 16;		// Fewest rows in a band.
+	private static final int BANDS_PER_THREAD = 4;		// To even out the work.
+
+	// Recorded calls, stored as {kind, source/color, sx, sy, w, h, dx, dy},
+	// already clipped to the frame.
+	private static final int OP_SIZE = 8;
+	private static final int FILL = 0;
+	private static final int COPY = 1;
+	private static final int COPY_MIRRORED = 2;
+
+	private ForkJoinPool pool;					// Threads drawing the bands.
+
+	private int width;							// Size of the frame.
+	private int height;
+	private BufferedImage buffer;				// Back buffer, and its pixels.
+	private int[] pixels;
+
+	private int[] ops;							// Calls recorded this frame.
+	private int numOps;
+
+	private IdentityHashMap<BufferedImage,Source> sources;
+	private ArrayList<Source> frameSources;		// Sources used this frame,
+												// indexed by the recorded calls.
+
+	private static class Source
+	// An image's pixels, as non-premultiplied ARGB, along with the length of
+	// the opaque run starting at every pixel. Only written before a frame is
+	// drawn, so the bands can read it freely.
+	{
+		int width;
+		int[] argb;
+		boolean opaque;							// Every pixel is opaque, so
+												// rows are copied whole.
+		int[] runs;								// Null if opaque.
+		int index;								// Position in frameSources,
+												// or -1 if not used yet.
+	}
+
+	public BandedRenderer()
+	// Create a renderer that draws with the common ForkJoinPool.
+	{
+		this(ForkJoinPool.commonPool());
+	}
+
+	public BandedRenderer(ForkJoinPool p)
+	// Create a renderer that draws with the given pool.
+	{
+		pool = p;
+
+		ops = new int[256*OP_SIZE];
+		sources = new IdentityHashMap<BufferedImage,Source>();
+		frameSources = new ArrayList<Source>();
+	}
+
+//==============================================================================
+// Getters.
+//==============================================================================
+	public int getWidth()
+	{
+		return width;
+	}
+
+	public int getHeight()
+	{
+		return height;
+	}
+
+	public BufferedImage getImage()
+	// Return the back buffer. Only complete after end() has been called.
+	{
+		return buffer;
+	}
+
+	public int getNumberCalls()
+	// Return the number of drawing calls recorded this frame.
+	{
+		return numOps;
+	}
+
+	public int getNumberBands()
+	// Return the number of bands the frame is split into.
+	{
+		return (height + getBandHeight() - 1)/getBandHeight();
+	}
+
+	private int getBandHeight()
+	// Enough bands to keep every thread busy, but not so many that replaying
+	// the calls costs more than drawing them.
+	{
+		int bands = Math.max(1,pool.getParallelism()*BANDS_PER_THREAD);
+
+		return Math.max(MIN_BAND_HEIGHT,(height + bands - 1)/bands);
+	}
+//==============================================================================
+
+
+//==============================================================================
+// Renderer methods.
+//==============================================================================
+	public void begin(int w, int h)
+	// Start a frame, making a new back buffer if the size changed.
+	{
+		if (buffer == null || buffer.getWidth() != w || buffer.getHeight() != h)
+		{
+			buffer = new BufferedImage(w,h,BufferedImage.TYPE_INT_RGB);
+			pixels = ((DataBufferInt)buffer.getRaster().getDataBuffer()).getData();
+		}
+
+		width = w;
+		height = h;
+
+		numOps = 0;
+		for (int i = 0; i < frameSources.size(); i++)
+			frameSources.get(i).index = -1;
+		frameSources.clear();
+	}
+
+	public void end()
+	// Draw the frame.
+	{
+		flush();
+	}
+
+	public void flush()
+	// Draw every band of the frame in parallel, and wait for them to finish.
+	{
+		if (numOps == 0)
+			return;
+
+		int bandHeight = getBandHeight();
+		int numBands = (height + bandHeight - 1)/bandHeight;
+
+		if (numBands <= 1)
+			drawBand(0,height);
+		else
+		{
+			ArrayList<Callable<Void>> bands = new ArrayList<Callable<Void>>(numBands);
+			for (int i = 0; i < numBands; i++)
+			{
+				final int y0 = i*bandHeight;
+				final int y1 = Math.min(height,y0+bandHeight);
+
+				bands.add(new Callable<Void>()
+				{
+					public Void call()
+					{
+						drawBand(y0,y1);
+						return null;
+					}
+				});
+			}
+
+			for (Future<Void> f : pool.invokeAll(bands))
+			{
+				try
+				{
+					f.get();
+				}
+				catch (InterruptedException e)
+				{
+					Thread.currentThread().interrupt();
+				}
+				catch (ExecutionException e)
+				{
+					throw new RuntimeException(e.getCause());
+				}
+			}
+		}
+
+		numOps = 0;
+	}
+
+	public void fillRect(int x, int y, int w, int h, Color c)
+	// Record a filled rectangle.
+	{
+		int x2 = Math.min(width,x+w);
+		int y2 = Math.min(height,y+h);
+		x = Math.max(0,x);
+		y = Math.max(0,y);
+
+		if (x < x2 && y < y2 && c.getAlpha() > 0)
+			addOp(FILL,c.getRGB(),0,0,x2-x,y2-y,x,y);
+	}
+
+	public void drawImage(BufferedImage src, int sx, int sy, int w, int h, int dx, int dy, boolean mirrored)
+	// Record a copy of part of an image, clipped to the frame.
+	{
+		if (src == null)
+			return;
+
+		// Clip the top and bottom.
+		if (dy < 0)
+		{
+			sy -= dy;
+			h += dy;
+			dy = 0;
+		}
+		if (dy + h > height)
+			h = height - dy;
+
+		// Clip the left and right. Mirrored, the left of the destination is
+		// the right of the source, and the other way around.
+		int left = Math.max(0,-dx);
+		int right = Math.max(0,dx+w-width);
+		if (!mirrored)
+			sx += left;
+		else
+			sx += right;
+		dx += left;
+		w -= left + right;
+
+		if (w <= 0 || h <= 0)
+			return;
+
+		Source s = getSource(src);
+		if (s.index < 0)
+		{
+			s.index = frameSources.size();
+			frameSources.add(s);
+		}
+
+		addOp(mirrored?COPY_MIRRORED:COPY,s.index,sx,sy,w,h,dx,dy);
+	}
+
+	public void imageChanged(BufferedImage src)
+	// Throw away the copy of an image's pixels; a new one is made the next
+	// time it is drawn. Calls already recorded this frame use the old copy.
+	{
+		sources.remove(src);
+	}
+//==============================================================================
+
+
+//==============================================================================
+// Helper methods.
+//==============================================================================
+	private void addOp(int kind, int src, int sx, int sy, int w, int h, int dx, int dy)
+	// Append a call to the list, growing it if needed.
+	{
+		if ((numOps+1)*OP_SIZE > ops.length)
+			ops = Arrays.copyOf(ops,ops.length*2);
+
+		int i = numOps*OP_SIZE;
+		ops[i]		= kind;
+		ops[i+1]	= src;
+		ops[i+2]	= sx;
+		ops[i+3]	= sy;
+		ops[i+4]	= w;
+		ops[i+5]	= h;
+		ops[i+6]	= dx;
+		ops[i+7]	= dy;
+
+		numOps++;
+	}
+
+	private Source getSource(BufferedImage src)
+	// Find the copy of an image's pixels, making it if needed.
+	{
+		Source s = sources.get(src);
+
+		if (s == null)
+		{
+			int w = src.getWidth();
+			int h = src.getHeight();
+
+			s = new Source();
+			s.width = w;
+			s.argb = src.getRGB(0,0,w,h,null,0,w);
+			s.index = -1;
+
+			s.opaque = true;
+			if (src.getTransparency() != Transparency.OPAQUE)
+				for (int i = 0; i < s.argb.length && s.opaque; i++)
+					s.opaque = (s.argb[i] >>> 24 == 0xFF);
+
+			if (!s.opaque)
+			{
+				s.runs = new int[w*h];
+
+				// Count the opaque pixels following each pixel, from the end
+				// of each row backwards.
+				for (int y = 0; y < h; y++)
+				{
+					int run = 0;
+					for (int x = w-1; x >= 0; x--)
+					{
+						int i = y*w+x;
+						run = (s.argb[i] >>> 24 == 0xFF)?run+1:0;
+						s.runs[i] = run;
+					}
+				}
+			}
+
+			sources.put(src,s);
+		}
+
+		return s;
+	}
+
+	private void drawBand(int y0, int y1)
+	// Replay every recorded call, for the rows from y0 up to (not including)
+	// y1 only.
+	{
+		int[] dst = pixels;
+		int stride = width;
+
+		for (int n = 0; n < numOps; n++)
+		{
+			int i = n*OP_SIZE;
+			int kind = ops[i];
+			int w = ops[i+4];
+			int h = ops[i+5];
+			int dx = ops[i+6];
+			int dy = ops[i+7];
+
+			int top = Math.max(dy,y0);
+			int bottom = Math.min(dy+h,y1);
+			if (top >= bottom)
+				continue;
+
+			if (kind == FILL)
+			{
+				int color = ops[i+1];
+
+				for (int y = top; y < bottom; y++)
+				{
+					int d = y*stride+dx;
+
+					if (color >>> 24 == 0xFF)
+						Arrays.fill(dst,d,d+w,color);
+					else
+						for (int x = 0; x < w; x++)
+							dst[d+x] = blend(color,dst[d+x]);
+				}
+
+				continue;
+			}
+
+			Source s = frameSources.get(ops[i+1]);
+			int[] src = s.argb;
+			int[] runs = s.runs;
+			int sx = ops[i+2];
+			int sy = ops[i+3];
+
+			for (int y = top; y < bottom; y++)
+			{
+				int d = y*stride+dx;
+				int p = (sy+y-dy)*s.width+sx;
+
+				if (s.opaque)
+				// Nothing to blend or skip; copy the whole row.
+				{
+					if (kind == COPY)
+						System.arraycopy(src,p,dst,d,w);
+					else
+						for (int x = 0, last = p+w-1; x < w; x++)
+							dst[d+x] = src[last-x];
+				}
+				else if (kind == COPY)
+				{
+					int x = 0;
+					while (x < w)
+					{
+						int run = runs[p+x];
+
+						if (run > 0)
+						// Copy the opaque run all at once.
+						{
+							run = Math.min(run,w-x);
+							System.arraycopy(src,p+x,dst,d+x,run);
+							x += run;
+						}
+						else
+						{
+							int c = src[p+x];
+							if (c >>> 24 != 0)
+								dst[d+x] = blend(c,dst[d+x]);
+							x++;
+						}
+					}
+				}
+				else
+				// Mirrored, read the source row backwards.
+				{
+					int last = p+w-1;
+
+					for (int x = 0; x < w; x++)
+					{
+						int c = src[last-x];
+						int a = c >>> 24;
+
+						if (a == 0xFF)
+							dst[d+x] = c;
+						else if (a != 0)
+							dst[d+x] = blend(c,dst[d+x]);
+					}
+				}
+			}
+		}
+	}
+
+	private static int blend(int src, int dst)
+	// Draw a non-premultiplied ARGB pixel over an opaque one, rounding the
+	// same way Java2D does.
+	{
+		int a = src >>> 24;
+		int f = 0xFF - a;
+
+		int r = mul8(a,(src >> 16) & 0xFF) + mul8(f,(dst >> 16) & 0xFF);
+		int g = mul8(a,(src >> 8) & 0xFF) + mul8(f,(dst >> 8) & 0xFF);
+		int b = mul8(a,src & 0xFF) + mul8(f,dst & 0xFF);
+
+		return 0xFF000000 | (r << 16) | (g << 8) | b;
+	}
+
+	private static int mul8(int a, int b)
+	// a*b/255, rounded to nearest.
+	{
+		int t = a*b + 0x80;
+
+		return (t + (t >> 8)) >> 8;
+	}
+//==============================================================================
+}
@@ -0,0 +1,266 @@
+package com.them.clyde;
+//==============================================================================
+// Date Created:		16 October 2026
+// Last Updated:		16 October 2026
+//
+// File Name:			Camera.java
+// File Author:			M Matthew Hydock
+//
+// File Description:	The view into a tilemap. Owns the viewport (whose size
+//						is the size of the view), follows a sprite around, and
+//						keeps the view from leaving the edges of the map.
+//
+//						The sprite is followed with a dead zone: a box in the
+//						middle of the view that the sprite can move around in
+//						without the camera moving. A 0 x 0 dead zone (the
+//						default) keeps the sprite centered.
+//
+//						Each time the camera moves, it works out the range of
+//						tiles that can be seen, clamped to the map, and hands
+//						its offsets to every attached layer. Layers cull
+//						against the camera (see getVisibleRange() and
+//						isVisible()), so culling is only ever worked out here.
+//						The map's grid is told which tiles are coming into
+//						view, so a grid streamed from disk can load them early.
+//==============================================================================
+
+import java.awt.*;
+import java.util.*;
+
+public class Camera
+{
+	private Component viewport;				// What the view is sized to.
+	private TileMap tilemap;				// The map being viewed.
+
+	private int xOffset;					// Current offsets; the negative of
+	private int yOffset;					// the view's top left corner.
+	private int prevXOffset;				// Offsets before the last move.
+	private int prevYOffset;
+
+	private int deadWidth;					// Size of the dead zone.
+	private int deadHeight;
+
+	private int[] range;					// Visible tiles, {startX, startY,
+	private int numVisible;					// endX, endY}, and their number.
+
+	private ArrayList<GameLayer> layers;	// Layers moved with the camera.
+
+	public Camera(Component v, TileMap m)
+	// Create a camera looking at the top left corner of a map, through a
+	// viewport, with no dead zone.
+	{
+		viewport = v;
+		tilemap = m;
+
+		range = new int[4];
+		layers = new ArrayList<GameLayer>();
+
+		moveTo(0,0);
+	}
+
+//==============================================================================
+// Getters and setters.
+//==============================================================================
+	public Component getViewport()
+	// Return the component the view is sized to.
+	{
+		return viewport;
+	}
+
+	public TileMap getTileMap()
+	{
+		return tilemap;
+	}
+
+	public int getWidth()
+	// Width of the view.
+	{
+		return viewport.getWidth();
+	}
+
+	public int getHeight()
+	// Height of the view.
+	{
+		return viewport.getHeight();
+	}
+
+	public int getXOffset()
+	// Return the current x offset of the camera.
+	{
+		return xOffset;
+	}
+
+	public int getYOffset()
+	// Return the current y offset of the camera.
+	{
+		return yOffset;
+	}
+
+	public int getPrevXOffset()
+	// Return the x offset of the camera before it last moved.
+	{
+		return prevXOffset;
+	}
+
+	public int getPrevYOffset()
+	// Return the y offset of the camera before it last moved.
+	{
+		return prevYOffset;
+	}
+
+	public void setDeadZone(int w, int h)
+	// Set the size of the box in the middle of the view that a followed sprite
+	// can move in without moving the camera.
+	{
+		deadWidth = Math.max(0,w);
+		deadHeight = Math.max(0,h);
+	}
+
+	public int getDeadZoneWidth()
+	{
+		return deadWidth;
+	}
+
+	public int getDeadZoneHeight()
+	{
+		return deadHeight;
+	}
+
+	public int[] getVisibleRange()
+	// Return the range of tiles visible from where the camera is now, stored
+	// as {startX, startY, endX, endY} (inclusive). Shared; don't change it.
+	{
+		return range;
+	}
+
+	public int getNumberVisible()
+	// Return the number of tiles in the visible range.
+	{
+		return numVisible;
+	}
+//==============================================================================
+
+
+//==============================================================================
+// Layer management.
+//==============================================================================
+	public void attach(GameLayer l)
+	// Move a layer with the camera, and have it cull against the camera.
+	{
+		if (l != null && !layers.contains(l))
+		{
+			layers.add(l);
+			l.setCamera(this);
+			l.setOffsets(xOffset,yOffset);
+		}
+	}
+
+	public void detach(GameLayer l)
+	// Stop moving a layer with the camera.
+	{
+		if (layers.remove(l))
+			l.setCamera(null);
+	}
+//==============================================================================
+
+
+//==============================================================================
+// Movement methods.
+//==============================================================================
+	public void center(Sprite s)
+	// Jump straight to the sprite, centering it in the view, regardless of the
+	// dead zone. Both the current and previous offsets are set, so nothing is
+	// interpolated across the jump.
+	{
+		int x = (int)(getWidth()/2-(s.getXPos()+s.getWidth()/2));
+		int y = (int)(getHeight()/2-(s.getYPos()+s.getHeight()/2));
+
+		moveTo(-x,-y);
+		prevXOffset = xOffset;
+		prevYOffset = yOffset;
+	}
+
+	public void follow(Sprite s)
+	// Move the camera just far enough to bring the sprite's middle back into
+	// the dead zone, if it has left it.
+	{
+		double cx = s.getXPos()+s.getWidth()/2;
+		double cy = s.getYPos()+s.getHeight()/2;
+
+		// Edges of the dead zone, on screen.
+		int left = getWidth()/2-deadWidth/2;
+		int top = getHeight()/2-deadHeight/2;
+
+		int x = xOffset;
+		int y = yOffset;
+
+		if (cx+x < left)
+			x = (int)(left-cx);
+		else if (cx+x > left+deadWidth)
+			x = (int)(left+deadWidth-cx);
+
+		if (cy+y < top)
+			y = (int)(top-cy);
+		else if (cy+y > top+deadHeight)
+			y = (int)(top+deadHeight-cy);
+
+		moveTo(-x,-y);
+	}
+
+	public void moveTo(int x, int y)
+	// Put the view's top left corner at (x,y) in the map, as near as the edges
+	// of the map allow, then update the visible range and the layers.
+	{
+		prevXOffset = xOffset;
+		prevYOffset = yOffset;
+
+		xOffset = clamp(-x,getWidth(),tilemap.getMapWidth());
+		yOffset = clamp(-y,getHeight(),tilemap.getMapHeight());
+
+		numVisible = getVisibleRange(xOffset,yOffset,range);
+		tilemap.getTileGrid().prefetch(range);
+
+		for (int i = 0; i < layers.size(); i++)
+			layers.get(i).setOffsets(xOffset,yOffset);
+	}
+
+	private static int clamp(int offset, int view, int map)
+	// If an offset would move the map away from the edges of the view, align
+	// it to the edges instead.
+	{
+		if (offset > 0)
+			return 0;
+		else if (offset < -(map-view-1))
+			return -(map-view-1);
+
+		return offset;
+	}
+//==============================================================================
+
+
+//==============================================================================
+// Culling methods.
+//==============================================================================
+	public int getVisibleRange(int xOff, int yOff, int[] range)
+	// Work out the range of tiles visible with the given offsets, clamped to
+	// the edges of the map, and return the number of tiles in it. Can be used
+	// for offsets the camera isn't at, such as its previous ones.
+	{
+		return tilemap.getTileRange(xOff,yOff,0,0,getWidth(),getHeight(),range);
+	}
+
+	public boolean isVisible(int x, int y, int w, int h)
+	// Whether a rectangle (in screen coordinates) is at least partly inside
+	// the view.
+	{
+		return intersects(x,y,w,h,getWidth(),getHeight());
+	}
+
+	public static boolean intersects(int x, int y, int w, int h, int viewWidth, int viewHeight)
+	// Whether a rectangle (in screen coordinates) is at least partly inside a
+	// view of the given size, with its top left corner at (0,0).
+	{
+		return x < viewWidth && x+w > 0 && y < viewHeight && y+h > 0;
+	}
+//==============================================================================
+}
@@ -0,0 +1,235 @@
+package com.them.clyde;
+//==============================================================================
+// Date Created:		16 October 2026
+// Last Updated:		16 October 2026
+//
+// File Name:			ClydeScene.java
+// File Author:			M Matthew Hydock
+//
+// File Description:	Draws a frame of Clyde's Adventure: a white background,
+//						the scrolling ribbons, the tilemap, Clyde, and the
+//						victory or game over screen when the game ends. Split
+//						out of JClyde, so that a frame can be drawn into any
+//						Graphics (such as an off-screen BufferedImage, see
+//						RenderHarness), without a window.
+//
+//						Frames can be drawn from the live game objects, from a
+//						RenderSnapshot, or from the live objects as seen from
+//						any camera position, either with a Graphics or with a
+//						Renderer. A Renderer can't draw text, so the end
+//						screens are left to drawEndScreen() in that case.
+//==============================================================================
+
+import java.awt.*;
+
+public class ClydeScene
+{
+//==============================================================================
+// Constants.
+//==============================================================================
+	// Background images.
+	private static final String MOUNTAINS = "../data/ribbons/mountains.png";
+	private static final String CLOUDS = "../data/ribbons/clouds.png";
+//==============================================================================
+
+
+//==============================================================================
+// Internal objects and variables.
+//==============================================================================
+	private ClydeSimulation sim;				// The game being drawn.
+	private TileMap tilemap;
+	private ClydeSprite clyde;
+	private Camera camera;						// Decides what can be seen.
+	private LayerCompositor background;			// The scrolling backgrounds.
+
+	private int[] range;						// Tiles being drawn.
+
+	private Font msgsFont;						// For the end screens.
+//==============================================================================
+
+	public ClydeScene(ClydeSimulation s)
+	// Prepare to draw the given game, and load the background ribbons.
+	{
+		sim = s;
+		tilemap = sim.getTileMap();
+		clyde = sim.getClyde();
+		camera = sim.getCamera();
+
+		range = new int[4];
+
+		// Initialize the ribbons.
+		Component viewport = sim.getViewport();
+		background = new LayerCompositor();
+		background.add(new Ribbon(new GameImage(CLOUDS),2,true,false,viewport));
+		background.add(new Ribbon(new GameImage(MOUNTAINS),1,true,false,viewport));
+
+		// Align the ribbons to the bottom left of the tilemap. The compositor
+		// moves them, but they cull against the camera.
+		for (int i = 0; i < background.getNumberLayers(); i++)
+		{
+			Ribbon r = (Ribbon)background.getLayer(i);
+			r.setPosition(0,tilemap.getMapHeight()-r.getHeight());
+			r.setCamera(camera);
+		}
+		background.invalidate();
+		background.rebuild();
+
+		updateOffsets();
+
+		msgsFont = new Font("SansSerif", Font.BOLD, 24);
+	}
+
+//==============================================================================
+// Getters and setters.
+//==============================================================================
+	public ClydeSimulation getSimulation()
+	{
+		return sim;
+	}
+
+	public LayerCompositor getBackground()
+	{
+		return background;
+	}
+
+	public void updateOffsets()
+	// Move the background to match the simulation's camera. Call after each
+	// update.
+	{
+		background.setOffsets(camera.getXOffset(),camera.getYOffset());
+	}
+//==============================================================================
+
+
+//==============================================================================
+// Drawing methods.
+//==============================================================================
+	public void render(Graphics g, int w, int h)
+	// Draw a w x h frame from the live game objects. Must be called from the
+	// thread updating the game.
+	{
+		g.setColor(Color.white);
+		g.fillRect(0, 0, w, h);
+
+		// Draw the game elements; order is important.
+		background.display(g);
+		tilemap.display(g);
+		clyde.drawSprite(g);
+
+		drawEndScreen(g,w,h,sim.isGameOver(),clyde.getHealth());
+	}
+
+	public void render(Graphics g, int w, int h, RenderSnapshot s, double alpha)
+	// Draw a w x h frame from a snapshot, part way (0 to 1) through its
+	// update. Can be called from a render thread.
+	{
+		g.setColor(Color.white);
+		g.fillRect(0, 0, w, h);
+
+		int xOff = s.getXOffset(alpha);
+		int yOff = s.getYOffset(alpha);
+		background.display(g,xOff,yOff);
+		tilemap.display(g,xOff,yOff,s);
+		clyde.drawSprite(	g,s.getClydeX(alpha),s.getClydeY(alpha),s.getClydeRow(),
+							s.getClydeFrame(),s.isClydeFacingRight());
+
+		drawEndScreen(g,w,h,s.isGameOver(),s.getClydeHealth());
+	}
+
+	public void render(Graphics g, int w, int h, int xOff, int yOff)
+	// Draw a w x h frame from the live game objects, as seen with the camera
+	// offsets (xOff,yOff) instead of the simulation's own. Nothing is changed.
+	// Must be called from the thread updating the game.
+	{
+		g.setColor(Color.white);
+		g.fillRect(0, 0, w, h);
+
+		background.display(g,xOff,yOff);
+		if (camera.getVisibleRange(xOff,yOff,range) > 0)
+			tilemap.display(g,xOff,yOff,range,null);
+		clyde.drawSprite(	g,(int)clyde.getXPos()+xOff,(int)clyde.getYPos()+yOff,
+							clyde.getAnimationRow(),clyde.getSpriteMap().getCurrentFrame(),
+							clyde.isFacingRight());
+
+		drawEndScreen(g,w,h,sim.isGameOver(),clyde.getHealth());
+	}
+
+	public void render(Renderer r, int w, int h)
+	// Draw a w x h frame from the live game objects with a Renderer. Must be
+	// called from the thread updating the game, between r.begin() and r.end().
+	{
+		render(r,w,h,sim.getXOffset(),sim.getYOffset());
+	}
+
+	public void render(Renderer r, int w, int h, RenderSnapshot s, double alpha)
+	// Draw a w x h frame from a snapshot with a Renderer.
+	{
+		r.fillRect(0,0,w,h,Color.white);
+
+		int xOff = s.getXOffset(alpha);
+		int yOff = s.getYOffset(alpha);
+		background.display(r,xOff,yOff);
+		tilemap.display(r,xOff,yOff,s);
+		clyde.drawSprite(	r,s.getClydeX(alpha),s.getClydeY(alpha),s.getClydeRow(),
+							s.getClydeFrame(),s.isClydeFacingRight());
+	}
+
+	public void render(Renderer r, int w, int h, int xOff, int yOff)
+	// Draw a w x h frame from the live game objects with a Renderer, as seen
+	// with the camera offsets (xOff,yOff).
+	{
+		r.fillRect(0,0,w,h,Color.white);
+
+		background.display(r,xOff,yOff);
+		if (camera.getVisibleRange(xOff,yOff,range) > 0)
+			tilemap.display(r,xOff,yOff,range,null);
+		clyde.drawSprite(	r,(int)clyde.getXPos()+xOff,(int)clyde.getYPos()+yOff,
+							clyde.getAnimationRow(),clyde.getSpriteMap().getCurrentFrame(),
+							clyde.isFacingRight());
+	}
+
+	public void paintRegion(Graphics2D g, int x, int y, int w, int h)
+	// Repaint one rectangle of a frame from the live game objects: the
+	// background, the tiles underneath it, and Clyde if he overlaps it. Used
+	// for dirty-rectangle rendering; end screens are not drawn.
+	{
+		g.setClip(x,y,w,h);
+
+		g.setColor(Color.white);
+		g.fillRect(x,y,w,h);
+		background.display(g);
+
+		int xOff = camera.getXOffset();
+		int yOff = camera.getYOffset();
+		if (tilemap.getTileRange(xOff,yOff,x,y,w,h,range) > 0)
+			tilemap.display(g,xOff,yOff,range,null);
+
+		clyde.drawSprite(g);
+	}
+
+	public void drawEndScreen(Graphics g, int w, int h, boolean isOver, int health)
+	// If the game is over, cover the frame with the victory screen, or the
+	// game over screen if Clyde ran out of health.
+	{
+		if (isOver && health > 0)
+			drawMessage(g,w,h,"Great Job!");
+		if (isOver && health == 0)
+			drawMessage(g,w,h,"Don't give up!");
+	}
+
+	private void drawMessage(Graphics g, int w, int h, String msg)
+	// Display a message in the center of a black screen.
+	{
+		FontMetrics metrics = g.getFontMetrics(msgsFont);
+
+		int x = (w - metrics.stringWidth(msg))/2;
+		int y = (h - metrics.getHeight())/2;
+
+		g.setColor(Color.black);
+		g.fillRect(0,0,w,h);
+		g.setColor(Color.yellow);
+		g.setFont(msgsFont);
+		g.drawString(msg, x, y);
+	}
+//==============================================================================
+}
@@ -0,0 +1,202 @@
+package com.them.clyde;
+//==============================================================================
+// Date Created:		16 October 2026
+// Last Updated:		16 October 2026
+//
+// File Name:			ClydeSimulation.java
+// File Author:			M Matthew Hydock
+//
+// File Description:	The game logic of Clyde's Adventure, separated from the
+//						window that displays it. Owns the tilemap and the hero
+//						sprite, updates them, has the Camera follow the hero,
+//						and watches for the end of the game.
+//
+//						Nothing in here needs a JFrame or a BufferStrategy, so
+//						the simulation can be driven by JClyde, or stepped as
+//						fast as possible with no display at all (see
+//						HeadlessClyde).
+//
+//						A PathFinder for the map can be had for hints, made
+//						the first time it is asked for.
+//==============================================================================
+
+import java.awt.*;
+
+public class ClydeSimulation
+{
+//==============================================================================
+// Internal objects and variables.
+//==============================================================================
+	private ClydeSprite clyde;					// The hero sprite.
+	private TileMap tilemap;					// The tilemap.
+	private Component viewport;					// What the camera is sized to.
+	private Camera camera;						// Follows the hero.
+	private PathFinder pathFinder;				// Ways around the map, for hints.
+	private GameClock clock;					// Shared simulation clock.
+
+	private boolean gameOver;					// Has an end-game been reached?
+	private long ticks;							// Number of updates performed.
+
+	// Loads the tilemap.
+	private TileMapFactory mapLoader;
+//==============================================================================
+
+
+//==============================================================================
+// Initialization.
+//==============================================================================
+	public ClydeSimulation(String mapFile, String spriteFile, Component v, GameClock c)
+	// Load the tilemap and the hero sprite. The viewport is the component
+	// whose dimensions the camera uses; it doesn't need to be displayable. The
+	// clock is shared by everything in the simulation, and should be advanced
+	// once before every update.
+	{
+		viewport = v;
+		clock = c;
+
+		// Map loader.
+		mapLoader = TileMapFactory.getInstanceOf();
+		mapLoader.setInputFile(mapFile);
+		mapLoader.setParent(viewport);
+
+		// Initialize the game entities.
+		tilemap = mapLoader.produceTileMap();
+		GameLog.info("");
+		clyde = new ClydeSprite(new GameImageGrid(spriteFile,4,3),tilemap,
+								tilemap.getStartX()*tilemap.getTileSize(),
+								tilemap.getStartY()*tilemap.getTileSize(),viewport);
+		
+		// Pack the tiles and Clyde's sprite sheet together.
+		GameImageFactory images = GameImageFactory.getInstanceOf();
+		images.addToAtlas(clyde.getSpriteMap());
+		images.packAtlas();
+		
+		tilemap.setClock(clock);
+		clyde.setClock(clock);
+
+		gameOver = false;
+		ticks = 0;
+
+		// The camera moves the map and the hero with it.
+		camera = new Camera(viewport,tilemap);
+		camera.attach(tilemap);
+		camera.attach(clyde);
+		camera.center(clyde);
+	}
+//==============================================================================
+
+
+//==============================================================================
+// Getters.
+//==============================================================================
+	public ClydeSprite getClyde()
+	// Return the hero sprite.
+	{
+		return clyde;
+	}
+
+	public TileMap getTileMap()
+	// Return the tilemap.
+	{
+		return tilemap;
+	}
+
+	public GameClock getClock()
+	// Return the shared simulation clock.
+	{
+		return clock;
+	}
+
+	public Component getViewport()
+	// Return the component the camera is sized to.
+	{
+		return viewport;
+	}
+
+	public Camera getCamera()
+	// Return the camera following the hero.
+	{
+		return camera;
+	}
+
+	public PathFinder getPathFinder()
+	// Return the path finder for the tilemap, making it if there isn't one.
+	{
+		if (pathFinder == null)
+			pathFinder = new PathFinder(tilemap);
+
+		return pathFinder;
+	}
+
+	public int getXOffset()
+	// Return the current x offset of the camera.
+	{
+		return camera.getXOffset();
+	}
+
+	public int getYOffset()
+	// Return the current y offset of the camera.
+	{
+		return camera.getYOffset();
+	}
+
+	public int getPrevXOffset()
+	// Return the x offset of the camera before the last update.
+	{
+		return camera.getPrevXOffset();
+	}
+
+	public int getPrevYOffset()
+	// Return the y offset of the camera before the last update.
+	{
+		return camera.getPrevYOffset();
+	}
+
+	public boolean isGameOver()
+	// Whether Clyde has died or has reached the exit.
+	{
+		return gameOver;
+	}
+
+	public long getTicks()
+	// Return the number of updates performed so far.
+	{
+		return ticks;
+	}
+//==============================================================================
+
+
+//==============================================================================
+// Simulation methods.
+//==============================================================================
+	public void update()
+	// Update game objects and adjust the viewport. Does nothing once the game
+	// is over.
+	{
+		if (gameOver)
+			return;
+
+		// Remember where Clyde was, for interpolated rendering. The camera
+		// remembers its own offsets when it moves.
+		clyde.savePosition();
+
+		// Update the environment, and the hero sprite.
+		tilemap.update();
+		clyde.updateSprite();
+
+		// Shift the view.
+		camera.follow(clyde);
+
+		// Check to see if an end-game scenario has been reached.
+		double xPos = clyde.getXPos()/tilemap.getTileSize();
+		double yPos = clyde.getYPos()/tilemap.getTileSize();
+		double distanceToExit = Math.sqrt(Math.pow(xPos-tilemap.getExitX(),2)+Math.pow(yPos-tilemap.getExitY(),2));
+		if (GameLog.isDebugEnabled())
+			GameLog.debug("Distance to exit (in tiles): " + distanceToExit);
+		if (clyde.getHealth() == 0 || distanceToExit < 5)
+			gameOver = true;
+
+		ticks++;
+	}
+//==============================================================================
+}
@@ -1,7 +1,7 @@
 package com.them.clyde;
 //==============================================================================
 // Date Created:		14 December 2011
-// Last Updated:		20 December 2011
+// Last Updated:		16 October 2026
 //
 // File Name:			ClydeSprite.java
 // File Author:			M Matthew Hydock
@@ -12,6 +12,11 @@ package com.them.clyde;
 //						environment). Supports basic physics and collision
 //						detection. A higher class should monitor his health,
 //						and end the game if it reaches 0.
+//
+//						Collisions are found by sweeping Clyde's bounding box
+//						through the tilemap (see TileMap.sweep()), so he stops
+//						exactly against whatever he runs into, and slides along
+//						it with the rest of his move.
 //==============================================================================
 
 import java.awt.*;
@@ -48,6 +53,7 @@ public class ClydeSprite extends Sprite
 
 	// The TileMap that Clyde is interacting with.
 	private TileMap tileMap;
+	private int[] contact = new int[2];	// Normal of the last tile hit.
 	
 	// Variables pertaining to Clyde's progress through the level.
 	private int gemsCollected;
@@ -144,11 +150,12 @@ public class ClydeSprite extends Sprite
 			{
 				takeDamage(.1);
 				isRising = true;
-				startTime = System.nanoTime();
+				startTime = currentTime();
 				animator.setCurrentFrame(0);
 			}
 	
-			timeAirborn = (System.nanoTime() - startTime)/100000000L;
+			// Time in the air, in tenths of a second.
+			timeAirborn = (currentTime() - startTime)/100000000.0;
 			dy = GRAVITY*2*timeAirborn + VERT_VELOCITY;
 			
 			if ((int)dy == 0)
@@ -185,13 +192,47 @@ public class ClydeSprite extends Sprite
 			if (dy <= 0)
 			{
 				stopLooping();
-				startTime = System.nanoTime();
+				startTime = currentTime();
 			}
 				
-			timeAirborn = (System.nanoTime() - startTime)/100000000L;
+			timeAirborn = (currentTime() - startTime)/100000000.0;
 			dy = Math.min(TERMINAL_VELOCITY, GRAVITY*2*timeAirborn);
 		}
 	}
+	
+	public static double getJumpRise(long tickDuration)
+	// How many pixels Clyde rises in a jump, if the game is updated every
+	// tickDuration nanosecs and the jump is held until it runs out of thrust.
+	// Works the jump out a tick at a time, the way jump() does.
+	{
+		double rise = 0;
+		
+		for (long t = 0; ; t += tickDuration)
+		{
+			double v = GRAVITY*2*(t/100000000.0) + VERT_VELOCITY;
+			if (v < 0)
+				return rise;
+			
+			rise += v/PIXELS_PER_METER;
+		}
+	}
+	
+	public static double getJumpReach(long tickDuration)
+	// How many pixels Clyde moves sideways in a jump like the one above, if
+	// he keeps moving, by the time he has fallen back to where he started.
+	{
+		double rise = getJumpRise(tickDuration);
+		long ticks = 0;
+		
+		for (long t = 0; GRAVITY*2*(t/100000000.0) + VERT_VELOCITY >= 0; t += tickDuration)
+			ticks++;
+		
+		// Falling, as in fall().
+		for (long t = 0; rise > 0; t += tickDuration, ticks++)
+			rise += Math.min(TERMINAL_VELOCITY, GRAVITY*2*(t/100000000.0))/PIXELS_PER_METER;
+		
+		return ticks*HORZ_VELOCITY/PIXELS_PER_METER;
+	}
 //==============================================================================
 
 
@@ -305,122 +346,104 @@ public class ClydeSprite extends Sprite
 //==============================================================================
 // Collision detection and position updating.
 //==============================================================================
-	private boolean willHitTile(double x, double y)
-	// Check whether a given point is inside an obstruction.
+	private boolean isSupported()
+	// Whether there is a solid tile directly beneath any part of Clyde.
 	{
-		return tileMap.insideSolidTile((int)x,(int)y);  
+		return tileMap.sweep(xPos,yPos,getWidth(),getHeight(),0,1,contact) < 1;
 	}
 	
-	private boolean collisionCheck()
-	// Check a number of points around Clyde to see if they are within solid
-	// tiles. If so, shift Clyde's position until he isn't colliding.
-	{		
-		// Check a point in the middle of the bottom of the sprite to see if it
-		// is over a solid tile. If not, Clyde is now falling. Not a collision,
-		// but it does result in a change (though not immediate).
-		if (!isFalling && !isRising && !willHitTile(xPos+getWidth()/2,yPos+getHeight()))
+	private void land()
+	// Clyde has hit the ground. If he was falling at terminal velocity,
+	// inflict falling damage.
+	{
+		isStill = true;
+		isFalling = false;
+		
+		if (dy == TERMINAL_VELOCITY)
 		{
-			isStill = false;
-			isFalling = true;
-			isSitting = false;
-			
-			return false;
+			takeDamage(FALLING_DAMAGE);
+			isSitting = true;
 		}
 		
-		// If Clyde is falling, but there is a tile beneath him, stop him. If he
-		// was falling at terminal velocity, inflict falling damage.
-		if (isFalling && willHitTile(xPos+getWidth()/2,yPos+getHeight()))
+		dy = 0;
+	}
+	
+	private void move()
+	// Move Clyde by (dx,dy), stopping at the first solid tile in his way. What
+	// is left of the move then carries on along the tile (sliding along a
+	// floor or a wall), so at most one sweep per axis, plus the first, is
+	// needed. Clyde is lined up exactly with any tile he touches.
+	{
+		double mx = dx;
+		double my = dy;
+		int size = tileMap.getTileSize();
+		
+		for (int i = 0; i < 3 && (mx != 0 || my != 0); i++)
 		{
-			isStill = true;
-			isFalling = false;
+			double t = tileMap.sweep(xPos,yPos,getWidth(),getHeight(),mx,my,contact);
 			
-			if (dy == TERMINAL_VELOCITY)
-			{
-				takeDamage(FALLING_DAMAGE);
-				isSitting = true;
-			}
+			xPos += mx*t;
+			yPos += my*t;
 			
-			dy = 0;
-			yPos = ((int)yPos/tileMap.getTileSize() - 1)*tileMap.getTileSize();
-			
-			return true;
-		}
+			if (t >= 1)
+				return;
 			
-		// If there is a collision on one lower corner, but not the other, shift
-		// Clyde a little to the side opposite the collision.
-		if (willHitTile(xPos,yPos+getHeight()) && !willHitTile(xPos+getWidth(),yPos+getHeight()))
-		{
-			xPos = ((int)xPos/tileMap.getTileSize() + 1)*tileMap.getTileSize();
-			return true;
-		}
-		else if (!willHitTile(xPos,yPos+getHeight()) && willHitTile(xPos+getWidth(),yPos+getHeight()))
-		{
-			xPos = ((int)xPos/tileMap.getTileSize())*tileMap.getTileSize();
-			return true;
-		}
-		
-		// If the middle of the top of the sprite is in a tile on this step,
-		// and he is rising vertically, then set the vertical velocity to 0 and
-		// align his head with the bottom of the tile.
-		if (dy > 0 && !isFalling && willHitTile(xPos+getWidth()/2,yPos))
-		{
-			dy = 0;
-			isFalling = true;
+			if (contact[0] != 0)
+			// Hit a wall while moving laterally.
+			{
+				double edge = (contact[0] < 0)?xPos+getWidth():xPos;
+				xPos += Math.round(edge/size)*size - edge;
+				
+				dx = 0;
+				mx = 0;
+			}
+			else if (contact[1] < 0)
+			// Hit the ground.
+			{
+				yPos = Math.round((yPos+getHeight())/size)*size - getHeight();
+				
+				land();
+				my = 0;
+			}
+			else
+			// Hit his head while rising; start falling.
+			{
+				yPos = Math.round(yPos/size)*size;
+				
+				startFalling();
+				my = 0;
+			}
 			
-			yPos = ((int)yPos/tileMap.getTileSize() + 1)*tileMap.getTileSize();
-			return true;
+			mx *= 1-t;
+			my *= 1-t;
 		}
-		
-		// If the sprite hit a wall while moving laterally. Set horizontal
-		// velocity to 0, and shift until not hitting a wall.
-		if (willHitTile(xPos,yPos+(getHeight()/4)) || willHitTile(xPos,yPos+(getHeight()*3/4)))
-		{
-			dx = 0;
-			xPos = ((int)xPos/tileMap.getTileSize() + 1)*tileMap.getTileSize();
-			return true;
-		}
-		else if (willHitTile(xPos+getWidth(),yPos+(getHeight()/4)) || 
-				 willHitTile(xPos+getWidth(),yPos+(getHeight() * 3/4)))
-		{
-			dx = 0;
-			xPos = ((int)xPos/tileMap.getTileSize())*tileMap.getTileSize();
-			return true;
-		}
-		
-		return false;
 	}
 
 	public void updateSprite()
 	{
-		if (!isStill)
+		if (!isStill && isActive())
 		// If the sprite is moving, update its position.
 		{
 			// The sprite is always falling, even when it's not.
 			fall();
 			
-			double oldX = xPos;
-			double oldY = yPos;
-			
 			dx /= PIXELS_PER_METER;
 			dy /= -PIXELS_PER_METER;		// Inverting change in y, to match
 											// flipped y axis of display.
-		
-		    super.updateSprite();			// Apply dx and dy and update the 
-											// animation.
-											
-			// If collisionCheck() needs to be run more than 30 times, we got a
-			// problem somewhere...
-			int i;
-			for (i = 0; i < 30 && collisionCheck(); i++);
 			
-			// Whatever. The new position was in an impossible location, so keep
-			// to the old position.
-			if (i == 30)
+			move();
+			
+			if (isLooping)
+				animator.updateTick();
+			
+			// If there is nothing under Clyde, he's falling now. Not a
+			// collision, but it does result in a change (though not immediate).
+			if (!isFalling && !isRising && !isSupported())
 			{
-				System.out.println("New position is impossible. Staying put.");
-				xPos = oldX;
-				yPos = oldY;
-			}	
+				isStill = false;
+				isFalling = true;
+				isSitting = false;
+			}
 		}
 		
 		// Apply passive actions to upper half. If an item, remove it from the
@@ -443,59 +466,94 @@ public class ClydeSprite extends Sprite
 //==============================================================================
 // Appearance methods.
 //==============================================================================
-	private void setAnimation()
-	// Set the current row of the image grid to the appropriate animation.
+	public int getAnimationRow()
+	// Return the row of the image grid that holds the animation for Clyde's
+	// current state.
 	{
 		if (isRising || isFalling)
-			((GameImageGrid)image).setCurrentRow(2);
+			return 2;
 		else if (hasWandOut)
-			((GameImageGrid)image).setCurrentRow(1);
+			return 1;
 		else if (isSitting)
-			((GameImageGrid)image).setCurrentRow(3);
+			return 3;
 		else
-			((GameImageGrid)image).setCurrentRow(0);
+			return 0;
+	}
+	
+	public boolean isFacingRight()
+	// Whether Clyde is facing right (or left).
+	{
+		return isFacingRight;
+	}
+	
+	private void setAnimation()
+	// Set the current row of the image grid to the appropriate animation.
+	{
+		((GameImageGrid)image).setCurrentRow(getAnimationRow());
 	}
 	
 	public void drawSprite(Graphics g)
 	// Draw the current frame of the sprite, at its global location, shifted by
-	// a predetermined offset. Needed to duplicate this from Sprite, as the
-	// class (and my entire chain of GameImage classes) don't have a native
-	// method for flipping...
+	// a predetermined offset.
 	{
-		// If the sprite is not within the dimensions of the display, don't draw
-		// the sprite.
-		if ((xPos+xOffset) > parent.getWidth() || (xPos+xOffset+getWidth()) < 0)
-			return;
-		if ((yPos+yOffset) > parent.getHeight() || (yPos+yOffset+getHeight()) < 0)
-			return;
-		
 		setAnimation();
 		
+		drawSprite(	g,(int)xPos+xOffset,(int)yPos+yOffset,
+					getAnimationRow(),image.getCurrentFrame(),isFacingRight);
+	}
+	
+	public void drawSprite(Renderer r)
+	// Draw the current frame of the sprite with a Renderer. The grid's current
+	// row is left alone.
+	{
+		drawSprite(	r,(int)xPos+xOffset,(int)yPos+yOffset,
+					getAnimationRow(),image.getCurrentFrame(),isFacingRight);
+	}
+	
+	public int getDrawWidth()
+	// Width of what drawSprite() draws; a broken sprite is drawn larger than
+	// its (empty) frames.
+	{
+		return (image == null || image.isBroken())?64:getWidth();
+	}
+	
+	public int getDrawHeight()
+	// Height of what drawSprite() draws.
+	{
+		return (image == null || image.isBroken())?128:getHeight();
+	}
+	
+	public void drawSprite(Graphics g, int x, int y, int row, int frame, boolean facingRight)
+	// Draw the given frame and row of the sprite at the given on-screen
+	// location. Nothing in the sprite or its image is changed, so this can be
+	// used to draw a snapshot of Clyde from a separate render thread. When
+	// facing left, the grid's cached mirrored frames are drawn.
+	{
+		// If the sprite is not within the view, don't draw the sprite.
+		if (!isOnScreen(x,y,getWidth(),getHeight()))
+			return;
+		
 		if (image == null || image.isBroken())
 		// The sprite has no image, so draw a yellow circle instead.
 		{
 			g.setColor(Color.yellow);
-			g.fillOval((int)xPos+xOffset, (int)yPos+yOffset, 64, 128);
+			g.fillOval(x, y, 64, 128);
 		}
 		else
-		{
-			if (isFacingRight)
-			// Sprite is facing right, draw normally.
-				image.draw(g,(int)xPos+xOffset,(int)yPos+yOffset);
-			else
-			// Manually flip the sprite, since I didn't build a flip method
-			// into ALL OF MY IMAGE CLASSES.
-			{
-				int x = (int)xPos+xOffset;
-				int y = (int)yPos+yOffset;
-				int w = image.getFrameWidth();
-				int h = image.getFrameHeight();
-				int r = ((GameImageGrid)image).getCurrentRow();
-				int c = image.getCurrentFrame();
-					
-				g.drawImage(image.getImage(),x,y,x+w,y+h,
-							(c+1)*w,(r+1)*h,c*w,r*h,null);
-			}
-		}
+			((GameImageGrid)image).drawFrame(g,x,y,frame,row,!facingRight);
+	}
+	
+	public void drawSprite(Renderer r, int x, int y, int row, int frame, boolean facingRight)
+	// Same as above, with a Renderer. Facing left is drawn by the renderer
+	// mirroring the frame, and a missing image is drawn as a yellow
+	// rectangle.
+	{
+		if (!Camera.intersects(x,y,getWidth(),getHeight(),r.getWidth(),r.getHeight()))
+			return;
+		
+		if (image == null || image.isBroken())
+			r.fillRect(x, y, 64, 128, Color.yellow);
+		else
+			((GameImageGrid)image).drawFrame(r,x,y,frame,row,!facingRight);
 	}
 }
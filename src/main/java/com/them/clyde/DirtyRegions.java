@@ -0,0 +1,194 @@
+package com.them.clyde;
+//==============================================================================
+// Date Created:		16 October 2026
+// Last Updated:		16 October 2026
+//
+// File Name:			DirtyRegions.java
+// File Author:			M Matthew Hydock
+//
+// File Description:	A small set of rectangles of the screen that need to be
+//						repainted. Rectangles are clipped to the screen, and
+//						any that overlap are merged, so no pixel is painted
+//						twice. If there are too many rectangles, or they cover
+//						most of the screen, the whole screen is marked instead,
+//						since one full repaint is cheaper than many small ones.
+//
+//						The rectangles are kept in a fixed array, so marking
+//						regions never allocates anything.
+//==============================================================================
+
+public class DirtyRegions
+{
+	private static final int MAX_REGIONS = 32;		// Most rectangles kept.
+	private static final double FULL_AREA = 0.5;	// Fraction of the screen
+													// that is worth a full
+													// repaint instead.
+
+	private int width;								// Size of the screen.
+	private int height;
+
+	// Rectangles, stored as {x, y, w, h} one after another.
+	private final int[] regions;
+	private int count;
+	private long area;								// Total area marked.
+
+	private boolean full;							// Whole screen is dirty.
+
+	public DirtyRegions(int w, int h)
+	// Create an empty set of regions for a screen of the given size.
+	{
+		regions = new int[MAX_REGIONS*4];
+
+		setBounds(w,h);
+	}
+
+//==============================================================================
+// Getters and setters.
+//==============================================================================
+	public void setBounds(int w, int h)
+	// Change the size of the screen. Everything is marked dirty.
+	{
+		width = w;
+		height = h;
+
+		markAll();
+	}
+
+	public int getWidth()
+	{
+		return width;
+	}
+
+	public int getHeight()
+	{
+		return height;
+	}
+
+	public boolean isFull()
+	// Whether the whole screen needs to be repainted.
+	{
+		return full;
+	}
+
+	public boolean isEmpty()
+	// Whether nothing needs to be repainted.
+	{
+		return !full && count == 0;
+	}
+
+	public int getCount()
+	// Return the number of rectangles to repaint. Not meaningful if the
+	// whole screen is marked.
+	{
+		return count;
+	}
+
+	public int getX(int i)
+	{
+		return regions[i*4];
+	}
+
+	public int getY(int i)
+	{
+		return regions[i*4+1];
+	}
+
+	public int getWidth(int i)
+	{
+		return regions[i*4+2];
+	}
+
+	public int getHeight(int i)
+	{
+		return regions[i*4+3];
+	}
+//==============================================================================
+
+
+//==============================================================================
+// Marking methods.
+//==============================================================================
+	public void add(int x, int y, int w, int h)
+	// Mark a rectangle as dirty. It is clipped to the screen, and merged with
+	// any rectangles it overlaps.
+	{
+		if (full)
+			return;
+
+		// Clip to the screen.
+		int x2 = Math.min(width,x+w);
+		int y2 = Math.min(height,y+h);
+		x = Math.max(0,x);
+		y = Math.max(0,y);
+
+		if (x >= x2 || y >= y2)
+			return;
+
+		// Merge with any overlapping rectangle, then check the bigger
+		// rectangle against all of the others again.
+		int i = 0;
+		while (i < count)
+		{
+			int rx = regions[i*4];
+			int ry = regions[i*4+1];
+			int rx2 = rx + regions[i*4+2];
+			int ry2 = ry + regions[i*4+3];
+
+			if (x < rx2 && rx < x2 && y < ry2 && ry < y2)
+			{
+				x = Math.min(x,rx);
+				y = Math.min(y,ry);
+				x2 = Math.max(x2,rx2);
+				y2 = Math.max(y2,ry2);
+
+				remove(i);
+				i = 0;
+			}
+			else
+				i++;
+		}
+
+		if (count == MAX_REGIONS)
+		{
+			markAll();
+			return;
+		}
+
+		regions[count*4]	= x;
+		regions[count*4+1]	= y;
+		regions[count*4+2]	= x2-x;
+		regions[count*4+3]	= y2-y;
+		count++;
+
+		area += (long)(x2-x)*(y2-y);
+		if (area > FULL_AREA*width*height)
+			markAll();
+	}
+
+	public void markAll()
+	// Mark the whole screen as dirty.
+	{
+		full = true;
+		count = 0;
+		area = 0;
+	}
+
+	public void clear()
+	// Mark everything as clean, usually after repainting.
+	{
+		full = false;
+		count = 0;
+		area = 0;
+	}
+
+	private void remove(int i)
+	// Remove a rectangle, by moving the last one into its place.
+	{
+		area -= (long)regions[i*4+2]*regions[i*4+3];
+
+		count--;
+		for (int j = 0; j < 4; j++)
+			regions[i*4+j] = regions[count*4+j];
+	}
+//==============================================================================
+}
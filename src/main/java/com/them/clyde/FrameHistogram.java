@@ -0,0 +1,137 @@
+package com.them.clyde;
+//==============================================================================
+// Date Created:		16 October 2026
+// Last Updated:		16 October 2026
+//
+// File Name:			FrameHistogram.java
+// File Author:			M Matthew Hydock
+//
+// File Description:	A fixed-size histogram of non-negative values, such as
+//						the time spent in one phase of a frame. Values are
+//						counted in power-of-two buckets (bucket n holds values
+//						from 2^(n-1) up to 2^n - 1, bucket 0 holds 0), so the
+//						histogram never grows, and recording a value never
+//						allocates anything.
+//
+//						Meant to be written by a single thread. Other threads
+//						may read it at any time; they might see a value that
+//						is one or two records out of date, which is fine for
+//						statistics.
+//==============================================================================
+
+public class FrameHistogram
+{
+	private static final int NUM_BUCKETS = 64;	// Enough for any long.
+
+	private final String name;					// What is being measured.
+	private final long[] buckets;				// Number of values in each bucket.
+
+	private volatile long count;				// Number of values recorded.
+	private volatile long sum;					// Sum of all values recorded.
+	private volatile long max;					// Largest value recorded.
+
+	public FrameHistogram(String n)
+	// Create an empty histogram.
+	{
+		name = n;
+		buckets = new long[NUM_BUCKETS];
+
+		reset();
+	}
+
+//==============================================================================
+// Recording methods.
+//==============================================================================
+	public void record(long value)
+	// Count a single value. Negative values are counted as 0.
+	{
+		if (value < 0)
+			value = 0;
+
+		// Bucket n holds the values with n significant bits.
+		buckets[NUM_BUCKETS - Long.numberOfLeadingZeros(value)]++;
+
+		sum += value;
+		if (value > max)
+			max = value;
+		count++;
+	}
+
+	public void reset()
+	// Forget every value recorded so far.
+	{
+		for (int i = 0; i < NUM_BUCKETS; i++)
+			buckets[i] = 0;
+
+		count = 0;
+		sum = 0;
+		max = 0;
+	}
+//==============================================================================
+
+
+//==============================================================================
+// Getters.
+//==============================================================================
+	public String getName()
+	// Return the name of what is being measured.
+	{
+		return name;
+	}
+
+	public long getCount()
+	// Return the number of values recorded.
+	{
+		return count;
+	}
+
+	public long getSum()
+	// Return the sum of all values recorded.
+	{
+		return sum;
+	}
+
+	public long getMax()
+	// Return the largest value recorded.
+	{
+		return max;
+	}
+
+	public double getMean()
+	// Return the average value recorded.
+	{
+		long n = count;
+
+		return (n > 0)?(double)sum/n:0;
+	}
+
+	public long getPercentile(double p)
+	// Return an upper bound for the given percentile (0 to 100) of the values
+	// recorded. The bound is the top of the bucket the percentile falls in,
+	// capped at the largest value recorded.
+	{
+		long n = count;
+		if (n == 0)
+			return 0;
+
+		long target = (long)Math.ceil(n*Math.min(100,Math.max(0,p))/100.0);
+		long seen = 0;
+
+		for (int i = 0; i < NUM_BUCKETS; i++)
+		{
+			seen += buckets[i];
+
+			if (seen >= target && seen > 0)
+			// The top of bucket i is 2^i - 1 (bucket 63 tops out at the
+			// largest long).
+			{
+				long top = (i == NUM_BUCKETS-1)?Long.MAX_VALUE:(1L << i) - 1;
+				
+				return Math.min(max,top);
+			}
+		}
+
+		return max;
+	}
+//==============================================================================
+}
@@ -0,0 +1,185 @@
+package com.them.clyde;
+//==============================================================================
+// Date Created:		16 October 2026
+// Last Updated:		16 October 2026
+//
+// File Name:			FramePacer.java
+// File Author:			M Matthew Hydock
+//
+// File Description:	Waits out the rest of a frame, using one of several
+//						strategies, and measures how evenly spaced the frames
+//						end up being.
+//
+//						SLEEP		Thread.sleep() for whole milliseconds. Uses
+//									the least CPU, but wakes up late by up to a
+//									millisecond or more, depending on the OS.
+//						PARK_SPIN	LockSupport.parkNanos() until shortly before
+//									the deadline, then busy-wait the rest. A
+//									good balance of smoothness and CPU use.
+//						YIELD_SPIN	Thread.yield() until the deadline. The most
+//									precise, but keeps a core busy.
+//
+//						The mean and standard deviation of the interval between
+//						frames are kept separately for each mode, so modes can
+//						be switched while the game is running and compared.
+//==============================================================================
+
+import java.util.concurrent.locks.*;
+
+public class FramePacer
+{
+	public static enum Mode {SLEEP, PARK_SPIN, YIELD_SPIN};
+
+	// How close to the deadline PARK_SPIN stops parking and starts spinning,
+	// in nanosecs.
+	private static final long SPIN_THRESHOLD = 2000000L;
+
+	private volatile Mode mode;				// Current pacing strategy.
+
+	// Frame interval statistics, per mode (Welford's running variance).
+	private long lastFrame;					// When the last frame started.
+	private final long[] intervals;			// Number of intervals measured.
+	private final double[] intervalMean;	// Mean interval, in nanosecs.
+	private final double[] intervalM2;		// Sum of squared differences.
+
+	public FramePacer(Mode m)
+	// Create a frame pacer using the given strategy.
+	{
+		mode = (m != null)?m:Mode.SLEEP;
+
+		int numModes = Mode.values().length;
+		intervals		= new long[numModes];
+		intervalMean	= new double[numModes];
+		intervalM2		= new double[numModes];
+
+		reset();
+	}
+
+	public static Mode parseMode(String s)
+	// Turn a name ("sleep", "park", "park_spin", "yield", "yield_spin") into a
+	// mode. Anything unrecognized is SLEEP.
+	{
+		if (s != null)
+		{
+			s = s.trim().toLowerCase();
+
+			if (s.equals("park") || s.equals("park_spin") || s.equals("hybrid"))
+				return Mode.PARK_SPIN;
+			if (s.equals("yield") || s.equals("yield_spin") || s.equals("spin"))
+				return Mode.YIELD_SPIN;
+		}
+
+		return Mode.SLEEP;
+	}
+
+//==============================================================================
+// Getters and setters.
+//==============================================================================
+	public void setMode(Mode m)
+	// Switch to a different pacing strategy.
+	{
+		if (m != null)
+			mode = m;
+	}
+
+	public Mode getMode()
+	// Return the current pacing strategy.
+	{
+		return mode;
+	}
+
+	public synchronized long getIntervalCount(Mode m)
+	// Return the number of frame intervals measured in the given mode.
+	{
+		return intervals[m.ordinal()];
+	}
+
+	public synchronized double getIntervalMean(Mode m)
+	// Return the mean frame interval measured in the given mode, in nanosecs.
+	{
+		return intervalMean[m.ordinal()];
+	}
+
+	public synchronized double getIntervalVariance(Mode m)
+	// Return the variance of the frame intervals measured in the given mode,
+	// in nanosecs squared.
+	{
+		int i = m.ordinal();
+
+		return (intervals[i] > 1)?intervalM2[i]/(intervals[i]-1):0;
+	}
+
+	public double getIntervalStdDev(Mode m)
+	// Return the standard deviation of the frame intervals measured in the
+	// given mode (the jitter), in nanosecs.
+	{
+		return Math.sqrt(getIntervalVariance(m));
+	}
+//==============================================================================
+
+
+//==============================================================================
+// Pacing methods.
+//==============================================================================
+	public void sleep(long nanos)
+	// Wait for the given number of nanosecs, using the current strategy.
+	{
+		long deadline = System.nanoTime() + nanos;
+
+		switch (mode)
+		{
+			case SLEEP:
+				try
+				{
+					Thread.sleep(nanos/1000000L);  // nano -> ms
+				}
+				catch(InterruptedException ex){}
+				break;
+
+			case PARK_SPIN:
+				// Park until close to the deadline, then spin the rest.
+				long remaining;
+				while ((remaining = deadline - System.nanoTime()) > SPIN_THRESHOLD)
+					LockSupport.parkNanos(remaining - SPIN_THRESHOLD);
+				while (System.nanoTime() < deadline);
+				break;
+
+			case YIELD_SPIN:
+				while (System.nanoTime() < deadline)
+					Thread.yield();
+				break;
+		}
+	}
+
+	public synchronized void recordFrame(long now)
+	// Note that a frame started at the given time, and update the interval
+	// statistics for the current mode.
+	{
+		if (lastFrame != 0)
+		{
+			int i = mode.ordinal();
+			double interval = now - lastFrame;
+			double delta = interval - intervalMean[i];
+
+			intervals[i]++;
+			intervalMean[i] += delta/intervals[i];
+			intervalM2[i] += delta*(interval - intervalMean[i]);
+		}
+
+		lastFrame = now;
+	}
+
+	public synchronized void reset()
+	// Forget all of the interval statistics.
+	{
+		lastFrame = 0;
+
+		for (int i = 0; i < intervals.length; i++)
+		{
+			intervals[i] = 0;
+			intervalMean[i] = 0;
+			intervalM2[i] = 0;
+		}
+	}
+//==============================================================================
+}
@@ -0,0 +1,311 @@
+package com.them.clyde;
+//==============================================================================
+// Date Created:		16 October 2026
+// Last Updated:		16 October 2026
+//
+// File Name:			FrameStats.java
+// File Author:			M Matthew Hydock
+//
+// File Description:	Records where the time of each frame goes: updating,
+//						rendering, showing/syncing the buffer, oversleeping,
+//						and how many frames had to be skipped. Each phase is
+//						kept in a FrameHistogram, so recording never allocates.
+//
+//						The statistics are exposed as a platform MBean (see
+//						FrameStatsMBean), and can be printed as a summary at a
+//						regular interval. If a FramePacer is attached, its
+//						frame interval statistics are included, and its mode
+//						can be changed through the MBean.
+//==============================================================================
+
+import java.lang.management.*;
+import javax.management.*;
+
+public class FrameStats implements FrameStatsMBean
+{
+	// Default time between printed summaries, in nanosecs.
+	private static final long DEFAULT_SUMMARY_INTERVAL = 10000000000L;
+
+	private final FrameHistogram update;		// Time spent in gameUpdate().
+	private final FrameHistogram render;		// Time spent in gameRender().
+	private final FrameHistogram show;			// Time spent showing and syncing.
+	private final FrameHistogram overSleep;		// Time slept past the deadline.
+	private final FrameHistogram skips;			// Frames skipped per loop.
+
+	private volatile long skippedFrames;		// Total number of frames skipped.
+
+	private FramePacer pacer;					// Paces the frames, if attached.
+
+	private long summaryInterval;				// Time between summaries (ns).
+	private long lastSummary;					// When the last summary was due.
+
+	public FrameStats()
+	// Create an empty set of frame statistics.
+	{
+		update		= new FrameHistogram("update");
+		render		= new FrameHistogram("render");
+		show		= new FrameHistogram("show/sync");
+		overSleep	= new FrameHistogram("oversleep");
+		skips		= new FrameHistogram("skips");
+
+		skippedFrames = 0;
+
+		summaryInterval = DEFAULT_SUMMARY_INTERVAL;
+		lastSummary = System.nanoTime();
+	}
+
+//==============================================================================
+// Registration and summaries.
+//==============================================================================
+	public void register(String name)
+	// Register these statistics with the platform MBean server, under
+	// com.them.clyde:type=FrameStats,name=<name>. Failing to register is not
+	// fatal; the statistics are still recorded and summarized.
+	{
+		try
+		{
+			MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+			ObjectName objName = new ObjectName("com.them.clyde:type=FrameStats,name=" +
+												ObjectName.quote(name));
+
+			if (!server.isRegistered(objName))
+				server.registerMBean(this,objName);
+		}
+		catch (Exception e)
+		{
+			GameLog.warn("Could not register frame statistics: " + e.toString());
+		}
+	}
+
+	public void setPacer(FramePacer p)
+	// Attach the frame pacer whose interval statistics should be reported.
+	{
+		pacer = p;
+	}
+
+	public FramePacer getPacer()
+	// Return the attached frame pacer.
+	{
+		return pacer;
+	}
+
+	public void setSummaryInterval(long i)
+	// Set the time between printed summaries, in nanosecs. 0 or smaller turns
+	// the summaries off.
+	{
+		summaryInterval = i;
+	}
+
+	public long getSummaryInterval()
+	// Return the time between printed summaries, in nanosecs.
+	{
+		return summaryInterval;
+	}
+
+	public void printSummaryIfDue(long now)
+	// Print a summary of the statistics, if the summary interval has passed
+	// since the last one.
+	{
+		if (summaryInterval > 0 && now - lastSummary >= summaryInterval)
+		{
+			lastSummary = now;
+			GameLog.info(this::getSummary);
+		}
+	}
+//==============================================================================
+
+
+//==============================================================================
+// Recording methods. Times are given in nanosecs, and kept in microsecs.
+//==============================================================================
+	public void recordUpdate(long nanos)
+	{
+		update.record(nanos/1000L);
+	}
+
+	public void recordRender(long nanos)
+	{
+		render.record(nanos/1000L);
+	}
+
+	public void recordShow(long nanos)
+	{
+		show.record(nanos/1000L);
+	}
+
+	public void recordOverSleep(long nanos)
+	{
+		overSleep.record(nanos/1000L);
+	}
+
+	public void recordSkips(int n)
+	// Record how many frames were skipped in one pass of the game loop.
+	{
+		skips.record(n);
+		skippedFrames += n;
+	}
+//==============================================================================
+
+
+//==============================================================================
+// FrameStatsMBean methods.
+//==============================================================================
+	public long getFrames()
+	{
+		return skips.getCount();
+	}
+
+	public long getSkippedFrames()
+	{
+		return skippedFrames;
+	}
+
+	public double getUpdateMeanMicros()
+	{
+		return update.getMean();
+	}
+
+	public long getUpdateP99Micros()
+	{
+		return update.getPercentile(99);
+	}
+
+	public long getUpdateMaxMicros()
+	{
+		return update.getMax();
+	}
+
+	public double getRenderMeanMicros()
+	{
+		return render.getMean();
+	}
+
+	public long getRenderP99Micros()
+	{
+		return render.getPercentile(99);
+	}
+
+	public long getRenderMaxMicros()
+	{
+		return render.getMax();
+	}
+
+	public double getShowMeanMicros()
+	{
+		return show.getMean();
+	}
+
+	public long getShowP99Micros()
+	{
+		return show.getPercentile(99);
+	}
+
+	public long getShowMaxMicros()
+	{
+		return show.getMax();
+	}
+
+	public double getOverSleepMeanMicros()
+	{
+		return overSleep.getMean();
+	}
+
+	public long getOverSleepP99Micros()
+	{
+		return overSleep.getPercentile(99);
+	}
+
+	public long getOverSleepMaxMicros()
+	{
+		return overSleep.getMax();
+	}
+
+	public long getSkipsPerFrameMax()
+	{
+		return skips.getMax();
+	}
+
+	public String getPacingMode()
+	{
+		return (pacer != null)?pacer.getMode().toString():"";
+	}
+
+	public void setPacingMode(String mode)
+	{
+		if (pacer != null)
+			pacer.setMode(FramePacer.parseMode(mode));
+	}
+
+	public double getFrameIntervalMeanMicros()
+	// Mean frame interval in the current pacing mode.
+	{
+		return (pacer != null)?pacer.getIntervalMean(pacer.getMode())/1000.0:0;
+	}
+
+	public double getFrameIntervalStdDevMicros()
+	// Frame interval jitter in the current pacing mode.
+	{
+		return (pacer != null)?pacer.getIntervalStdDev(pacer.getMode())/1000.0:0;
+	}
+
+	public String getSummary()
+	// Build a readable summary of every phase. This does allocate, so it
+	// should only be called every so often.
+	{
+		StringBuilder sb = new StringBuilder();
+
+		sb.append("Frame stats: ").append(getFrames()).append(" frames, ");
+		sb.append(getSkippedFrames()).append(" skipped (times in us: mean/p50/p99/max)");
+
+		FrameHistogram[] phases = {update, render, show, overSleep};
+		for (int i = 0; i < phases.length; i++)
+		{
+			FrameHistogram h = phases[i];
+
+			sb.append("\n  ").append(h.getName()).append(": ");
+			sb.append(String.format("%.1f",h.getMean())).append('/');
+			sb.append(h.getPercentile(50)).append('/');
+			sb.append(h.getPercentile(99)).append('/');
+			sb.append(h.getMax());
+			sb.append(" (").append(h.getCount()).append(" samples)");
+		}
+
+		if (pacer != null)
+		// Frame intervals for every pacing mode that has been used.
+		{
+			FramePacer.Mode[] modes = FramePacer.Mode.values();
+			for (int i = 0; i < modes.length; i++)
+			{
+				if (pacer.getIntervalCount(modes[i]) == 0)
+					continue;
+
+				sb.append("\n  interval (").append(modes[i]);
+				if (modes[i] == pacer.getMode())
+					sb.append(", current");
+				sb.append("): mean ");
+				sb.append(String.format("%.1f",pacer.getIntervalMean(modes[i])/1000.0));
+				sb.append(", std dev ");
+				sb.append(String.format("%.1f",pacer.getIntervalStdDev(modes[i])/1000.0));
+				sb.append(" (").append(pacer.getIntervalCount(modes[i])).append(" samples)");
+			}
+		}
+
+		return sb.toString();
+	}
+
+	public void reset()
+	// Forget everything recorded so far.
+	{
+		update.reset();
+		render.reset();
+		show.reset();
+		overSleep.reset();
+		skips.reset();
+
+		skippedFrames = 0;
+
+		if (pacer != null)
+			pacer.reset();
+	}
+//==============================================================================
+}
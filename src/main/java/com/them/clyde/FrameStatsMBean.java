@@ -0,0 +1,58 @@
+package com.them.clyde;
+//==============================================================================
+// Date Created:		16 October 2026
+// Last Updated:		16 October 2026
+//
+// File Name:			FrameStatsMBean.java
+// File Author:			M Matthew Hydock
+//
+// File description:	The management interface of FrameStats, so that frame
+//						timings can be watched with JConsole/VisualVM, or read
+//						by CI scripts through JMX. All times are in
+//						microseconds.
+//==============================================================================
+
+public interface FrameStatsMBean
+{
+	public long getFrames();
+	
+	public long getSkippedFrames();
+	
+	public double getUpdateMeanMicros();
+	
+	public long getUpdateP99Micros();
+	
+	public long getUpdateMaxMicros();
+	
+	public double getRenderMeanMicros();
+	
+	public long getRenderP99Micros();
+	
+	public long getRenderMaxMicros();
+	
+	public double getShowMeanMicros();
+	
+	public long getShowP99Micros();
+	
+	public long getShowMaxMicros();
+	
+	public double getOverSleepMeanMicros();
+	
+	public long getOverSleepP99Micros();
+	
+	public long getOverSleepMaxMicros();
+	
+	public long getSkipsPerFrameMax();
+	
+	public String getPacingMode();
+	
+	public void setPacingMode(String mode);
+	
+	public double getFrameIntervalMeanMicros();
+	
+	public double getFrameIntervalStdDevMicros();
+	
+	public String getSummary();
+	
+	public void reset();
+}
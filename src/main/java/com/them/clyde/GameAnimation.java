@@ -1,7 +1,7 @@
 package com.them.clyde;
 //==============================================================================
 // Date Created:		25 November 2011
-// Last Updated:		24 December 2011
+// Last Updated:		16 October 2026
 //
 // File Name:			GameAnimation.java
 // File Author:			M Matthew Hydock
@@ -30,20 +30,33 @@ package com.them.clyde;
 	way it is done now expects such problems.
 
 	The current animation time is calculated when updateTick() is called, which
-	should be during every update cycle. If it is not time to update, then the
-	call will be ignored. The animation time is used to calculate the current
-	frame, which is passed back to the encapsulated GameImage/AnimatedInterface
-	object.
+	should be during every update cycle. If the animation has been given a
+	GameClock, the time is read from the clock, otherwise System.nanoTime() is
+	used. If it is not time to update, then the call will be ignored. The
+	animation time is used to calculate the current frame, which is passed back
+	to the encapsulated GameImage/AnimatedInterface object.
 
 	A GameAnimation can be set to run once, repeat (basic cycle), ping-pong
 	(reverse direction upon hitting the beginning or end), stop, resume, or
 	restart	at a given image position. Additionally, it can be made to play the
 	animation regularly, or sporatically, to make environments feel more random.
-	It can also be told to arbitrarily change the direction of the animation
-	(forward advance or backward advance).
+	The random starts (and the random first frames given to animated tiles) are
+	all drawn from one shared generator, which can be seeded with
+	setRandomSeed() to make a run repeatable. It can also be told to
+	arbitrarily change the direction of the animation (forward advance or
+	backward advance).
+
+	An animation can also be asked for its frame at any time, for any seed,
+	without being updated at all (see getFrameAt()). The frame is worked out
+	from the time alone, shifted by a phase taken from the seed, and a sporadic
+	animation decides whether to play from a hash of the seed instead of the
+	shared generator. One animation can then stand in for any number of
+	out-of-step copies of itself, such as the sporadic tiles of a map, each
+	given its own seed.
 ------------------------------------------------------------------------------*/
 
 import java.awt.image.*;
+import java.util.*;
 
 public class GameAnimation implements AnimationInterface, Cloneable
 {
@@ -54,6 +67,9 @@ public class GameAnimation implements AnimationInterface, Cloneable
 	
 	// Default time per frame, in milliseconds.
 	private static final int DEFAULT_FRAME_TIME_MILLIS = 100;
+	
+	// Decides when sporadic animations start.
+	private static Random random = new Random();
 
 	private Mode anim_mode;					// What playback mode the animation is in.
 	private boolean playbackStopped;		// Is the animation currently stopped?
@@ -63,6 +79,7 @@ public class GameAnimation implements AnimationInterface, Cloneable
 											// while in sporadic mode.
 		
 	private AnimationInterface anim_image;	// Animatable image to control.
+	private GameClock clock;				// Clock to read the time from.
 
 	private long frameDuration;				// Length of time to display the current frame (in nanosecs).
 	private long seqDuration;				// Total duration of the entire image sequence (in nanosecs).
@@ -95,7 +112,7 @@ public class GameAnimation implements AnimationInterface, Cloneable
 		setFrameDuration(frame_time);
 		animTotalTime	= 0L;
 
-		prevTime = System.nanoTime();
+		prevTime = currentTime();
 
 		playbackReversed	= isRev;
 		playbackSporadic	= isSpo;
@@ -112,6 +129,8 @@ public class GameAnimation implements AnimationInterface, Cloneable
 		if (playbackSporadic)
 			temp.setSporadicMode(playbackFrequency);
 		
+		temp.setClock(clock);
+		
 		return temp;
 	}
 //==============================================================================
@@ -185,6 +204,42 @@ public class GameAnimation implements AnimationInterface, Cloneable
 		return (anim_image == null);
 	}
 	
+	public void setClock(GameClock c)
+	// Set the clock the animation reads the time from. If the clock is null,
+	// System.nanoTime() will be used instead.
+	{
+		clock = c;
+		prevTime = currentTime();
+	}
+	
+	public GameClock getClock()
+	// Return the clock the animation reads the time from.
+	{
+		return clock;
+	}
+	
+	public static void setRandomSeed(long seed)
+	// Seed the generator that decides when sporadic animations start, so that
+	// the same updates always start the same animations.
+	{
+		random = new Random(seed);
+	}
+	
+	public static Random getRandom()
+	// Return the generator shared by every animation.
+	{
+		return random;
+	}
+	
+	private long currentTime()
+	// Read the time from the clock, or from the system if there is no clock.
+	{
+		if (clock != null)
+			return clock.getTime();
+			
+		return System.nanoTime();
+	}
+	
 	public void animateObject(AnimationInterface ai)
 	// Change the object being animated, and recalculate its data.
 	{
@@ -359,7 +414,7 @@ public class GameAnimation implements AnimationInterface, Cloneable
 		{
 			if ((start < 0) || (start > anim_image.getNumberFrames()-1))
 			{
-				System.out.println("Out of range, starting at 0");
+				GameLog.warn("Out of range, starting at 0");
 				start = 0;
 			}
 
@@ -373,6 +428,81 @@ public class GameAnimation implements AnimationInterface, Cloneable
 //==============================================================================
 
 
+//==============================================================================
+// Stateless playback. Nothing in here changes the animation.
+//==============================================================================
+	public int getFrameAt(int seed)
+	// Return the frame to show for the given seed at the animation's current
+	// time (from its clock, or the system).
+	{
+		return getFrameAt(currentTime(),seed);
+	}
+	
+	public int getFrameAt(long time, int seed)
+	// Return the frame to show at the given time, for the given seed. The
+	// animation is treated as having started at time 0, shifted by a phase
+	// (less than one run of the sequence) taken from the seed; different seeds
+	// give out-of-step copies of the same animation.
+	//
+	// In sporadic mode, time is split into runs of the whole sequence, and each
+	// run is played (or not) by a hash of the seed and the run's number, so
+	// that on average the animation starts about as often as updateTick()
+	// would start it, at frequency f, after each frame of waiting: a run is
+	// played with a chance of f times the number of frames. A run that isn't
+	// played shows the first frame. A stopped animation always shows its
+	// current frame.
+	{
+		if (anim_image == null || anim_image.getNumberFrames() <= 0)
+			return -1;
+		
+		if (playbackStopped && !playbackSporadic)
+			return curr_frame;
+		
+		int numFrames = anim_image.getNumberFrames();
+		int h = mix(seed);
+		long t = time + Math.floorMod((long)h,seqDuration);
+		long run = Math.floorDiv(t,seqDuration);
+		int frame = (int)(Math.floorDiv(t,frameDuration) - run*numFrames);
+		boolean reversed = playbackReversed;
+		
+		if (playbackSporadic)
+		{
+			// Hash the run into [0,1), and compare it to the chance of playing.
+			// An idle run shows the first frame, whichever way the runs go.
+			double roll = (mix(h ^ (int)run ^ (int)(run >>> 32)) >>> 8)/(double)(1 << 24);
+			if (roll >= Math.min(1,playbackFrequency*numFrames))
+				return 0;
+			
+			// Ping-pong flips direction every run that plays.
+			if (anim_mode == Mode.PINGPONG && (run & 1) == 1)
+				reversed = !reversed;
+		}
+		else if (anim_mode == Mode.ONCE)
+		{
+			if (run > 0)
+				frame = numFrames-1;
+		}
+		else if (anim_mode == Mode.PINGPONG && (run & 1) == 1)
+			reversed = !reversed;
+		
+		return reversed?(numFrames-1)-frame:frame;
+	}
+	
+	private static int mix(int x)
+	// Scramble the bits of a number (the finalizer of MurmurHash3), so that
+	// nearby seeds give unrelated results.
+	{
+		x ^= x >>> 16;
+		x *= 0x85ebca6b;
+		x ^= x >>> 13;
+		x *= 0xc2b2ae35;
+		x ^= x >>> 16;
+		
+		return x;
+	}
+//==============================================================================
+
+
 //==============================================================================
 // The updateTick method. This is what makes image animation possible.
 //==============================================================================
@@ -398,7 +528,7 @@ public class GameAnimation implements AnimationInterface, Cloneable
 		if (playbackSporadic && playbackStopped)
 		// If in sporadic mode, try to start the animation.
 		{
-			if (playbackStopped = Math.random() < playbackFrequency)
+			if (playbackStopped = random.nextDouble() < playbackFrequency)
 			// If the random number is within the frequency range, reset the
 			// total time (to start the animation at 0) and decrease the
 			// previous recorded time by the show period, to ensure the
@@ -410,7 +540,7 @@ public class GameAnimation implements AnimationInterface, Cloneable
 		}
 		
 		// Calculate the change in time since this method was last called.
-		currTime = System.nanoTime();
+		currTime = currentTime();
 		timeDiff = currTime-prevTime;
 		
 		// If it hasn't been long enough, return.
@@ -0,0 +1,74 @@
+package com.them.clyde;
+//==============================================================================
+// Date Created:		16 October 2026
+// Last Updated:		16 October 2026
+//
+// File Name:			GameClock.java
+// File Author:			M Matthew Hydock
+//
+// File Description:	A fixed-timestep simulation clock. Every update of the
+//						game advances the clock by exactly one tick, no matter
+//						how long the update actually took, so anything timed
+//						off of this clock behaves the same at any frame rate.
+//						One clock is shared by everything that needs to know
+//						the time (TileMaps, GameAnimations, Sprites), which
+//						replaces their individual reads of System.nanoTime().
+//==============================================================================
+
+public class GameClock
+{
+	private long tickDuration;			// Length of a single tick, in nanosecs.
+	private long ticks;					// Number of ticks elapsed.
+	private long time;					// Simulated time elapsed, in nanosecs.
+
+	public GameClock(long d)
+	// Create a clock that advances d nanosecs every tick. If d is 0 or smaller,
+	// the clock will never advance.
+	{
+		tickDuration = (d > 0)?d:0;
+
+		reset();
+	}
+
+//==============================================================================
+// Getters.
+//==============================================================================
+	public long getTickDuration()
+	// Return the length of a single tick, in nanosecs.
+	{
+		return tickDuration;
+	}
+
+	public long getTicks()
+	// Return the number of ticks elapsed since the clock was reset.
+	{
+		return ticks;
+	}
+
+	public long getTime()
+	// Return the simulated time elapsed since the clock was reset, in nanosecs.
+	{
+		return time;
+	}
+//==============================================================================
+
+
+//==============================================================================
+// Clock control methods.
+//==============================================================================
+	public void advance()
+	// Move the clock forward by one tick. Should be called exactly once before
+	// each game update.
+	{
+		ticks++;
+		time += tickDuration;
+	}
+
+	public void reset()
+	// Set the clock back to 0.
+	{
+		ticks = 0;
+		time = 0;
+	}
+//==============================================================================
+}
@@ -1,7 +1,7 @@
 package com.them.clyde;
 //==============================================================================
 // Date Created:		19 December 2011
-// Last Updated:		20 December 2011
+// Last Updated:		16 October 2026
 //
 // File Name:			GameFrame.java
 // File Author:			M Matthew Hydock
@@ -9,8 +9,26 @@ package com.them.clyde;
 // File Description:	An abstract class representing a generic game frame. It
 //						supports full screen and windowed mode, regulates frame
 //						updates, and listens to window events (if in windowed
-//						mode). Certain methods are left abstract, for descendant
-//						classes to implement.
+//						mode). Keeps a GameClock that advances exactly once per
+//						game update, including updates done to catch up on
+//						skipped frames.
+//
+//						Rendering can optionally be moved to its own thread, so
+//						that a slow buffer flip doesn't hold up the updates.
+//						When it is, descendant classes are expected to pass
+//						the data needed to draw a frame from gameUpdate() to
+//						gameRender() themselves (see TripleBuffer). The render
+//						thread can run at a higher rate than the updates, and
+//						getInterpolation() tells how far along between two
+//						updates a frame is being drawn.
+//
+//						The time spent in each phase of a frame is recorded in
+//						a FrameStats, which is registered as a platform MBean
+//						and summarized every so often. The rest of each frame
+//						is waited out by a FramePacer, whose strategy can be
+//						picked with the clyde.pacing system property (sleep,
+//						park, or yield). Certain methods are left abstract,
+//						for descendant classes to implement.
 //==============================================================================
 
 import javax.swing.*;
@@ -35,6 +53,12 @@ public abstract class GameFrame extends JFrame implements WindowListener, Runnab
 	// i.e the games state is updated but not rendered
 	
 	private long period;                			// Period between drawing, in nanosecs.
+	private long renderPeriod;						// Period between rendering, in nanosecs,
+													// if rendering on its own thread.
+	
+	protected GameClock clock;						// Simulation clock, one tick per update.
+	protected FrameStats stats;						// Where the time of each frame goes.
+	protected FramePacer pacer;						// Waits out the rest of each frame.
 //==============================================================================
 
 
@@ -42,6 +66,8 @@ public abstract class GameFrame extends JFrame implements WindowListener, Runnab
 // Game control variables.
 //==============================================================================
 	private Thread animator;						// The thread that performs the animation.
+	private Thread renderer;						// The thread that renders, if separate.
+	private volatile boolean threadedRendering = false;	// Render on a separate thread?
 	protected volatile boolean running = false;		// Used to stop the animation thread.
 	protected volatile boolean isPaused = false;	// Used to pause the animation thread.
 	protected volatile boolean isSuspended = false;	// Used when the game is minimized, to
@@ -76,7 +102,7 @@ public abstract class GameFrame extends JFrame implements WindowListener, Runnab
 			// If the display doesn't support full screen, display a warning,
 			// and then start the game in windowed mode.
 			{
-				System.out.println("Full-screen exclusive mode not supported");
+				GameLog.warn("Full-screen exclusive mode not supported");
 				initWindowed();
 			}
 			else
@@ -92,6 +118,16 @@ public abstract class GameFrame extends JFrame implements WindowListener, Runnab
 			period = (long)1000000000/fps;
 		else
 			period = (long)1000000000/DEFAULT_FPS;
+		
+		renderPeriod = period;
+		
+		clock = new GameClock(period);
+		
+		pacer = new FramePacer(FramePacer.parseMode(System.getProperty("clyde.pacing")));
+		
+		stats = new FrameStats();
+		stats.setPacer(pacer);
+		stats.register(name);
 
 		setBufferStrategy();
 
@@ -138,7 +174,7 @@ public abstract class GameFrame extends JFrame implements WindowListener, Runnab
 		catch (Exception e)
 		// Whoops! Something happened and a buffer strategy couldn't be made.
 		{
-			System.out.println("Error while creating buffer strategy");
+			GameLog.error("Error while creating buffer strategy");
 			System.exit(0);
 		}
 		
@@ -152,6 +188,47 @@ public abstract class GameFrame extends JFrame implements WindowListener, Runnab
 		bufferStrategy = getBufferStrategy();
 	}
 	
+	public void setThreadedRendering(boolean t)
+	// Choose whether frames are rendered on a thread separate from the game
+	// updates. Must be set before the game is started.
+	{
+		if (!running)
+			threadedRendering = t;
+	}
+	
+	public boolean isThreadedRendering()
+	// Whether frames are rendered on a thread separate from the game updates.
+	{
+		return threadedRendering;
+	}
+	
+	public void setRenderRate(int fps)
+	// Set how many frames per second are rendered, if rendering on its own
+	// thread. Defaults to the update rate.
+	{
+		if (fps > 0)
+			renderPeriod = (long)1000000000/fps;
+	}
+	
+	public long getUpdatePeriod()
+	// Return the time between game updates, in nanosecs.
+	{
+		return period;
+	}
+	
+	protected double getInterpolation(long updateTime)
+	// How far along (0 to 1) the game is between the update made at the given
+	// time (System.nanoTime()) and the next one. If rendering isn't threaded,
+	// every frame is drawn right after an update, so this is always 1.
+	{
+		if (!threadedRendering)
+			return 1;
+		
+		double alpha = (double)(System.nanoTime() - updateTime)/period;
+		
+		return Math.max(0,Math.min(1,alpha));
+	}
+	
 	protected void startGame()
 	// Initialize and start the thread. 
 	{ 
@@ -213,12 +290,27 @@ public abstract class GameFrame extends JFrame implements WindowListener, Runnab
 		beforeTime = System.nanoTime();
 
 		running = true;
+		
+		if (threadedRendering)
+		// Start rendering on its own thread. This thread will only update.
+		{
+			renderer = new Thread(new Runnable()
+			{
+				public void run()
+				{
+					renderLoop();
+				}
+			});
+			renderer.start();
+		}
 
 		while(running)
 		// Updating and rendering loop.
 		{
-			gameUpdate();					// Update the game data.
-			paintScreen();					// Render/Display the frame.
+			updateGame();					// Update the game data.
+			
+			if (!threadedRendering)
+				paintScreen();				// Render/Display the frame.
 
 			afterTime	= System.nanoTime();
 			timeDiff	= afterTime - beforeTime;
@@ -227,13 +319,10 @@ public abstract class GameFrame extends JFrame implements WindowListener, Runnab
 			if (sleepTime > 0)
 			// Some time left in this cycle, sleep for a bit.
 			{
-				try 
-				{
-					Thread.sleep(sleepTime/1000000L);  // nano -> ms
-				}
-				catch(InterruptedException ex){}
+				pacer.sleep(sleepTime);
 
 				overSleepTime = (System.nanoTime() - afterTime) - sleepTime;
+				stats.recordOverSleep(overSleepTime);
 			}
 			else
 			// The frame took longer than desired to render. 
@@ -249,6 +338,7 @@ public abstract class GameFrame extends JFrame implements WindowListener, Runnab
 			}
 
 			beforeTime = System.nanoTime();
+			pacer.recordFrame(beforeTime);
 
 			// If frame animation is taking too long, update the game state
 			// without rendering it, to get the updates/sec nearer to the
@@ -257,9 +347,12 @@ public abstract class GameFrame extends JFrame implements WindowListener, Runnab
 			while((excess > period) && (skips < MAX_FRAME_SKIPS))
 			{
 				excess -= period;
-				gameUpdate();
+				updateGame();
 				skips++;
 			}
+			
+			stats.recordSkips(skips);
+			stats.printSummaryIfDue(beforeTime);
 		}
 		
 		// I really don't like this here, as it doesn't feel thread safe, but in
@@ -268,24 +361,65 @@ public abstract class GameFrame extends JFrame implements WindowListener, Runnab
 		System.exit(0);
 	}
 	
+	private void updateGame()
+	// Advance the simulation clock and update the game, timing the update.
+	{
+		long startTime = System.nanoTime();
+		
+		clock.advance();
+		gameUpdate();
+		
+		stats.recordUpdate(System.nanoTime() - startTime);
+	}
+	
+	private void renderLoop()
+	// Used when rendering is on its own thread. Draws frames as long as the
+	// game is running, at most once per period.
+	{
+		long beforeTime, sleepTime;
+		
+		while(running)
+		{
+			beforeTime = System.nanoTime();
+			
+			paintScreen();
+			
+			sleepTime = renderPeriod - (System.nanoTime() - beforeTime);
+			
+			if (sleepTime > 0)
+			// Some time left in this cycle, sleep for a bit.
+				pacer.sleep(sleepTime);
+			else
+			// Rendering took the whole period, let the update thread run.
+				Thread.yield();
+		}
+	}
+	
 	public void paintScreen()
 	// Use active rendering to draw to a back buffer and then place the buffer
 	// on-screen.
 	{ 
 		try
 		{
+			long renderTime = System.nanoTime();
+			
 			buffer = bufferStrategy.getDrawGraphics();
 			gameRender(buffer);
 			buffer.dispose();
 			
+			long showTime = System.nanoTime();
+			stats.recordRender(showTime - renderTime);
+			
 			if (!bufferStrategy.contentsLost())
 				bufferStrategy.show();
 			else
-				System.out.println("Contents Lost");
+				GameLog.debug("Contents Lost");
 
 			// Sync the display on some systems.
 			// (on Linux, this fixes event queue problems)
 			Toolkit.getDefaultToolkit().sync();
+			
+			stats.recordShow(System.nanoTime() - showTime);
 		}
 		catch (Exception e)
 		{
@@ -294,6 +428,24 @@ public abstract class GameFrame extends JFrame implements WindowListener, Runnab
 		}
 	}
 	
+	public GameClock getClock()
+	// Return the simulation clock.
+	{
+		return clock;
+	}
+	
+	public void setPacingMode(FramePacer.Mode m)
+	// Choose how the rest of each frame is waited out.
+	{
+		pacer.setMode(m);
+	}
+	
+	public FrameStats getFrameStats()
+	// Return the frame timing statistics.
+	{
+		return stats;
+	}
+	
 	// Update the game objects.
 	public abstract void gameUpdate();
 	
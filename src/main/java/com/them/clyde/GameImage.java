@@ -1,13 +1,25 @@
 package com.them.clyde;
 //==============================================================================
 // Date Created:		24 November 2011
-// Last Updated:		19 December 2011
+// Last Updated:		16 October 2026
 //
 // File Name:			GameImage.java
 // File Author:			M Matthew Hydock
 //
 // File description:	A wrapper for the BufferedImage class, to make it easier
 //						to load and draw images. Designed to be extended.
+//
+//						A GameImage may be packed into a TextureAtlas, in which
+//						case its BufferedImage is the atlas page, and the image
+//						itself is the rectangle at (srcX,srcY) of the page.
+//
+//						Every image is scanned when it is set, and classified as
+//						OPAQUE (every pixel solid), BITMASK (every pixel solid
+//						or clear) or TRANSLUCENT. Loaded images are stored in
+//						the cheapest type for their class, whatever the file
+//						itself used, since blending translucent pixels is far
+//						slower than copying solid ones. Atlases and renderers
+//						use the class to pick how to draw the image.
 //==============================================================================
 
 import java.awt.*;
@@ -25,6 +37,12 @@ public class GameImage
 	protected int width;
 	protected int height;
 	
+	protected int srcX;					// Where the image is within the
+	protected int srcY;					// BufferedImage (0,0 unless packed).
+	private BufferedImage view;			// Unpacked copy for getImage().
+	
+	protected int transparency;			// Transparency class of the pixels.
+	
 //==============================================================================
 // Constructors.
 //==============================================================================
@@ -37,8 +55,9 @@ public class GameImage
 		image	= null;
 		width	= -1;
 		height	= -1;
+		transparency = Transparency.TRANSLUCENT;
 		
-		System.out.println("Broken GameImage generated.");
+		GameLog.warn("Broken GameImage generated.");
 	}
 	
 	public GameImage(String path)
@@ -49,7 +68,7 @@ public class GameImage
 		setImage(path);
 		
 		if (isBroken())
-			System.out.println("Broken GameImage generated.");
+			GameLog.warn("Broken GameImage generated.");
 	}
 	
 	public GameImage(BufferedImage i)
@@ -61,16 +80,73 @@ public class GameImage
 		setImage(i);
 		
 		if (isBroken())
-			System.out.println("Broken GameImage generated.");
+			GameLog.warn("Broken GameImage generated.");
 	}
 	
 	public void initGraphicsConfig()
 	{
-		if (gc == null)
+		loadGraphicsConfig();
+	}
+	
+	private static void loadGraphicsConfig()
+	// Grab the configuration of the default screen, if it hasn't been already.
+	// When running headless there is no screen, so there is no configuration.
+	{
+		if (ge == null)
 		{
 			ge = GraphicsEnvironment.getLocalGraphicsEnvironment();
-			gc = ge.getDefaultScreenDevice().getDefaultConfiguration();
+			
+			if (!ge.isHeadlessInstance())
+				gc = ge.getDefaultScreenDevice().getDefaultConfiguration();
+		}
+	}
+	
+	public static BufferedImage createCompatibleImage(int w, int h, int transparency)
+	// Create a blank BufferedImage that is compatible with the display. Used
+	// for off-screen images that are drawn into, instead of loaded. If there is
+	// no display, fall back on a plain RGB or ARGB image.
+	{
+		loadGraphicsConfig();
+		
+		if (gc != null)
+			return gc.createCompatibleImage(w,h,transparency);
+		
+		if (transparency == Transparency.OPAQUE)
+			return new BufferedImage(w,h,BufferedImage.TYPE_INT_RGB);
+			
+		return new BufferedImage(w,h,BufferedImage.TYPE_INT_ARGB);
+	}
+	
+	public static int classifyTransparency(BufferedImage im)
+	// Scan an image's pixels, and return the cheapest transparency that can
+	// hold them: Transparency.OPAQUE if every pixel is solid, BITMASK if every
+	// pixel is solid or completely clear, and TRANSLUCENT otherwise. Images
+	// with no alpha at all aren't scanned.
+	{
+		if (im.getColorModel().getTransparency() == Transparency.OPAQUE)
+			return Transparency.OPAQUE;
+		
+		int w = im.getWidth();
+		int h = im.getHeight();
+		int[] row = new int[w];
+		int result = Transparency.OPAQUE;
+		
+		for (int y = 0; y < h; y++)
+		{
+			im.getRGB(0,y,w,1,row,0,w);
+			
+			for (int x = 0; x < w; x++)
+			{
+				int a = row[x] >>> 24;
+				
+				if (a == 0)
+					result = Transparency.BITMASK;
+				else if (a != 0xFF)
+					return Transparency.TRANSLUCENT;
+			}
 		}
+		
+		return result;
 	}
 //==============================================================================
 
@@ -101,6 +177,13 @@ public class GameImage
 	{
 		return height;
 	}
+	
+	public int getTransparency()
+	// Return the transparency class of the image's pixels; one of
+	// Transparency.OPAQUE, BITMASK, or TRANSLUCENT.
+	{
+		return transparency;
+	}
 //==============================================================================
 
 
@@ -113,25 +196,29 @@ public class GameImage
 	// a null GameImage will be made.
 	{
 		image = null;
+		view = null;
+		srcX = 0;
+		srcY = 0;
 		
-		System.out.println("Attempting to load image: " + path);
+		GameLog.debug("Attempting to load image: " + path);
 		
 		try
 		{
-			// Attempt to load the image, and record its transparency.
+			// Attempt to load the image, and classify its transparency.
 			File file = new File(path);
 			
 			if (!file.exists())
-				System.out.println("File not found.");
+				GameLog.warn("File not found.");
 			else
-				System.out.println("File found.");
+				GameLog.debug("File found.");
 			
 			BufferedImage im = ImageIO.read(file);
 				
-			int transparency = im.getColorModel().getTransparency();
+			transparency = classifyTransparency(im);
 			
-			// Create a new BufferedImage that is compatible with the display.
-			image	= gc.createCompatibleImage(im.getWidth(),im.getHeight(),transparency);
+			// Create a new BufferedImage that is compatible with the display,
+			// and as cheap to draw as its pixels allow.
+			image	= createCompatibleImage(im.getWidth(),im.getHeight(),transparency);
 			
 			// Try to find the last directory separator.
 			int i = path.lastIndexOf("/");
@@ -153,15 +240,19 @@ public class GameImage
 			width = image.getWidth();
 			height = image.getHeight();
 			
-			System.out.println("Image " + path + " loaded successfully.");
+			if (GameLog.isDebugEnabled())
+				GameLog.debug(	"Image " + path + " loaded successfully (" +
+								(transparency == Transparency.OPAQUE?"opaque":
+								 transparency == Transparency.BITMASK?"bitmask":"translucent") + ").");
 		}
 		catch(Exception e)
 		// There was an error somewhere, nullify the GameImage's properties.
 		{
-			System.out.println("Load Image error for " + path + ":\n" + e);
+			GameLog.error("Load Image error for " + path + ":\n" + e);
 			name = null;
 			width = -1;
 			height = -1;
+			transparency = Transparency.TRANSLUCENT;
 		}
 	}
 	
@@ -171,25 +262,74 @@ public class GameImage
 	{
 		name = null;
 		image = i;
+		view = null;
+		srcX = 0;
+		srcY = 0;
 		
 		if (image != null)
 		{
 			width = image.getWidth();
 			height = image.getHeight();
+			transparency = classifyTransparency(image);
 		}
 		else
 		{
 			width = -1;
 			height = -1;
+			transparency = Transparency.TRANSLUCENT;
 		}
 	}
 	
 	public BufferedImage getImage()
-	// Returns the underlying BufferedImage.
+	// Returns the underlying BufferedImage. If the image has been packed into
+	// an atlas, a BufferedImage covering just this image is returned instead
+	// (it shares the atlas' pixels).
+	{
+		if (!isPacked())
+			return image;
+		
+		if (view == null)
+			view = image.getSubimage(srcX,srcY,width,height);
+		
+		return view;
+	}
+	
+	public void setAtlasRegion(BufferedImage atlas, int x, int y)
+	// Make this image a view of the rectangle at (x,y) of an atlas page, which
+	// must already hold a copy of the image. The size is not changed.
+	{
+		image = atlas;
+		view = null;
+		srcX = x;
+		srcY = y;
+	}
+	
+	public boolean isPacked()
+	// Whether this image is part of a larger atlas image.
+	{
+		return image != null && (srcX != 0 || srcY != 0 ||
+								 image.getWidth() != width || image.getHeight() != height);
+	}
+	
+	public BufferedImage getSourceImage()
+	// Returns the BufferedImage the image is drawn from; the atlas page, if
+	// packed. Use with getSourceX() and getSourceY().
 	{
 		return image;
 	}
 	
+	public int getSourceX()
+	// Return the x location of the image within getSourceImage().
+	{
+		return srcX;
+	}
+	
+	public int getSourceY()
+	// Return the y location of the image within getSourceImage().
+	{
+		return srcY;
+	}
+	
 	public boolean isBroken()
 	// Checks whether the internal BufferedImage is null.
 	{
@@ -199,10 +339,16 @@ public class GameImage
 
 	
 	public void draw(Graphics g, int x, int y)
-	// Draw the entire image at (x,y)
+	// Draw the entire image at (x,y). Only a packed image needs the source
+	// rectangle; a whole image is copied with the plain (faster) drawImage().
 	{
-		if (image != null)
+		if (image == null)
+			return;
+		
+		if (!isPacked())
 			g.drawImage(image,x,y,null);
+		else
+			g.drawImage(image,x,y,x+width,y+height,srcX,srcY,srcX+width,srcY+height,null);
 	}
 	
 	public void draw(Graphics g, int dx,  int dy, int sx, int sy, int w, int h)
@@ -218,7 +364,28 @@ public class GameImage
 			int w2 = Math.min(w, width-sx);
 			int h2 = Math.min(h, height-sy);
 			
-			g.drawImage(image,dx,dy,dx+w2,dy+h2,sx,sy,sx+w2,sy+h2,null);
+			g.drawImage(image,dx,dy,dx+w2,dy+h2,srcX+sx,srcY+sy,srcX+sx+w2,srcY+sy+h2,null);
+		}
+	}
+	
+	public void draw(Renderer r, int x, int y)
+	// Draw the entire image at (x,y) with a Renderer.
+	{
+		if (image != null)
+			r.drawImage(image,srcX,srcY,width,height,x,y,false);
+	}
+	
+	public void draw(Renderer r, int dx, int dy, int sx, int sy, int w, int h)
+	// Draw only a part of the image with a Renderer. Same as the Graphics
+	// version.
+	{
+		if (image != null)
+		{
+			int w2 = Math.min(w, width-sx);
+			int h2 = Math.min(h, height-sy);
+			
+			if (w2 > 0 && h2 > 0)
+				r.drawImage(image,srcX+sx,srcY+sy,w2,h2,dx,dy,false);
 		}
 	}
 }
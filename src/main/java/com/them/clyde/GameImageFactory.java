@@ -1,7 +1,7 @@
 package com.them.clyde;
 //==============================================================================
 // Date Created:		26 November 2011
-// Last Updated:		19 December 2011
+// Last Updated:		16 October 2026
 //
 // File Name:			GameImageFactory.java
 // File Author:			M Matthew Hydock
@@ -15,6 +15,10 @@ package com.them.clyde;
 //						animation, and the line that generated it contains
 //						animation information, it can be asked to generate a
 //						companion GameAnimation object for it.
+//
+//						Every image produced is queued in a TextureAtlas. Once
+//						everything that should share the atlas has been loaded,
+//						packAtlas() packs them all into a few large images.
 //==============================================================================
 
 import java.awt.*;
@@ -31,6 +35,8 @@ public class GameImageFactory
 	private boolean inputEnd;
 	private String curr_line;
 	
+	private TextureAtlas atlas;			// Images waiting to be packed.
+	
 	private static GameImageFactory factory;
 
 //==============================================================================
@@ -45,7 +51,9 @@ public class GameImageFactory
 		imageDir = null;
 		curr_line = null;
 		
-		System.out.println("GameImageFactory initialized.");
+		atlas = new TextureAtlas();
+		
+		GameLog.info("GameImageFactory initialized.");
 	}
 	
 	public static GameImageFactory getInstanceOf()
@@ -65,18 +73,18 @@ public class GameImageFactory
 		imageDir = null;
 		curr_line = null;
 		
-		System.out.println("Reading file: " + path);
+		GameLog.debug("Reading file: " + path);
 		
 		try
 		{
 			input = new BufferedReader(new FileReader(path));
 			inputEnd = false;
 			
-			System.out.println("Images file " + path + " set up for reading.");
+			GameLog.debug("Images file " + path + " set up for reading.");
 		}
 		catch (Exception e) 
 		{
-			System.out.println("Error reading file: " + path);
+			GameLog.error("Error reading file: " + path);
 			System.exit(1);
 		}
 	}
@@ -113,7 +121,7 @@ public class GameImageFactory
 					line = line.trim();
 					imageDir = line;
 					
-					System.out.println("Image directory set: " + imageDir);
+					GameLog.debug("Image directory set: " + imageDir);
 					continue;
 				}
 			
@@ -133,14 +141,16 @@ public class GameImageFactory
 				if (line.equals("END_IMAGES"))	// End of images block in file.
 					break;
 				
-				System.out.println("\n" + line);
+				GameLog.debug("\n" + line);
 				
-    	    	return parseLine(line);			// Trying to load image.
+				GameImage image = parseLine(line);	// Trying to load image.
+				atlas.add(image);
+				return image;
 			}
 		}
 		catch (Exception e)
 		{
-			System.out.println("GameImageFactory interrupted: " + e.toString());
+			GameLog.error("GameImageFactory interrupted: " + e.toString());
 			e.printStackTrace();
 			System.exit(1);
 		}
@@ -149,6 +159,27 @@ public class GameImageFactory
 		return null;
 	}
 	
+	public void addToAtlas(GameImage i)
+	// Queue an image that wasn't made by the factory (a sprite sheet, for
+	// instance) to be packed with the others.
+	{
+		atlas.add(i);
+	}
+	
+	public void packAtlas()
+	// Pack every image produced or queued since the last call into atlas
+	// pages. The GameImages are changed in place, so anything holding on to
+	// them keeps working.
+	{
+		atlas.pack();
+	}
+	
+	public TextureAtlas getAtlas()
+	// Return the atlas the factory packs images into.
+	{
+		return atlas;
+	}
+	
 	public GameImage parseLine(String line)
 	// Parse a single line, returning a GameImage object. Separated from the
 	// produceGameImage method because it could come in handy elsewhere.
@@ -175,7 +206,7 @@ public class GameImageFactory
 			case 'd':	return getGameImageGrid(line);
 //			case 'n':	return getGameImageSequence(line);
 //			case 'g':	return getGameImageGroup(line);
-			default	:	System.out.println("Do not recognize line: " + line);
+			default	:	GameLog.warn("Do not recognize line: " + line);
 		}
 		
 		return null;
@@ -209,7 +240,7 @@ public class GameImageFactory
 		int posn;
 		if ((posn = path.lastIndexOf(".")) == -1)
 		{
-			System.out.println("No prefix found for filename: " + path);
+			GameLog.warn("No prefix found for filename: " + path);
 			return path;
 		}
 		else
@@ -222,7 +253,7 @@ public class GameImageFactory
 		int posn;
 		if ((posn = path.lastIndexOf(".")) == -1)
 		{
-			System.out.println("No extension found for filename: " + path);
+			GameLog.warn("No extension found for filename: " + path);
 			return "";
 		}
 		else
@@ -266,7 +297,7 @@ public class GameImageFactory
 		
 		if (tokens.countTokens() < 2)
 		{
-			System.out.println("Malformed animation expression: " + line);
+			GameLog.warn("Malformed animation expression: " + line);
 			return null;
 		}
 		
@@ -294,8 +325,8 @@ public class GameImageFactory
 		catch(Exception e)
 		// Next token wasn't an integer.
 		{
-			System.out.println("Incorrect formatting for " + line);
-			System.out.println("Using default settings...");
+			GameLog.warn("Incorrect formatting for " + line);
+			GameLog.warn("Using default settings...");
 		}
 //------------------------------------------------------------------------------
 		// Set whether the animation should be reversed and/or sporadic.
@@ -330,7 +361,7 @@ public class GameImageFactory
 		if (tokens.countTokens() != 2)
 		// Too many or two few arguments.
 		{
-			System.out.println("Wrong no. of arguments for " + line);
+			GameLog.warn("Wrong no. of arguments for " + line);
 			return new GameImage();
 		}
 		else
@@ -338,7 +369,7 @@ public class GameImageFactory
 			tokens.nextToken();					// Skip command label.
 			String path = tokens.nextToken();	// Record the file path.
 			
-			System.out.println("Generating GameImage using file " + path);
+			GameLog.debug("Generating GameImage using file " + path);
 			return new GameImage(imageDir+path);
 		}
 	}
@@ -351,7 +382,7 @@ public class GameImageFactory
 		if (tokens.countTokens() != 3)
 		// Wrong number of arguments, return an empty GameImageStrip.
 		{
-			System.out.println("Wrong no. of arguments for " + line);
+			GameLog.warn("Wrong no. of arguments for " + line);
 			return new GameImageStrip();
 		}
 		else
@@ -370,11 +401,11 @@ public class GameImageFactory
 			catch(Exception e)
 			// Next token wasn't an integer.
 			{
-				System.out.println("Incorrect formatting for " + line);
-				System.out.println("Using default settings...");
+				GameLog.warn("Incorrect formatting for " + line);
+				GameLog.warn("Using default settings...");
 			}
 			
-			System.out.println(	"Generating GameImageStrip using file " + path +
+			GameLog.debug(	"Generating GameImageStrip using file " + path +
 								" with " + frames + " frames...");
 			return new GameImageStrip(imageDir+path,frames);
 		}
@@ -388,7 +419,7 @@ public class GameImageFactory
 		if (tokens.countTokens() != 4)
 		// Wrong number of arguments, return an empty GameImageStrip.
 		{
-			System.out.println("Wrong no. of arguments for " + line);
+			GameLog.warn("Wrong no. of arguments for " + line);
 			return new GameImageGrid();
 		}
 		else
@@ -409,11 +440,11 @@ public class GameImageFactory
 			catch(Exception e)
 			// Next token wasn't an integer.
 			{
-				System.out.println("Incorrect formatting for " + line);
-				System.out.println("Using default settings...");
+				GameLog.warn("Incorrect formatting for " + line);
+				GameLog.warn("Using default settings...");
 			}
 			
-			System.out.println(	"Generating GameImageGrid using file " + path +
+			GameLog.debug(	"Generating GameImageGrid using file " + path +
 								" with " + frames + " frames and " + rows + " rows.");
 			return new GameImageGrid(imageDir+path,frames,rows);
 		}
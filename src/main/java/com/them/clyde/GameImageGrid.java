@@ -1,14 +1,15 @@
 package com.them.clyde;
 //==============================================================================
 // Date Created:		24 November 2011
-// Last Updated:		19 December 2011
+// Last Updated:		16 October 2026
 //
 // File Name:			GameImageGrid.java
 // File Author:			M Matthew Hydock
 //
 // File description:	An extension of GameImageStrip, this class extends the
 //						basic strip into a series of strips (a grid of frames),
-//						contained in a single image.
+//						contained in a single image. Frames can be sliced into
+//						their own images, the same as a GameImageStrip.
 //==============================================================================
 
 import java.io.*;
@@ -44,7 +45,7 @@ public class GameImageGrid extends GameImageStrip
 		numRows = (rows > 1)?rows:1;
 		curr_row = 0;
 		
-		frameHeight = height/numRows;
+		refreshData();
 	}
 	
 	public GameImageGrid(BufferedImage i, int rows, int columns)
@@ -55,7 +56,7 @@ public class GameImageGrid extends GameImageStrip
 		numRows = (rows > 1)?rows:1;
 		curr_row = 0;
 		
-		frameHeight = height/numRows;
+		refreshData();
 	}
 	
 	public GameImageGrid(GameImage i, int rows, int columns)
@@ -66,7 +67,7 @@ public class GameImageGrid extends GameImageStrip
 		numRows = (rows > 1)?rows:1;
 		curr_row = 0;
 		
-		frameHeight = height/numRows;
+		refreshData();
 	}
 	
 	public GameImageGrid(GameImageStrip s, int rows)
@@ -78,7 +79,7 @@ public class GameImageGrid extends GameImageStrip
 		numRows = (rows > 1)?rows:1;
 		curr_row = 0;
 		
-		frameHeight = height/numRows;
+		refreshData();
 	}
 //==============================================================================
 
@@ -127,19 +128,25 @@ public class GameImageGrid extends GameImageStrip
 	public BufferedImage getFrameSubImage()
 	// Return a BufferedImage that represents the current frame.
 	{
-		return image.getSubimage(curr_frame*frameWidth,curr_row*frameHeight,frameWidth,frameHeight);
+		BufferedImage cached = getCachedFrame(curr_frame,curr_row);
+		if (cached != null)
+			return cached;
+		
+		return image.getSubimage(srcX+curr_frame*frameWidth,srcY+curr_row*frameHeight,frameWidth,frameHeight);
 	}
 //==============================================================================
 
 	public void refreshData()
 	// In case the underlying BufferedImage has been changed, recalculate the
 	// dimensions of a frame. If the BufferedImage has been made null, the
-	// GameImageGrid's properties will be set to impossible values.
+	// GameImageGrid's properties will be set to impossible values. Also
+	// called while the grid is still being constructed, before the number of
+	// frames and rows are known.
 	{
-		if (image != null)
+		if (image != null && numFrames > 0)
 		{
 			frameWidth		= width/numFrames;
-			frameHeight	= height/numRows;
+			frameHeight	= (numRows > 0)?height/numRows:height;
 		}
 		else
 		{
@@ -148,14 +155,82 @@ public class GameImageGrid extends GameImageStrip
 			frameWidth		= -1;
 			frameHeight	= -1;
 		}
+		
+		sliceFrames();
 	}
 	
 	public void draw (Graphics2D g, int x, int y)
 	// Draw the current frame at location (x,y).
 	{
-		if (image != null)
+		drawFrame(g,x,y,curr_frame,curr_row);
+	}
+	
+	public void draw (Graphics g, int x, int y, boolean mirrored)
+	// Draw the current frame at location (x,y), mirrored if asked.
+	{
+		drawFrame(g,x,y,curr_frame,curr_row,mirrored);
+	}
+	
+	public void drawFrame(Graphics g, int x, int y, int frame, boolean mirrored)
+	// Draw the given frame of the current row at location (x,y), mirrored if
+	// asked.
+	{
+		drawFrame(g,x,y,frame,curr_row,mirrored);
+	}
+	
+	public void drawFrame(Graphics g, int x, int y, int frame, int row, boolean mirrored)
+	// Draw the given frame of the given row at location (x,y), mirrored if
+	// asked. The current frame and row are left alone.
+	{
+		if (!mirrored)
+			drawFrame(g,x,y,frame,row);
+		else
+		{
+			BufferedImage mirror = getMirroredFrame(frame,row);
+			
+			if (mirror != null)
+				g.drawImage(mirror,x,y,null);
+		}
+	}
+	
+	public void draw(Renderer r, int x, int y)
+	// Draw the current frame at location (x,y) with a Renderer.
+	{
+		drawFrame(r,x,y,curr_frame,curr_row,false);
+	}
+	
+	public void drawFrame(Renderer r, int x, int y, int frame, boolean mirrored)
+	// Draw the given frame of the current row with a Renderer.
+	{
+		drawFrame(r,x,y,frame,curr_row,mirrored);
+	}
+	
+	public void drawFrame(Renderer r, int x, int y, int frame, int row, boolean mirrored)
+	// Draw the given frame of the given row at location (x,y) with a Renderer,
+	// mirrored if asked. Drawn from the grid itself, as in GameImageStrip.
+	{
+		if (image != null && frame >= 0 && row >= 0)
+			r.drawImage	(image,srcX+frame*frameWidth,srcY+row*frameHeight,
+						frameWidth,frameHeight,x,y,mirrored);
+	}
+	
+	public void drawFrame(Graphics g, int x, int y, int frame)
+	// Draw the given frame of the current row at location (x,y).
+	{
+		drawFrame(g,x,y,frame,curr_row);
+	}
+	
+	public void drawFrame(Graphics g, int x, int y, int frame, int row)
+	// Draw the given frame of the given row at location (x,y). The current
+	// frame and row are left alone.
+	{
+		BufferedImage cached = getCachedFrame(frame,row);
+		
+		if (cached != null)
+			g.drawImage(cached,x,y,null);
+		else if (image != null)
 			g.drawImage	(image,x,y,x+frameWidth,y+frameHeight,
-						curr_frame*frameWidth,curr_row*frameHeight,
-						(curr_frame+1)*frameWidth,(curr_row+1)*frameHeight,null);
+						srcX+frame*frameWidth,srcY+row*frameHeight,
+						srcX+(frame+1)*frameWidth,srcY+(row+1)*frameHeight,null);
 	}
 }
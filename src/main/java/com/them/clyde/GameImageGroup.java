@@ -294,4 +294,18 @@ public class GameImageGroup extends GameImageStrip
 		if (strips != null && curr_strip < strips.size())
 			strips.get(curr_strip).draw(g,x,y);
 	}
+	
+	public void draw(Renderer r, int x, int y)
+	// Draw the current image strip with a Renderer.
+	{
+		if (strips != null && curr_strip < strips.size())
+			strips.get(curr_strip).draw(r,x,y);
+	}
+	
+	public void drawFrame(Renderer r, int x, int y, int frame, boolean mirrored)
+	// Draw a frame of the current image strip with a Renderer.
+	{
+		if (strips != null && curr_strip < strips.size())
+			strips.get(curr_strip).drawFrame(r,x,y,frame,mirrored);
+	}
 }
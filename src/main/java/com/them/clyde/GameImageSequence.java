@@ -214,4 +214,23 @@ public class GameImageSequence extends GameImageStrip
 		if (frames != null && frames.size() != 0)
 			frames.get(curr_frame).draw(g,x,y);
 	}
+	
+	public void draw(Renderer r, int x, int y)
+	{
+		if (frames != null && frames.size() != 0)
+			frames.get(curr_frame).draw(r,x,y);
+	}
+	
+	public void drawFrame(Renderer r, int x, int y, int frame, boolean mirrored)
+	// Draw the given frame with a Renderer, mirrored if asked.
+	{
+		if (frames != null && frame >= 0 && frame < frames.size())
+		{
+			GameImage f = frames.get(frame);
+			
+			if (!f.isBroken())
+				r.drawImage	(f.getSourceImage(),f.getSourceX(),f.getSourceY(),
+							f.getWidth(),f.getHeight(),x,y,mirrored);
+		}
+	}
 }
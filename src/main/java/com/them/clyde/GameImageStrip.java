@@ -1,13 +1,24 @@
 package com.them.clyde;
 //==============================================================================
 // Date Created:		24 November 2011
-// Last Updated:		19 December 2011
+// Last Updated:		16 October 2026
 //
 // File Name:			GameImageStrip.java
 // File Author:			M Matthew Hydock
 //
 // File description:	An extension of GameImage, this class deals with images
 //						organized as a strip of subimages (simple animation).
+//
+//						Optionally, every frame can be sliced into its own
+//						compatible image when the strip is loaded, so drawing a
+//						frame is a plain copy of a whole image, and
+//						getFrameSubImage() doesn't allocate anything. Turned on
+//						per strip with setFrameCaching(), or for every new strip
+//						with -Dclyde.sliceFrames=true.
+//
+//						Frames can also be drawn mirrored (flipped left to
+//						right). The mirrored frames are built once, the first
+//						time one is drawn, and then blitted like any other.
 //==============================================================================
 
 import java.awt.*;
@@ -19,6 +30,13 @@ public class GameImageStrip extends GameImage implements AnimationInterface
 	protected int curr_frame;		// Current frame of the strip.
 	protected int frameWidth;		// Width of a frame (image width/#frames)
 	protected int frameHeight;		// Height of a frame (image height).
+	
+	// Whether new strips slice their frames.
+	private static boolean defaultFrameCaching = Boolean.getBoolean("clyde.sliceFrames");
+	
+	protected boolean frameCaching;			// Whether frames are sliced.
+	protected BufferedImage[] frameCache;	// Sliced frames, row by row.
+	protected BufferedImage[] mirrorCache;	// Mirrored frames, row by row.
 
 //==============================================================================
 // Constructors.
@@ -42,6 +60,7 @@ public class GameImageStrip extends GameImage implements AnimationInterface
 				
 		numFrames		= (frames > 1)?frames:1;
 		curr_frame		= 0;
+		frameCaching	= defaultFrameCaching;
 		
 		refreshData();
 	}
@@ -53,6 +72,7 @@ public class GameImageStrip extends GameImage implements AnimationInterface
 		
 		numFrames		= (frames > 1)?frames:1;
 		curr_frame		= 0;
+		frameCaching	= defaultFrameCaching;
 		
 		refreshData();
 	}
@@ -65,8 +85,9 @@ public class GameImageStrip extends GameImage implements AnimationInterface
 		
 		numFrames		= (frames > 1)?frames:1;
 		curr_frame		= 0;
-		frameWidth		= width/numFrames;
-		frameHeight		= height;
+		frameCaching	= defaultFrameCaching;
+		
+		refreshData();
 	}
 //==============================================================================
 
@@ -126,10 +147,135 @@ public class GameImageStrip extends GameImage implements AnimationInterface
 		return frameHeight;
 	}
 	
+	public int getNumberRows()
+	// Return the number of rows of frames; a strip only has one.
+	{
+		return 1;
+	}
+	
 	public BufferedImage getFrameSubImage()
 	// Return a BufferedImage that represents the current frame.
 	{
-		return image.getSubimage(curr_frame*frameWidth,0,frameWidth,frameHeight);
+		BufferedImage cached = getCachedFrame(curr_frame,0);
+		if (cached != null)
+			return cached;
+		
+		return image.getSubimage(srcX+curr_frame*frameWidth,srcY,frameWidth,frameHeight);
+	}
+//==============================================================================
+
+
+//==============================================================================
+// Frame cache methods.
+//==============================================================================
+	public static void setDefaultFrameCaching(boolean c)
+	// Set whether strips made from now on slice their frames.
+	{
+		defaultFrameCaching = c;
+	}
+	
+	public static boolean getDefaultFrameCaching()
+	{
+		return defaultFrameCaching;
+	}
+	
+	public void setFrameCaching(boolean c)
+	// Turn frame slicing on or off for this strip.
+	{
+		frameCaching = c;
+		sliceFrames();
+	}
+	
+	public boolean isFrameCaching()
+	{
+		return frameCaching;
+	}
+	
+	protected void sliceFrames()
+	// Copy every frame into its own compatible image (with the strip's
+	// transparency class), if frame caching is on,
+	// or throw the cached frames away if it is off. Called whenever the image
+	// or the frame layout changes. Mirrored frames are thrown away, to be
+	// rebuilt the next time they're needed.
+	{
+		frameCache = null;
+		mirrorCache = null;
+		
+		int rows = getNumberRows();
+		if (!frameCaching || image == null || numFrames <= 0 || rows <= 0 ||
+			frameWidth <= 0 || frameHeight <= 0)
+			return;
+		
+		BufferedImage[] frames = new BufferedImage[rows*numFrames];
+		
+		for (int r = 0; r < rows; r++)
+			for (int f = 0; f < numFrames; f++)
+			{
+				BufferedImage frame = createCompatibleImage(frameWidth,frameHeight,transparency);
+				int sx = srcX + f*frameWidth;
+				int sy = srcY + r*frameHeight;
+				
+				Graphics2D g2d = frame.createGraphics();
+				g2d.setComposite(AlphaComposite.Src);
+				g2d.drawImage	(image,0,0,frameWidth,frameHeight,
+								sx,sy,sx+frameWidth,sy+frameHeight,null);
+				g2d.dispose();
+				
+				frames[r*numFrames+f] = frame;
+			}
+		
+		frameCache = frames;
+	}
+	
+	protected BufferedImage getCachedFrame(int frame, int row)
+	// Return the sliced image of the given frame and row, or null if frames
+	// aren't being cached (or there is no such frame).
+	{
+		BufferedImage[] frames = frameCache;
+		
+		if (frames == null || frame < 0 || frame >= numFrames || row < 0 ||
+			(row*numFrames+frame) >= frames.length)
+			return null;
+		
+		return frames[row*numFrames+frame];
+	}
+	
+	protected BufferedImage getMirroredFrame(int frame, int row)
+	// Return the mirrored image of the given frame and row, building the whole
+	// set of mirrored frames if they haven't been yet. Returns null if there is
+	// no such frame.
+	{
+		BufferedImage[] frames = mirrorCache;
+		int rows = getNumberRows();
+		
+		if (image == null || frame < 0 || frame >= numFrames || row < 0 || row >= rows)
+			return null;
+		
+		if (frames == null)
+		// Flip every frame once, in place.
+		{
+			frames = new BufferedImage[rows*numFrames];
+			
+			for (int r = 0; r < rows; r++)
+				for (int f = 0; f < numFrames; f++)
+				{
+					BufferedImage mirror = createCompatibleImage(frameWidth,frameHeight,transparency);
+					int sx = srcX + f*frameWidth;
+					int sy = srcY + r*frameHeight;
+					
+					Graphics2D g2d = mirror.createGraphics();
+					g2d.setComposite(AlphaComposite.Src);
+					g2d.drawImage	(image,0,0,frameWidth,frameHeight,
+									sx+frameWidth,sy,sx,sy+frameHeight,null);
+					g2d.dispose();
+					
+					frames[r*numFrames+f] = mirror;
+				}
+			
+			mirrorCache = frames;
+		}
+		
+		return frames[row*numFrames+frame];
 	}
 //==============================================================================
 
@@ -174,6 +320,8 @@ public class GameImageStrip extends GameImage implements AnimationInterface
 			frameWidth	= -1;
 			frameHeight	= -1;
 		}
+		
+		sliceFrames();
 	}
 //==============================================================================
 
@@ -181,8 +329,54 @@ public class GameImageStrip extends GameImage implements AnimationInterface
 	public void draw (Graphics g, int x, int y)
 	// Draw the current frame at location (x,y).
 	{
-		if (image != null)
+		drawFrame(g,x,y,curr_frame);
+	}
+	
+	public void draw (Graphics g, int x, int y, boolean mirrored)
+	// Draw the current frame at location (x,y), mirrored if asked.
+	{
+		drawFrame(g,x,y,curr_frame,mirrored);
+	}
+	
+	public void drawFrame(Graphics g, int x, int y, int frame, boolean mirrored)
+	// Draw the given frame at location (x,y), mirrored if asked.
+	{
+		if (!mirrored)
+			drawFrame(g,x,y,frame);
+		else
+		{
+			BufferedImage mirror = getMirroredFrame(frame,0);
+			
+			if (mirror != null)
+				g.drawImage(mirror,x,y,null);
+		}
+	}
+	
+	public void draw(Renderer r, int x, int y)
+	// Draw the current frame at location (x,y) with a Renderer.
+	{
+		drawFrame(r,x,y,curr_frame,false);
+	}
+	
+	public void drawFrame(Renderer r, int x, int y, int frame, boolean mirrored)
+	// Draw the given frame at location (x,y) with a Renderer, mirrored if
+	// asked. Always drawn from the strip itself (or its atlas page), not the
+	// sliced or mirrored frames, so that every frame comes from the same
+	// image; the renderer does the mirroring.
+	{
+		if (image != null && frame >= 0)
+			r.drawImage	(image,srcX+frame*frameWidth,srcY,frameWidth,height,x,y,mirrored);
+	}
+	
+	public void drawFrame(Graphics g, int x, int y, int frame)
+	// Draw the given frame at location (x,y). The current frame is left alone.
+	{
+		BufferedImage cached = getCachedFrame(frame,0);
+		
+		if (cached != null)
+			g.drawImage(cached,x,y,null);
+		else if (image != null)
 			g.drawImage	(image,x,y,x+frameWidth,y+height,
-						curr_frame*frameWidth,0,(curr_frame+1)*frameWidth,height,null);
+						srcX+frame*frameWidth,srcY,srcX+(frame+1)*frameWidth,srcY+height,null);
 	}
 }
@@ -1,7 +1,7 @@
 package com.them.clyde;
 //==============================================================================
 // Date Created:		11 December 2011
-// Last Updated:		14 December 2011
+// Last Updated:		16 October 2026
 //
 // File Name:			GameLayer.java
 // File Authhor:		M Matthew Hydock
@@ -9,7 +9,9 @@ package com.them.clyde;
 // File Description:	An abstract class that implements various functions of
 //						a movable layer in a game. The movement rate is a
 //						function of the depth of the layer (further == move
-//						slower, nearer == move faster).
+//						slower, nearer == move faster). Layers can be drawn
+//						back to front by a LayerCompositor, and moved by a
+//						Camera, which they then cull against.
 //==============================================================================
 
 import java.awt.*;
@@ -17,6 +19,7 @@ import java.awt.*;
 public abstract class GameLayer
 {
 	protected Component parent;			// Component that displays this layer.
+	protected Camera camera;			// Camera moving this layer, if any.
 
 	protected int xOffset;				// Camera offset; where to draw the layer.
 	protected int yOffset;				// Camera offset; where to draw the layer.
@@ -67,6 +70,38 @@ public abstract class GameLayer
 		parent = p;
 	}
 	
+	public Camera getCamera()
+	// Get the camera this layer is attached to, or null.
+	{
+		return camera;
+	}
+	
+	public void setCamera(Camera c)
+	// Set the camera this layer culls against. Camera.attach() sets this too,
+	// and also moves the layer with the camera.
+	{
+		camera = c;
+	}
+	
+	public int getViewWidth()
+	// Width of the view the layer is drawn in: the camera's, or the parent's
+	// if the layer has no camera.
+	{
+		return (camera != null)?camera.getWidth():parent.getWidth();
+	}
+	
+	public int getViewHeight()
+	// Height of the view the layer is drawn in.
+	{
+		return (camera != null)?camera.getHeight():parent.getHeight();
+	}
+	
+	public boolean isOnScreen(int x, int y, int w, int h)
+	// Whether a rectangle (in screen coordinates) can be seen in the view.
+	{
+		return Camera.intersects(x,y,w,h,getViewWidth(),getViewHeight());
+	}
+	
 	public void setOffsets(int x, int y)
 	// Set the layer offsets. They will be multiplied by the movement factor to
 	// simulate real depth.
@@ -86,4 +121,10 @@ public abstract class GameLayer
 	{
 		return yOffset;
 	}
+	
+	public abstract void display(Graphics g);
+	// Draw the layer, using its current offsets.
+	
+	public abstract void display(Renderer r);
+	// Draw the layer with a Renderer, using its current offsets.
 }
@@ -0,0 +1,309 @@
+package com.them.clyde;
+//==============================================================================
+// Date Created:		16 October 2026
+// Last Updated:		16 October 2026
+//
+// File Name:			GameLog.java
+// File Author:			M Matthew Hydock
+//
+// File Description:	A small, leveled, asynchronous log. Messages are put in
+//						a fixed-size ring buffer, and a background thread
+//						drains the buffer to System.out, so the game loop never
+//						waits on console I/O. If the buffer fills up, new
+//						messages are dropped (and counted) rather than blocking
+//						the caller.
+//
+//						Checking a disabled level is a single comparison.
+//						Messages that are expensive to build, or are logged
+//						every frame, should either be given as a Supplier, or
+//						be wrapped in an isEnabled() check, so nothing is built
+//						unless the message will actually be written.
+//
+//						The level can be set with -Dclyde.log=<level> (debug,
+//						info, warn, error, off); the default is info. Anything
+//						still in the buffer is written out when the VM shuts
+//						down, including through System.exit().
+//==============================================================================
+
+import java.util.function.*;
+
+public class GameLog
+{
+	public static enum Level {DEBUG, INFO, WARN, ERROR, OFF};
+
+	private static final int CAPACITY = 1024;			// Size of the ring buffer.
+	private static final long FLUSH_TIMEOUT = 2000;		// Longest wait in flush() (ms).
+
+	private static final Object lock = new Object();
+
+	// The ring buffer. Only touched while holding the lock.
+	private static final String[] messages = new String[CAPACITY];
+	private static final Level[] levels = new Level[CAPACITY];
+	private static int head = 0;						// Oldest message.
+	private static int size = 0;						// Number of messages waiting.
+	private static long dropped = 0;					// Messages lost to a full buffer.
+	private static boolean writing = false;				// Drain thread has a batch out.
+
+	// Lowest level that is written, as an ordinal so the check is cheap.
+	private static volatile int threshold = parseLevel(System.getProperty("clyde.log")).ordinal();
+
+	private static Thread writer = null;
+
+	private GameLog()
+	// Only static methods.
+	{
+	}
+
+	public static Level parseLevel(String s)
+	// Turn a name ("debug", "info", "warn", "error", "off") into a level.
+	// Anything unrecognized is INFO.
+	{
+		if (s != null)
+		{
+			s = s.trim().toLowerCase();
+
+			if (s.equals("debug") || s.equals("all"))
+				return Level.DEBUG;
+			if (s.equals("warn") || s.equals("warning"))
+				return Level.WARN;
+			if (s.equals("error"))
+				return Level.ERROR;
+			if (s.equals("off") || s.equals("none"))
+				return Level.OFF;
+		}
+
+		return Level.INFO;
+	}
+
+//==============================================================================
+// Getters and setters.
+//==============================================================================
+	public static void setLevel(Level l)
+	// Set the lowest level that will be written.
+	{
+		if (l != null)
+			threshold = l.ordinal();
+	}
+
+	public static Level getLevel()
+	// Return the lowest level that will be written.
+	{
+		return Level.values()[threshold];
+	}
+
+	public static boolean isEnabled(Level l)
+	// Whether messages at the given level will be written.
+	{
+		return l.ordinal() >= threshold;
+	}
+
+	public static boolean isDebugEnabled()
+	// Whether debug messages will be written. Use to guard debug messages that
+	// are logged every frame.
+	{
+		return threshold == 0;
+	}
+
+	public static long getDroppedCount()
+	// Return the number of messages lost because the buffer was full.
+	{
+		synchronized (lock)
+		{
+			return dropped;
+		}
+	}
+//==============================================================================
+
+
+//==============================================================================
+// Logging methods.
+//==============================================================================
+	public static void log(Level l, String msg)
+	// Queue a message at the given level, if that level is enabled.
+	{
+		if (l.ordinal() < threshold || l == Level.OFF)
+			return;
+
+		enqueue(l,msg);
+	}
+
+	public static void log(Level l, Supplier<String> msg)
+	// Queue a message at the given level, if that level is enabled. The
+	// message is only built if it will be written.
+	{
+		if (l.ordinal() < threshold || l == Level.OFF)
+			return;
+
+		enqueue(l,msg.get());
+	}
+
+	public static void debug(String msg)				{log(Level.DEBUG,msg);}
+	public static void debug(Supplier<String> msg)		{log(Level.DEBUG,msg);}
+	public static void info(String msg)					{log(Level.INFO,msg);}
+	public static void info(Supplier<String> msg)		{log(Level.INFO,msg);}
+	public static void warn(String msg)					{log(Level.WARN,msg);}
+	public static void warn(Supplier<String> msg)		{log(Level.WARN,msg);}
+	public static void error(String msg)				{log(Level.ERROR,msg);}
+	public static void error(Supplier<String> msg)		{log(Level.ERROR,msg);}
+
+	public static void flush()
+	// Wait (for a couple of seconds at most) until every queued message has
+	// been written.
+	{
+		long deadline = System.currentTimeMillis() + FLUSH_TIMEOUT;
+
+		synchronized (lock)
+		{
+			while ((size > 0 || writing) && writer != null && writer.isAlive())
+			{
+				long remaining = deadline - System.currentTimeMillis();
+				if (remaining <= 0)
+					break;
+
+				try
+				{
+					lock.wait(remaining);
+				}
+				catch (InterruptedException e)
+				{
+					break;
+				}
+			}
+
+			// Whatever the writer didn't get to is written here.
+			if (size > 0)
+			{
+				String[] msgs = new String[size];
+				Level[] lvls = new Level[size];
+				int n = takeBatch(msgs,lvls);
+
+				for (int i = 0; i < n; i++)
+					write(lvls[i],msgs[i]);
+			}
+		}
+	}
+//==============================================================================
+
+
+//==============================================================================
+// Buffer methods.
+//==============================================================================
+	private static void enqueue(Level l, String msg)
+	// Put a message at the end of the ring buffer, or drop it if the buffer is
+	// full. Starts the writer thread on first use.
+	{
+		synchronized (lock)
+		{
+			if (writer == null)
+				startWriter();
+
+			if (size == CAPACITY)
+			{
+				dropped++;
+				return;
+			}
+
+			int tail = (head + size) % CAPACITY;
+			messages[tail] = msg;
+			levels[tail] = l;
+			size++;
+
+			if (size == 1)
+				lock.notifyAll();
+		}
+	}
+
+	private static int takeBatch(String[] msgs, Level[] lvls)
+	// Move as many messages as will fit out of the ring buffer, oldest first.
+	// Must be called while holding the lock.
+	{
+		int n = Math.min(size,msgs.length);
+
+		for (int i = 0; i < n; i++)
+		{
+			msgs[i] = messages[head];
+			lvls[i] = levels[head];
+			messages[head] = null;
+			head = (head + 1) % CAPACITY;
+		}
+		size -= n;
+
+		return n;
+	}
+
+	private static void write(Level l, String msg)
+	// Write a single message to the console. Warnings and errors are marked
+	// with their level.
+	{
+		if (l == Level.WARN || l == Level.ERROR)
+			System.out.println(l + ": " + msg);
+		else
+			System.out.println(msg);
+	}
+
+	private static void startWriter()
+	// Start the background thread that drains the buffer, and make sure the
+	// buffer is flushed when the VM shuts down. Must be called while holding
+	// the lock.
+	{
+		writer = new Thread("GameLog")
+		{
+			public void run()
+			{
+				String[] msgs = new String[64];
+				Level[] lvls = new Level[64];
+
+				while (true)
+				{
+					int n;
+
+					synchronized (lock)
+					{
+						while (size == 0)
+						{
+							try
+							{
+								lock.wait();
+							}
+							catch (InterruptedException e)
+							{
+								return;
+							}
+						}
+
+						n = takeBatch(msgs,lvls);
+						writing = true;
+					}
+
+					// Write outside the lock, so the game never waits on I/O.
+					for (int i = 0; i < n; i++)
+					{
+						write(lvls[i],msgs[i]);
+						msgs[i] = null;
+					}
+
+					synchronized (lock)
+					{
+						writing = false;
+						lock.notifyAll();
+					}
+				}
+			}
+		};
+		writer.setDaemon(true);
+		writer.start();
+
+		Runtime.getRuntime().addShutdownHook(new Thread("GameLog flush")
+		{
+			public void run()
+			{
+				flush();
+
+				long n = getDroppedCount();
+				if (n > 0)
+					System.out.println("GameLog: " + n + " messages dropped.");
+			}
+		});
+	}
+//==============================================================================
+}
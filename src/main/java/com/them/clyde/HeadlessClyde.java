@@ -0,0 +1,126 @@
+package com.them.clyde;
+//==============================================================================
+// Date Created:		16 October 2026
+// Last Updated:		16 October 2026
+//
+// File Name:			HeadlessClyde.java
+// File Author:			M Matthew Hydock
+//
+// File Description:	Runs the game logic of Clyde's Adventure with no window,
+//						no BufferStrategy, and no frame rate cap. The
+//						simulation is stepped as fast as the CPU allows, and
+//						the achieved tick rate is reported at the end, along
+//						with a summary of the update times. Meant
+//						for automated level testing and benchmarking on
+//						machines without a display.
+//
+//						Usage:
+//							HeadlessClyde [map file] [sprite file] [ticks]
+//==============================================================================
+
+import java.awt.*;
+
+public class HeadlessClyde
+{
+//==============================================================================
+// Constants.
+//==============================================================================
+	// Files to be loaded if none are given.
+	private static final String TILE_MAP = "../data/maps/testmap.txt";
+	private static final String CLYDE = "../data/sprites/clyde.png";
+
+	// Default number of ticks to simulate.
+	private static final long DEFAULT_TICKS = 10000;
+
+	// Simulated time per tick, in nanosecs (30 updates per simulated second).
+	private static final long TICK_DURATION = 1000000000L/30;
+
+	// Size of the imaginary screen the camera is centered in.
+	private static final int VIEW_WIDTH = 640;
+	private static final int VIEW_HEIGHT = 480;
+//==============================================================================
+
+
+//==============================================================================
+// Simulation runner.
+//==============================================================================
+	public static Component createViewport(int width, int height)
+	// Make a bare component to stand in for the game window. It is never
+	// displayed, it only gives the camera a width and a height.
+	{
+		Component viewport = new Component() {};
+		viewport.setSize(width,height);
+
+		return viewport;
+	}
+
+	public static long runTicks(ClydeSimulation sim, long ticks, FrameStats stats)
+	// Step the simulation the given number of times, or until the game is
+	// over, recording the time of each update. Returns the total time taken,
+	// in nanosecs.
+	{
+		long beforeTime = System.nanoTime();
+		long startTime = beforeTime;
+
+		for (long i = 0; i < ticks && !sim.isGameOver(); i++)
+		{
+			sim.getClock().advance();
+			sim.update();
+
+			long afterTime = System.nanoTime();
+			stats.recordUpdate(afterTime - startTime);
+			stats.recordSkips(0);
+			startTime = afterTime;
+		}
+
+		return System.nanoTime() - beforeTime;
+	}
+//==============================================================================
+
+
+//==============================================================================
+// Main method.
+//==============================================================================
+	public static void main(String args[])
+	// Load a level, step it as fast as possible, and report how it went.
+	{
+		// Must be set before anything touches AWT.
+		System.setProperty("java.awt.headless","true");
+
+		String mapFile = (args.length > 0)?args[0]:TILE_MAP;
+		String spriteFile = (args.length > 1)?args[1]:CLYDE;
+		long ticks = DEFAULT_TICKS;
+
+		if (args.length > 2)
+		{
+			try
+			{
+				ticks = Long.parseLong(args[2]);
+			}
+			catch (NumberFormatException e)
+			// Not a number, stick with the default.
+			{
+				GameLog.warn("Incorrect number of ticks: " + args[2]);
+			}
+		}
+
+		ClydeSimulation sim = new ClydeSimulation(mapFile,spriteFile,
+												createViewport(VIEW_WIDTH,VIEW_HEIGHT),
+												new GameClock(TICK_DURATION));
+
+		FrameStats stats = new FrameStats();
+		stats.register("HeadlessClyde");
+
+		long timeTaken = runTicks(sim,ticks,stats);
+		double seconds = timeTaken/1000000000.0;
+
+		GameLog.info("");
+		GameLog.info("Ticks simulated:  " + sim.getTicks());
+		GameLog.info("Time taken (s):   " + seconds);
+		GameLog.info("Ticks per second: " + (seconds > 0?sim.getTicks()/seconds:0));
+		GameLog.info("Game over:        " + sim.isGameOver());
+		GameLog.info("Clyde's health:   " + sim.getClyde().getHealth());
+		GameLog.info(stats.getSummary());
+	}
+//==============================================================================
+}
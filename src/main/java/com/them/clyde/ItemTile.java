@@ -1,7 +1,7 @@
 package com.them.clyde;
 //==============================================================================
 // Date Created:		18 December 2011
-// Last Updated:		20 December 2011
+// Last Updated:		16 October 2026
 //
 // File Name:			ItemTile.java
 // File Author:			M Matthew Hydock
@@ -19,6 +19,12 @@ public abstract class ItemTile extends AnimatedTile
 		super(i,a,false);
 	}
 	
+	public boolean isActive()
+	// An item can schedule its own removal, so it always has to be checked.
+	{
+		return true;
+	}
+	
 	public void passiveAction(Sprite s)
 	// Something to do if a sprite encounters this tile.
 	{
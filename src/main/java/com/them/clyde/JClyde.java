@@ -1,7 +1,7 @@
 package com.them.clyde;
 //==============================================================================
 // Date Created:		14 December 2011
-// Last Updated:		31 December 2011
+// Last Updated:		16 October 2026
 //
 // File Name:			JClyde.java
 // File Author:			M Matthew Hydock
@@ -24,11 +24,28 @@ package com.them.clyde;
 //						class, (also written by Andrew Davison), but all of the
 //						generic game control code has been isolated and placed
 //						into another class, which this class inherits from.
+//						The game logic itself lives in ClydeSimulation, so
+//						that it can also be run without a window. If rendering
+//						is done on a separate thread, each update is handed to
+//						it as a RenderSnapshot, through a TripleBuffer, and the
+//						snapshot is drawn interpolated between the positions
+//						before and after the update.
+//
+//						In dirty-rectangle mode, the scene is kept in its own
+//						image between frames, and only the parts that changed
+//						(animated tiles, removed tiles, and Clyde) are
+//						repainted. Moving the camera repaints everything.
+//
+//						Frames themselves are drawn by a ClydeScene, which can
+//						also draw them without a window. In banded mode, they
+//						are composed in parallel by a BandedRenderer, and
+//						copied to the screen in one go.
 //==============================================================================
 
 import javax.swing.*;
 import java.awt.event.*;
 import java.awt.*;
+import java.awt.image.*;
 import java.util.*;
 
 public class JClyde extends GameFrame implements KeyListener
@@ -40,28 +57,46 @@ public class JClyde extends GameFrame implements KeyListener
 	private static final String HELP_SCREEN = "../data/help.png";
 	private static final String TILE_MAP = "../data/maps/testmap.txt";
 	private static final String CLYDE = "../data/sprites/clyde.png";
-	private static final String MOUNTAINS = "../data/ribbons/mountains.png";
-	private static final String CLOUDS = "../data/ribbons/clouds.png";
 //==============================================================================
 
 
 //==============================================================================
 // Internal objects and variables.
 //==============================================================================
+	private ClydeSimulation sim;				// The game logic.
 	private ClydeSprite clyde;					// The hero sprite.
-	private ArrayList<Ribbon> ribbons;			// The scrolling backgrounds.
 	private TileMap tilemap;					// The tilemap.
+	private ClydeScene painter;					// Draws the game.
+	
+	// Snapshots handed to the render thread, if rendering is threaded.
+	private TripleBuffer<RenderSnapshot> snapshots;
+	
+	// Dirty-rectangle rendering. The scene (tiles and Clyde, without any
+	// messages on top) is kept between frames, along with what was drawn
+	// where, so only the changes have to be repainted.
+	private volatile boolean dirtyRendering;
+	private volatile boolean sceneValid;		// Scene matches the last frame.
+	private DirtyRegions dirty;
+	private BufferedImage scene;
+	private int[] sceneRange;					// Visible tiles last frame.
+	private int[] currRange;					// Visible tiles this frame.
+	private int[] sceneFrames;					// Their frames last frame.
+	private int[] currFrames;					// Their frames this frame.
+	private int sceneXOffset;					// Camera offsets last frame.
+	private int sceneYOffset;
+	private int clydeX, clydeY;					// Clyde, as drawn last frame.
+	private int clydeRow, clydeFrame;
+	private boolean clydeFacingRight;
+	
+	// Parallel software rendering; null unless turned on.
+	private volatile BandedRenderer banded;
 
 	// For displaying messages
 	private Font msgsFont;
-	private FontMetrics metrics;
 
 	// to display the title/help screen
-	private boolean showHelp;
+	private volatile boolean showHelp;
 	private GameImage helpIm;
-	
-	// Loads the tilemap.
-	private TileMapFactory mapLoader;
 //==============================================================================
 
 
@@ -70,9 +105,26 @@ public class JClyde extends GameFrame implements KeyListener
 //==============================================================================
 	public JClyde(int fps, boolean windowed)
 	// Create a JPanel to display and control Clyde's Adventure.
+	{
+		this(fps,windowed,false);
+	}
+	
+	public JClyde(int fps, boolean windowed, boolean threaded)
+	// Create a JPanel to display and control Clyde's Adventure, optionally
+	// rendering on a thread separate from the game updates.
+	{
+		this(fps,windowed,threaded,fps);
+	}
+	
+	public JClyde(int fps, boolean windowed, boolean threaded, int renderFps)
+	// Create a JPanel to display and control Clyde's Adventure. If rendering
+	// on a separate thread, it can be done at a different rate than updates.
 	{
 		super("Clyde's Adventure",fps,windowed);
 		
+		setThreadedRendering(threaded);
+		setRenderRate(renderFps);
+		
 		// Add this object a keylistener.
 		addKeyListener(this);
 
@@ -85,32 +137,34 @@ public class JClyde extends GameFrame implements KeyListener
 	// Initialize the sprite, tilemap, and background layers, along with game
 	// state variables and font settings.
 	{
-		// Map loader.
-     	mapLoader = TileMapFactory.getInstanceOf();
-		mapLoader.setInputFile(TILE_MAP);
-		mapLoader.setParent(this);
-     
-		// Initialize the game entities.
-		tilemap = mapLoader.produceTileMap();
-		System.out.println();
-		clyde = new ClydeSprite(new GameImageGrid(CLYDE,4,3),tilemap,
-								tilemap.getStartX()*tilemap.getTileSize(),
-								tilemap.getStartY()*tilemap.getTileSize(),this);
+		// Load the level, and initialize the game entities.
+		sim = new ClydeSimulation(TILE_MAP,CLYDE,this,clock);
+		tilemap = sim.getTileMap();
+		clyde = sim.getClyde();
+		
+		if (isThreadedRendering())
+		// Prepare the snapshots, and publish the initial state of the game.
+		{
+			snapshots = new TripleBuffer<RenderSnapshot>(	new RenderSnapshot(),
+															new RenderSnapshot(),
+															new RenderSnapshot());
+			publishSnapshot();
+		}
 
 //		System.out.println();
 
-		// Initialize the ribbons (needs special attention).
-//		ribbons = new ArrayList<Ribbon>();
-//		ribbons.add(new Ribbon(new GameImage(CLOUDS),2,true,false,this));
-//		ribbons.add(new Ribbon(new GameImage(MOUNTAINS),1,true,false,this));
-		
-		// Align the ribbons to the bottom left of the tilemap.
-//		for (int i = 0; i < ribbons.size(); i++)
-//			ribbons.get(i).setPosition(0,tilemap.getMapHeight()-ribbons.get(i).getHeight());
+		// Prepare to draw the game, along with the background ribbons.
+		painter = new ClydeScene(sim);
 
-		generateOffsets();
+		GameLog.info("");
 
-		System.out.println();
+		// Prepare the dirty-rectangle state; the scene image is made on the
+		// first frame, once the size of the window is known.
+		dirty = new DirtyRegions(getWidth(),getHeight());
+		sceneRange = new int[4];
+		currRange = new int[4];
+		sceneFrames = new int[0];
+		currFrames = new int[0];
 
 		// Prepare/display title/help screen.
 		helpIm = new GameImage(HELP_SCREEN);
@@ -119,7 +173,6 @@ public class JClyde extends GameFrame implements KeyListener
 
 		// Set up message font
 		msgsFont = new Font("SansSerif", Font.BOLD, 24);
-		metrics = this.getFontMetrics(msgsFont);
 	}
 //==============================================================================
 
@@ -132,48 +185,54 @@ public class JClyde extends GameFrame implements KeyListener
 	{ 
 		if (!isPaused && !gameOver)
 		{
-			// Update the environment, and the hero sprite.
-			tilemap.update();
-			clyde.updateSprite();
+			sim.update();
+			
+			painter.updateOffsets();
 			
-			// Shift the view.
-			generateOffsets();
+			gameOver = sim.isGameOver();
 			
-			// Check to see if an end-game scenario has been reached.
-			double xPos = clyde.getXPos()/tilemap.getTileSize();
-			double yPos = clyde.getYPos()/tilemap.getTileSize();
-			double distanceToExit = Math.sqrt(Math.pow(xPos-tilemap.getExitX(),2)+Math.pow(yPos-tilemap.getExitY(),2));
-			System.out.println("Distance to exit (in tiles): " + distanceToExit);
-			if (clyde.getHealth() == 0 || distanceToExit < 5)
-				gameOver = true;
+			if (snapshots != null)
+				publishSnapshot();
 		}
 	}
 	
-	private void generateOffsets()
-	// Create and apply offsets, making the panel act as a sort of camera.
+	private void publishSnapshot()
+	// Capture the state of the game, and hand it to the render thread.
 	{
-		// Find the middle of the screen.
-		int xOffset = (int)(getWidth()/2-(clyde.getXPos()+clyde.getWidth()/2));
-		int yOffset = (int)(getHeight()/2-(clyde.getYPos()+clyde.getHeight()/2));
-		
-		// Try to shift the character and the environment to the middle. If the
-		// offsets move the tilemap away from the edges, force the offsets to
-		// align to the edges.
-		if (xOffset > 0)
-			xOffset = 0;
-		else if (xOffset < -(tilemap.getMapWidth()-getWidth()-1))
-			xOffset = -(tilemap.getMapWidth()-getWidth()-1);
-			
-		if (yOffset > 0)
-			yOffset = 0;
-		else if (yOffset < -(tilemap.getMapHeight()-getHeight()-1))
-			yOffset = -(tilemap.getMapHeight()-getHeight()-1);
-		
-		// Apply the offsets to all of the visible game objects.	
-		clyde.setOffsets(xOffset,yOffset);
-		tilemap.setOffsets(xOffset,yOffset);
-//		for (int i = 0; i < ribbons.size(); i++)
-//			ribbons.get(i).setOffsets(xOffset,yOffset);
+		snapshots.getBack().capture(sim);
+		snapshots.publish();
+	}
+//==============================================================================
+
+
+//==============================================================================
+// Getters and setters.
+//==============================================================================
+	public void setDirtyRendering(boolean d)
+	// Turn dirty-rectangle rendering on or off. Only used when rendering on
+	// the update thread; threaded rendering always repaints everything.
+	{
+		dirtyRendering = d;
+		sceneValid = false;
+	}
+
+	public boolean isDirtyRendering()
+	// Whether dirty-rectangle rendering is turned on.
+	{
+		return dirtyRendering;
+	}
+	
+	public void setBandedRendering(boolean b)
+	// Turn parallel banded rendering on or off. Takes the place of
+	// dirty-rectangle rendering while it is on.
+	{
+		banded = b?new BandedRenderer():null;
+	}
+	
+	public boolean isBandedRendering()
+	// Whether banded rendering is turned on.
+	{
+		return banded != null;
 	}
 //==============================================================================
 
@@ -184,28 +243,153 @@ public class JClyde extends GameFrame implements KeyListener
 	public void gameRender(Graphics g)
 	// Render the game graphics.
 	{
-		// Draw a white background
-		g.setColor(Color.white);
-		g.fillRect(0, 0, getWidth(), getHeight());
-
-		// Draw the game elements; order is important.
-//		for (int i = 0; i < ribbons.size(); i++)
-//			ribbons.get(i).display(g);
-		tilemap.display(g);
-		clyde.drawSprite(g);
+		BandedRenderer b = banded;
+		
+		if (b != null)
+		// Compose the frame in parallel, then copy it to the screen.
+		{
+			int w = getWidth();
+			int h = getHeight();
+			
+			b.begin(w,h);
+			if (snapshots == null)
+			{
+				painter.render(b,w,h);
+				b.end();
+				g.drawImage(b.getImage(),0,0,null);
+				painter.drawEndScreen(g,w,h,gameOver,clyde.getHealth());
+			}
+			else
+			{
+				RenderSnapshot s = snapshots.getFront();
+				painter.render(b,w,h,s,getInterpolation(s.getCaptureTime()));
+				b.end();
+				g.drawImage(b.getImage(),0,0,null);
+				painter.drawEndScreen(g,w,h,s.isGameOver(),s.getClydeHealth());
+			}
+		}
+		else if (dirtyRendering && snapshots == null)
+		// Repaint whatever changed in the scene, then copy it to the screen.
+		{
+			renderScene();
+			g.drawImage(scene,0,0,null);
+			
+			painter.drawEndScreen(g,getWidth(),getHeight(),gameOver,clyde.getHealth());
+		}
+		else if (snapshots == null)
+		// Rendering on the update thread, the game objects can be drawn as-is.
+			painter.render(g,getWidth(),getHeight());
+		else
+		// Rendering on a separate thread, draw the latest snapshot.
+		{
+			RenderSnapshot s = snapshots.getFront();
+			
+			painter.render(g,getWidth(),getHeight(),s,getInterpolation(s.getCaptureTime()));
+		}
 
 //		drawStatus(g);
 
-		if (gameOver && clyde.getHealth() > 0)
-			victoryScreen(g);
-		if (gameOver && clyde.getHealth() == 0)
-			gameOverScreen(g);
-			
 		if (showHelp)		// Draw the help at the very front (if switched on).
 			helpIm.draw(g,	(getWidth()-helpIm.getWidth())/2, 
 							(getHeight()-helpIm.getHeight())/2);		
 	}
 
+	private void renderScene()
+	// Find what changed since the last frame, and repaint just those parts of
+	// the scene image. If the camera moved, or the window changed size, the
+	// whole scene is repainted.
+	{
+		int w = getWidth();
+		int h = getHeight();
+		
+		if (scene == null || scene.getWidth() != w || scene.getHeight() != h)
+		{
+			scene = GameImage.createCompatibleImage(w,h,Transparency.OPAQUE);
+			dirty.setBounds(w,h);
+		}
+		
+		// Dirty rendering was just turned on; the scene is out of date.
+		if (!sceneValid)
+		{
+			dirty.markAll();
+			sceneValid = true;
+		}
+		
+		// The camera moved, so everything on screen moved.
+		Camera camera = sim.getCamera();
+		int xOff = camera.getXOffset();
+		int yOff = camera.getYOffset();
+		if (xOff != sceneXOffset || yOff != sceneYOffset)
+			dirty.markAll();
+		
+		// Compare the frame of every visible tile to last frame's. Changed
+		// frames are animated tiles that moved on, or tiles that were removed.
+		int[] range = currRange;
+		System.arraycopy(camera.getVisibleRange(),0,range,0,4);
+		int numTiles = camera.getNumberVisible();
+		if (currFrames.length < numTiles)
+		{
+			currFrames = new int[numTiles];
+			sceneFrames = new int[numTiles];
+			dirty.markAll();
+		}
+		tilemap.captureFrames(range,currFrames);
+		
+		if (!Arrays.equals(range,sceneRange))
+			dirty.markAll();
+		else if (!dirty.isFull())
+		{
+			int size = tilemap.getTileSize();
+			int k = 0;
+			for (int i = range[1]; i <= range[3]; i++)
+				for (int j = range[0]; j <= range[2]; j++, k++)
+					if (currFrames[k] != sceneFrames[k])
+						dirty.add(j*size+xOff,i*size+yOff,size,size);
+		}
+		
+		// Clyde moved or changed frames; repaint where he was, and where he is.
+		int cx = (int)clyde.getXPos()+clyde.getXOffset();
+		int cy = (int)clyde.getYPos()+clyde.getYOffset();
+		int row = clyde.getAnimationRow();
+		int frame = clyde.getSpriteMap().getCurrentFrame();
+		boolean facingRight = clyde.isFacingRight();
+		if (cx != clydeX || cy != clydeY || row != clydeRow || frame != clydeFrame ||
+			facingRight != clydeFacingRight)
+		{
+			dirty.add(clydeX,clydeY,clyde.getDrawWidth(),clyde.getDrawHeight());
+			dirty.add(cx,cy,clyde.getDrawWidth(),clyde.getDrawHeight());
+		}
+		
+		if (!dirty.isEmpty())
+		{
+			Graphics2D g = scene.createGraphics();
+			
+			if (dirty.isFull())
+				painter.paintRegion(g,0,0,w,h);
+			else
+				for (int i = 0; i < dirty.getCount(); i++)
+					painter.paintRegion(g,dirty.getX(i),dirty.getY(i),
+										dirty.getWidth(i),dirty.getHeight(i));
+			
+			g.dispose();
+		}
+		
+		// Remember what was drawn, for comparing against next frame.
+		dirty.clear();
+		sceneXOffset = xOff;
+		sceneYOffset = yOff;
+		currRange = sceneRange;
+		sceneRange = range;
+		int[] temp = sceneFrames;
+		sceneFrames = currFrames;
+		currFrames = temp;
+		clydeX = cx;
+		clydeY = cy;
+		clydeRow = row;
+		clydeFrame = frame;
+		clydeFacingRight = facingRight;
+	}
+	
 	private void drawStatus(Graphics g)
 	// Status bar across the bottom of the screen. Displays the number of gems
 	// collected out of how many are in the level, along with how much health
@@ -224,35 +408,6 @@ public class JClyde extends GameFrame implements KeyListener
 		g.drawString("Health: " + clyde.getHealth(), 215+getInsets().left, getHeight()-25-getInsets().bottom);
 	}
 
-	private void gameOverScreen(Graphics g)
-	// Display the game over screen.
-	{
-		String msg = "Don't give up!";
-
-		int x = (getWidth() - metrics.stringWidth(msg))/2; 
-		int y = (getHeight() - metrics.getHeight())/2;
-		
-		g.setColor(Color.black);
-		g.fillRect(0,0,getWidth(),getHeight());
-		g.setColor(Color.yellow);
-		g.setFont(msgsFont);
-		g.drawString(msg, x, y);
-	}
-
-	private void victoryScreen(Graphics g)
-	// Display the victory screen.
-	{
-		String msg = "Great Job!";
-
-		int x = (getWidth() - metrics.stringWidth(msg))/2; 
-		int y = (getHeight() - metrics.getHeight())/2;
-		
-		g.setColor(Color.black);
-		g.fillRect(0,0,getWidth(),getHeight());
-		g.setColor(Color.yellow);
-		g.setFont(msgsFont);
-		g.drawString(msg, x, y);
-	}
 //==============================================================================
 
 
@@ -329,12 +484,45 @@ public class JClyde extends GameFrame implements KeyListener
 // Main method.
 //==============================================================================
 	public static void main(String args[])
-	// Set the period (time per frame update) and whether the game should be in
-	// windowed mode or full screen mode.
+	// Set the period (time per frame update), whether the game should be in
+	// windowed mode or full screen mode, whether rendering should be done
+	// on its own thread (and how often, with render=<fps>), whether to
+	// only repaint what changed (dirty), and whether to compose frames in
+	// parallel (banded).
 	{ 
-		boolean isWindowed = !(args.length == 1 && args[0].equals("fullscreen"));
+		boolean isWindowed = true;
+		boolean isThreaded = false;
+		boolean isDirty = false;
+		boolean isBanded = false;
+		int renderFps = 30;
+		
+		for (int i = 0; i < args.length; i++)
+		{
+			if (args[i].equals("fullscreen"))
+				isWindowed = false;
+			else if (args[i].equals("threaded"))
+				isThreaded = true;
+			else if (args[i].equals("dirty"))
+				isDirty = true;
+			else if (args[i].equals("banded"))
+				isBanded = true;
+			else if (args[i].startsWith("render="))
+			{
+				try
+				{
+					renderFps = Integer.parseInt(args[i].substring(7));
+					isThreaded = true;
+				}
+				catch (NumberFormatException e)
+				{
+					GameLog.warn("Incorrect render rate: " + args[i]);
+				}
+			}
+		}
 		
-		new JClyde(30, isWindowed);
+		JClyde game = new JClyde(30, isWindowed, isThreaded, renderFps);
+		game.setDirtyRendering(isDirty);
+		game.setBandedRendering(isBanded);
 	}
 //==============================================================================
 }
@@ -0,0 +1,99 @@
+package com.them.clyde;
+//==============================================================================
+// Date Created:		16 October 2026
+// Last Updated:		16 October 2026
+//
+// File Name:			Java2DRenderer.java
+// File Author:			M Matthew Hydock
+//
+// File Description:	A Renderer that draws straight to a java.awt.Graphics,
+//						the same way the game always has. Nothing is queued, so
+//						flush() and end() do nothing. Can be pointed at a new
+//						Graphics every frame with setGraphics().
+//==============================================================================
+
+import java.awt.*;
+import java.awt.image.*;
+
+public class Java2DRenderer implements Renderer
+{
+	private Graphics g;					// Where everything is drawn.
+	private int width;					// Size of the frame being drawn.
+	private int height;
+
+	public Java2DRenderer(Graphics g, int w, int h)
+	// Create a renderer that draws with the given Graphics.
+	{
+		setGraphics(g);
+
+		width = w;
+		height = h;
+	}
+
+//==============================================================================
+// Getters and setters.
+//==============================================================================
+	public void setGraphics(Graphics g)
+	// Change the Graphics drawn with.
+	{
+		this.g = g;
+	}
+
+	public Graphics getGraphics()
+	{
+		return g;
+	}
+
+	public int getWidth()
+	{
+		return width;
+	}
+
+	public int getHeight()
+	{
+		return height;
+	}
+//==============================================================================
+
+
+//==============================================================================
+// Renderer methods.
+//==============================================================================
+	public void begin(int w, int h)
+	// Start a frame; only the size is recorded.
+	{
+		width = w;
+		height = h;
+	}
+
+	public void end()
+	{
+	}
+
+	public void flush()
+	{
+	}
+
+	public void fillRect(int x, int y, int w, int h, Color c)
+	// Fill a rectangle with a solid color.
+	{
+		g.setColor(c);
+		g.fillRect(x,y,w,h);
+	}
+
+	public void drawImage(BufferedImage src, int sx, int sy, int w, int h, int dx, int dy, boolean mirrored)
+	// Copy part of an image. A mirrored copy is drawn by swapping the source
+	// x-coordinates.
+	{
+		if (!mirrored)
+			g.drawImage(src,dx,dy,dx+w,dy+h,sx,sy,sx+w,sy+h,null);
+		else
+			g.drawImage(src,dx,dy,dx+w,dy+h,sx+w,sy,sx,sy+h,null);
+	}
+
+	public void imageChanged(BufferedImage src)
+	// Images are drawn directly, so there is nothing to update.
+	{
+	}
+//==============================================================================
+}
@@ -0,0 +1,288 @@
+package com.them.clyde;
+//==============================================================================
+// Date Created:		16 October 2026
+// Last Updated:		16 October 2026
+//
+// File Name:			LayerCompositor.java
+// File Author:			M Matthew Hydock
+//
+// File Description:	Draws a set of GameLayers back to front, sorted by
+//						depth (deepest first), and moves them all with the
+//						camera at once.
+//
+//						Ribbons that sit next to each other in depth order and
+//						scroll at the same rate are merged into a single cached
+//						ribbon, so several parallax layers only cost one draw.
+//						Ribbons can only be merged if they repeat the same way,
+//						and line up along the directions they repeat in (same
+//						position and size), so the merged ribbon repeats the
+//						same as the originals.
+//
+//						Merged ribbons are a snapshot of their originals' images;
+//						call invalidate() if one of those images changes.
+//==============================================================================
+
+import java.awt.*;
+import java.awt.image.*;
+import java.util.*;
+
+public class LayerCompositor
+{
+	private ArrayList<GameLayer> layers;		// Layers as added.
+	private ArrayList<GameLayer> drawList;		// Layers to draw, back to front,
+												// with ribbons merged.
+	private boolean dirty;						// Draw list needs rebuilding.
+
+	private int xOffset;						// Camera offsets.
+	private int yOffset;
+
+	public LayerCompositor()
+	// Create an empty compositor.
+	{
+		layers = new ArrayList<GameLayer>();
+		drawList = new ArrayList<GameLayer>();
+		dirty = false;
+	}
+
+//==============================================================================
+// Layer management.
+//==============================================================================
+	public void add(GameLayer l)
+	// Add a layer. It will be drawn in order of its depth.
+	{
+		if (l != null && !layers.contains(l))
+		{
+			layers.add(l);
+			l.setOffsets(xOffset,yOffset);
+			dirty = true;
+		}
+	}
+
+	public void remove(GameLayer l)
+	// Remove a layer.
+	{
+		if (layers.remove(l))
+			dirty = true;
+	}
+
+	public int getNumberLayers()
+	// Return the number of layers added.
+	{
+		return layers.size();
+	}
+
+	public GameLayer getLayer(int i)
+	{
+		return layers.get(i);
+	}
+
+	public int getNumberDrawn()
+	// Return the number of layers actually drawn, after merging.
+	{
+		rebuild();
+
+		return drawList.size();
+	}
+
+	public void invalidate()
+	// Rebuild the draw list and merged ribbons before the next draw. Needed if
+	// a layer's depth, position, or image changes.
+	{
+		dirty = true;
+	}
+//==============================================================================
+
+
+//==============================================================================
+// Camera and drawing methods.
+//==============================================================================
+	public void setOffsets(int x, int y)
+	// Move the camera. Every layer gets the offsets, scaled by its own
+	// move factor.
+	{
+		xOffset = x;
+		yOffset = y;
+
+		for (int i = 0; i < layers.size(); i++)
+			layers.get(i).setOffsets(x,y);
+		for (int i = 0; i < drawList.size(); i++)
+			drawList.get(i).setOffsets(x,y);
+	}
+
+	public int getXOffset()
+	{
+		return xOffset;
+	}
+
+	public int getYOffset()
+	{
+		return yOffset;
+	}
+
+	public void display(Graphics g)
+	// Draw every layer, back to front, with the current offsets.
+	{
+		rebuild();
+
+		for (int i = 0; i < drawList.size(); i++)
+			drawList.get(i).display(g);
+	}
+
+	public void display(Graphics g, int x, int y)
+	// Draw every layer, back to front, as they would be with the camera
+	// offsets (x,y), without changing any of the layers. Ribbons are drawn
+	// with the given offsets; other layers are drawn with their own.
+	{
+		rebuild();
+
+		for (int i = 0; i < drawList.size(); i++)
+		{
+			GameLayer l = drawList.get(i);
+
+			if (l instanceof Ribbon)
+				((Ribbon)l).display(g,x,y);
+			else
+				l.display(g);
+		}
+	}
+
+	public void display(Renderer r)
+	// Draw every layer with a Renderer, back to front, with the current
+	// offsets.
+	{
+		rebuild();
+
+		for (int i = 0; i < drawList.size(); i++)
+			drawList.get(i).display(r);
+	}
+
+	public void display(Renderer r, int x, int y)
+	// Draw every layer with a Renderer, as they would be with the camera
+	// offsets (x,y).
+	{
+		rebuild();
+
+		for (int i = 0; i < drawList.size(); i++)
+		{
+			GameLayer l = drawList.get(i);
+
+			if (l instanceof Ribbon)
+				((Ribbon)l).display(r,x,y);
+			else
+				l.display(r);
+		}
+	}
+//==============================================================================
+
+
+//==============================================================================
+// Draw list construction.
+//==============================================================================
+	public void rebuild()
+	// Sort the layers back to front, and merge runs of compatible ribbons, if
+	// anything changed. Done before drawing anyway, but should be called
+	// ahead of time if drawing happens on another thread.
+	{
+		if (!dirty)
+			return;
+
+		ArrayList<GameLayer> sorted = new ArrayList<GameLayer>(layers);
+
+		// Deepest first; equal depths keep the order they were added in.
+		Collections.sort(sorted,new Comparator<GameLayer>()
+		{
+			public int compare(GameLayer a, GameLayer b)
+			{
+				return Double.compare(b.getDepth(),a.getDepth());
+			}
+		});
+
+		drawList.clear();
+
+		int i = 0;
+		while (i < sorted.size())
+		{
+			// Find the run of ribbons that can be merged with this one.
+			int j = i+1;
+			while (j < sorted.size() && canMerge(sorted.get(i),sorted.get(j)))
+				j++;
+
+			if (j - i > 1)
+				drawList.add(merge(sorted.subList(i,j)));
+			else
+				drawList.add(sorted.get(i));
+
+			i = j;
+		}
+
+		dirty = false;
+	}
+
+	private boolean canMerge(GameLayer a, GameLayer b)
+	// Whether two layers are ribbons that can be drawn as one.
+	{
+		if (!(a instanceof Ribbon) || !(b instanceof Ribbon))
+			return false;
+
+		Ribbon r1 = (Ribbon)a;
+		Ribbon r2 = (Ribbon)b;
+
+		if (r1.getImage().isBroken() || r2.getImage().isBroken())
+			return false;
+		if (r1.getMoveFactor() != r2.getMoveFactor())
+			return false;
+		if (r1.isHorizontalRepeat() != r2.isHorizontalRepeat() ||
+			r1.isVerticalRepeat() != r2.isVerticalRepeat())
+			return false;
+
+		// Along a repeating direction, both must repeat in step.
+		if (r1.isHorizontalRepeat() &&
+			(r1.getWidth() != r2.getWidth() || r1.getXPos() != r2.getXPos()))
+			return false;
+		if (r1.isVerticalRepeat() &&
+			(r1.getHeight() != r2.getHeight() || r1.getYPos() != r2.getYPos()))
+			return false;
+
+		return true;
+	}
+
+	private Ribbon merge(java.util.List<GameLayer> run)
+	// Draw a run of compatible ribbons, back to front, into one image, and
+	// make a ribbon out of it.
+	{
+		Ribbon first = (Ribbon)run.get(0);
+
+		// Area covered by all of the ribbons.
+		int x1 = Integer.MAX_VALUE, y1 = Integer.MAX_VALUE;
+		int x2 = Integer.MIN_VALUE, y2 = Integer.MIN_VALUE;
+		for (int i = 0; i < run.size(); i++)
+		{
+			Ribbon r = (Ribbon)run.get(i);
+			x1 = Math.min(x1,r.getXPos());
+			y1 = Math.min(y1,r.getYPos());
+			x2 = Math.max(x2,r.getXPos()+r.getWidth());
+			y2 = Math.max(y2,r.getYPos()+r.getHeight());
+		}
+
+		BufferedImage strip = GameImage.createCompatibleImage(x2-x1,y2-y1,Transparency.TRANSLUCENT);
+		Graphics2D g2d = strip.createGraphics();
+		for (int i = 0; i < run.size(); i++)
+		{
+			Ribbon r = (Ribbon)run.get(i);
+			r.getImage().draw(g2d,r.getXPos()-x1,r.getYPos()-y1);
+		}
+		g2d.dispose();
+
+		Ribbon merged = new Ribbon(	new GameImage(strip),0,first.isHorizontalRepeat(),
+									first.isVerticalRepeat(),first.getParent());
+		merged.setCamera(first.getCamera());
+		merged.setDepth(first.getDepth());
+		merged.setPosition(x1,y1);
+		merged.setOffsets(xOffset,yOffset);
+
+		GameLog.debug("Merged " + run.size() + " ribbons at depth " + first.getDepth());
+
+		return merged;
+	}
+//==============================================================================
+}
@@ -0,0 +1,554 @@
+package com.them.clyde;
+//==============================================================================
+// Date Created:		16 October 2026
+// Last Updated:		16 October 2026
+//
+// File Name:			MappedTileGrid.java
+// File Author:			M Matthew Hydock
+//
+// File Description:	A TileGrid whose tile ids are kept on disk, for levels
+//						too big to hold in memory. The grid file is split into
+//						square chunks of cells, each stored contiguously, and
+//						a chunk is only mapped into memory (FileChannel.map())
+//						when one of its cells is used. At most a budget of
+//						chunks is kept mapped; when another is needed, the
+//						least recently used one is let go. The camera asks for
+//						the chunks around it ahead of time (see prefetch()), so
+//						they are usually mapped before they are drawn.
+//
+//						A chunk that is let go is unmapped straight away
+//						(through sun.misc.Unsafe.invokeCleaner()), rather than
+//						whenever the garbage collector gets to it; otherwise a
+//						camera sweeping a large level could run out of address
+//						space long before the collector noticed. If that isn't
+//						available, chunks are left for the collector.
+//
+//						The file is only ever read. A chunk with a changed cell
+//						(a removed tile, say) is copied into memory and kept
+//						there for good, so changes are never lost to eviction,
+//						and the level file itself is never changed.
+//
+//						Opening a grid reads it through once, to find its
+//						active cells (see TileGrid).
+//
+//						File layout (big-endian):
+//							int		magic ("CLGD")
+//							int		version
+//							int		rows, columns, chunk size, number of kinds
+//							int[]	cells of each kind, empty first
+//							short[]	the chunks, row by row, each chunk's
+//									cells row by row (padded at the edges)
+//
+//						Grid files are written with write(), or from a text
+//						map with the main method:
+//
+//							java com.them.clyde.MappedTileGrid <map> <grid>
+//								[chunk=<n>] [repeat=<columns>x<rows>]
+//
+//						where repeat copies the map's grid side by side, to
+//						make very large test levels.
+//==============================================================================
+
+import java.io.*;
+import java.lang.reflect.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.util.*;
+
+public class MappedTileGrid extends TileGrid
+{
+	private static final int MAGIC = 0x434C4744;
+	private static final int VERSION = 1;
+
+	public static final int DEFAULT_CHUNK_SIZE = 64;	// Cells along a side.
+	public static final int DEFAULT_BUDGET = 256;		// Chunks kept mapped.
+
+	private RandomAccessFile file;
+	private FileChannel channel;
+	private long dataStart;						// Where the chunks begin.
+
+	private int chunkSize;
+	private int numChunkCols;
+	private int budget;
+
+	private LinkedHashMap<Integer,Chunk> mapped;		// In LRU order.
+	private HashMap<Integer,short[]> changed;			// Never evicted.
+
+	private int lastChunk;						// Chunk used last, to skip
+	private ShortBuffer lastMapped;				// the lookups in a row.
+	private short[] lastChanged;
+
+	private long loads;							// Chunks mapped so far.
+	private long evictions;						// Chunks let go so far.
+
+	// Unmaps a buffer immediately, if the JVM allows it.
+	private static Object unsafe;
+	private static Method invokeCleaner;
+
+	static
+	{
+		try
+		{
+			Class<?> c = Class.forName("sun.misc.Unsafe");
+			Field f = c.getDeclaredField("theUnsafe");
+			f.setAccessible(true);
+			unsafe = f.get(null);
+			invokeCleaner = c.getMethod("invokeCleaner",ByteBuffer.class);
+		}
+		catch (Exception e)
+		{
+			GameLog.warn("Can't unmap tile grid chunks; leaving them to the garbage collector.");
+			invokeCleaner = null;
+		}
+	}
+
+	private static class Chunk
+	// A mapped chunk, and a view of it as shorts.
+	{
+		MappedByteBuffer bytes;
+		ShortBuffer cells;
+	}
+
+	public MappedTileGrid(String path, ArrayList<Tile> list, int maxChunks) throws IOException
+	// Open a grid file, keeping no more than maxChunks chunks mapped at once.
+	{
+		this(path,readHeader(path),list,maxChunks);
+	}
+
+	private MappedTileGrid(String path, int[] header, ArrayList<Tile> list, int maxChunks) throws IOException
+	// Open a grid file whose header has already been read.
+	{
+		super(header[0],header[1],list,false);
+
+		int numTypes = header[3];
+		if (numTypes != list.size())
+			throw new IOException(	"Grid " + path + " uses " + numTypes + " kinds of tile, but " +
+									list.size() + " were loaded.");
+
+		chunkSize = header[2];
+		numChunkCols = (getNumColumns()+chunkSize-1)/chunkSize;
+		budget = Math.max(1,maxChunks);
+		dataStart = 4*(6+numTypes+1);
+
+		for (int id = 0; id <= numTypes; id++)
+			setCount(id,header[4+id]);
+
+		file = new RandomAccessFile(path,"r");
+		channel = file.getChannel();
+
+		mapped = new LinkedHashMap<Integer,Chunk>(16,0.75f,true)
+		{
+			protected boolean removeEldestEntry(Map.Entry<Integer,Chunk> eldest)
+			{
+				if (size() <= budget)
+					return false;
+
+				if (eldest.getKey() == lastChunk)
+					lastMapped = null;
+				unmap(eldest.getValue());
+				evictions++;
+
+				return true;
+			}
+		};
+		changed = new HashMap<Integer,short[]>();
+		lastChunk = -1;
+
+		findActiveCells();
+
+		GameLog.info(	"Mapped " + getNumRows() + "x" + getNumColumns() + " tile grid " + path +
+						" (" + chunkSize + "x" + chunkSize + " chunks, " + budget + " kept).");
+	}
+
+//==============================================================================
+// Getters.
+//==============================================================================
+	public int getChunkSize()
+	{
+		return chunkSize;
+	}
+
+	public int getBudget()
+	// Return the most chunks kept mapped at once.
+	{
+		return budget;
+	}
+
+	public synchronized int getNumberMapped()
+	// Return the number of chunks mapped right now.
+	{
+		return mapped.size();
+	}
+
+	public synchronized int getNumberChanged()
+	// Return the number of chunks copied into memory because they changed.
+	{
+		return changed.size();
+	}
+
+	public synchronized long getNumberLoads()
+	// Return the number of times a chunk has been mapped.
+	{
+		return loads;
+	}
+
+	public synchronized long getNumberEvictions()
+	// Return the number of times a chunk has been let go.
+	{
+		return evictions;
+	}
+//==============================================================================
+
+
+//==============================================================================
+// Storage methods. Synchronized, since a render thread may read cells while
+// the game thread updates them.
+//==============================================================================
+	protected synchronized int getCell(int cell)
+	// Read a cell's id from its chunk, mapping the chunk if needed.
+	{
+		int row = cell/getNumColumns();
+		int col = cell%getNumColumns();
+		int chunk = (row/chunkSize)*numChunkCols + col/chunkSize;
+		int i = (row%chunkSize)*chunkSize + col%chunkSize;
+
+		if (chunk != lastChunk || (lastMapped == null && lastChanged == null))
+			findChunk(chunk);
+
+		return (lastChanged != null)?lastChanged[i]:lastMapped.get(i);
+	}
+
+	protected synchronized void putCell(int cell, int id)
+	// Change a cell's id. Its chunk is copied into memory first, if it hasn't
+	// been already.
+	{
+		int row = cell/getNumColumns();
+		int col = cell%getNumColumns();
+		int chunk = (row/chunkSize)*numChunkCols + col/chunkSize;
+		int i = (row%chunkSize)*chunkSize + col%chunkSize;
+
+		short[] copy = changed.get(chunk);
+		if (copy == null)
+		{
+			Chunk c = mapped.remove(chunk);
+			if (c == null)
+				c = mapChunk(chunk);
+
+			copy = new short[chunkSize*chunkSize];
+			c.cells.get(0,copy);
+			unmap(c);
+
+			changed.put(chunk,copy);
+			lastChunk = -1;
+		}
+
+		copy[i] = (short)id;
+	}
+
+	public synchronized void prefetch(int[] range)
+	// Map the chunks covering the given range of cells, and those around
+	// them, if they fit in the budget, most important (the range itself)
+	// last, so they are the last to be evicted.
+	{
+		int c1 = range[0]/chunkSize;
+		int r1 = range[1]/chunkSize;
+		int c2 = Math.max(c1,range[2])/chunkSize;
+		int r2 = Math.max(r1,range[3])/chunkSize;
+		int numChunkRows = (getNumRows()+chunkSize-1)/chunkSize;
+
+		// Grow the window by a chunk on every side, if there is room for it.
+		if ((c2-c1+3)*(r2-r1+3) <= budget)
+		{
+			for (int r = Math.max(0,r1-1); r <= Math.min(numChunkRows-1,r2+1); r++)
+				for (int c = Math.max(0,c1-1); c <= Math.min(numChunkCols-1,c2+1); c++)
+					if (r < r1 || r > r2 || c < c1 || c > c2)
+						findChunk(r*numChunkCols+c);
+		}
+
+		for (int r = r1; r <= r2 && r < numChunkRows; r++)
+			for (int c = c1; c <= c2 && c < numChunkCols; c++)
+				findChunk(r*numChunkCols+c);
+	}
+
+	public synchronized void close()
+	// Let go of every mapped chunk, and close the file. Changed chunks are
+	// kept, but nothing else can be read.
+	{
+		for (Chunk c : mapped.values())
+			unmap(c);
+		mapped.clear();
+		lastChunk = -1;
+		lastMapped = null;
+		lastChanged = null;
+
+		try
+		{
+			channel.close();
+			file.close();
+		}
+		catch (IOException e)
+		{
+			GameLog.warn("Can't close tile grid: " + e);
+		}
+	}
+//==============================================================================
+
+
+//==============================================================================
+// Chunk methods.
+//==============================================================================
+	private void findChunk(int chunk)
+	// Make the given chunk the last one used, mapping it if needed.
+	{
+		lastChunk = chunk;
+		lastChanged = changed.get(chunk);
+		lastMapped = null;
+
+		if (lastChanged != null)
+			return;
+
+		Chunk c = mapped.get(chunk);
+		if (c == null)
+		{
+			c = mapChunk(chunk);
+			mapped.put(chunk,c);
+		}
+
+		lastMapped = c.cells;
+	}
+
+	private void findActiveCells() throws IOException
+	// Find every cell holding an active kind of tile, a chunk at a time, since
+	// the cells weren't filled in with setType().
+	{
+		int n = 0;
+		for (int id = 1; id <= getNumberTypes(); id++)
+			if (isActiveType(id))
+				n += getNumberCells(id);
+
+		if (n == 0)
+			return;
+
+		int[] cells = new int[n];
+		int k = 0;
+		int numChunkRows = (getNumRows()+chunkSize-1)/chunkSize;
+
+		for (int r = 0; r < numChunkRows; r++)
+			for (int c = 0; c < numChunkCols; c++)
+			{
+				findChunk(r*numChunkCols+c);
+
+				int rows = Math.min(chunkSize,getNumRows()-r*chunkSize);
+				int cols = Math.min(chunkSize,getNumColumns()-c*chunkSize);
+
+				for (int i = 0; i < rows; i++)
+					for (int j = 0; j < cols; j++)
+						if (isActiveType(lastMapped.get(i*chunkSize+j)))
+						{
+							if (k == n)
+								throw new IOException("Grid has more active cells than its header says.");
+
+							cells[k++] = (r*chunkSize+i)*getNumColumns() + c*chunkSize+j;
+						}
+			}
+
+		setActiveCells(cells,k);
+	}
+
+	private Chunk mapChunk(int chunk)
+	// Map a chunk of the file into memory.
+	{
+		long bytes = 2L*chunkSize*chunkSize;
+
+		try
+		{
+			Chunk c = new Chunk();
+			c.bytes = channel.map(FileChannel.MapMode.READ_ONLY,dataStart+chunk*bytes,bytes);
+			c.cells = c.bytes.asShortBuffer();
+			loads++;
+
+			return c;
+		}
+		catch (IOException e)
+		{
+			GameLog.error("Can't read chunk " + chunk + " of the tile grid: " + e);
+			GameLog.flush();
+			System.exit(1);
+			return null;
+		}
+	}
+
+	private static void unmap(Chunk c)
+	// Unmap a chunk now, if possible. It must not be read again.
+	{
+		if (invokeCleaner == null)
+			return;
+
+		try
+		{
+			invokeCleaner.invoke(unsafe,c.bytes);
+		}
+		catch (Exception e)
+		{
+			invokeCleaner = null;
+			GameLog.warn("Can't unmap tile grid chunks: " + e);
+		}
+	}
+
+	private static int[] readHeader(String path) throws IOException
+	// Read {rows, columns, chunk size, kinds, counts...} from a grid file.
+	{
+		DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(path)));
+
+		try
+		{
+			if (in.readInt() != MAGIC)
+				throw new IOException(path + " is not a tile grid.");
+			if (in.readInt() != VERSION)
+				throw new IOException(path + " is from a different version of the game.");
+
+			int rows = in.readInt();
+			int cols = in.readInt();
+			int size = in.readInt();
+			int numTypes = in.readInt();
+			if (rows <= 0 || cols <= 0 || size <= 0 || numTypes < 0 || numTypes > Short.MAX_VALUE)
+				throw new IOException(path + " has a bad header.");
+
+			int[] header = new int[4+numTypes+1];
+			header[0] = rows;
+			header[1] = cols;
+			header[2] = size;
+			header[3] = numTypes;
+			for (int id = 0; id <= numTypes; id++)
+				header[4+id] = in.readInt();
+
+			return header;
+		}
+		finally
+		{
+			in.close();
+		}
+	}
+//==============================================================================
+
+
+//==============================================================================
+// Writing methods.
+//==============================================================================
+	public static void write(TileGrid g, String path, int size, int repeatX, int repeatY) throws IOException
+	// Write a grid to a file, in chunks of size x size cells, repeating it
+	// repeatX times across and repeatY times down. Only the ids are written;
+	// tiles belonging to single cells become their kind's shared tile.
+	{
+		int rows = g.getNumRows()*repeatY;
+		int cols = g.getNumColumns()*repeatX;
+		int numTypes = g.getNumberTypes();
+
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(path)));
+
+		try
+		{
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeInt(rows);
+			out.writeInt(cols);
+			out.writeInt(size);
+			out.writeInt(numTypes);
+
+			// Count every kind of tile, empty included.
+			long[] counts = new long[numTypes+1];
+			for (int i = 0; i < g.getNumRows(); i++)
+				for (int j = 0; j < g.getNumColumns(); j++)
+					counts[g.getTypeId(i,j)] += (long)repeatX*repeatY;
+
+			for (int id = 0; id <= numTypes; id++)
+			{
+				if (counts[id] > Integer.MAX_VALUE)
+					throw new IOException("Grid is too big: " + rows + "x" + cols);
+				out.writeInt((int)counts[id]);
+			}
+
+			// The chunks, padded with empty cells past the edges.
+			int numChunkRows = (rows+size-1)/size;
+			int numChunkCols = (cols+size-1)/size;
+			for (int cr = 0; cr < numChunkRows; cr++)
+				for (int cc = 0; cc < numChunkCols; cc++)
+					for (int i = cr*size; i < (cr+1)*size; i++)
+						for (int j = cc*size; j < (cc+1)*size; j++)
+						{
+							if (i < rows && j < cols)
+								out.writeShort(g.getTypeId(i%g.getNumRows(),j%g.getNumColumns()));
+							else
+								out.writeShort(EMPTY);
+						}
+		}
+		finally
+		{
+			out.close();
+		}
+	}
+//==============================================================================
+
+
+//==============================================================================
+// Main method.
+//==============================================================================
+	public static void main(String args[])
+	// Convert the grid of a text map into a grid file.
+	{
+		System.setProperty("java.awt.headless","true");
+
+		if (args.length < 2)
+		{
+			GameLog.error("Usage: MappedTileGrid <map> <grid> [chunk=<n>] [repeat=<columns>x<rows>]");
+			GameLog.flush();
+			System.exit(1);
+		}
+
+		int size = DEFAULT_CHUNK_SIZE;
+		int repeatX = 1;
+		int repeatY = 1;
+
+		for (int i = 2; i < args.length; i++)
+		{
+			try
+			{
+				if (args[i].startsWith("chunk="))
+					size = Math.max(1,Integer.parseInt(args[i].substring(6)));
+				else if (args[i].startsWith("repeat="))
+				{
+					String[] counts = args[i].substring(7).split("x");
+					repeatX = Math.max(1,Integer.parseInt(counts[0]));
+					repeatY = Math.max(1,Integer.parseInt(counts[1]));
+				}
+				else
+					GameLog.warn("Unknown option: " + args[i]);
+			}
+			catch (RuntimeException e)
+			{
+				GameLog.warn("Incorrect option: " + args[i]);
+			}
+		}
+
+		TileMapFactory loader = TileMapFactory.getInstanceOf();
+		loader.setInputFile(args[0]);
+		loader.setParent(HeadlessClyde.createViewport(640,480));
+		TileMap map = loader.produceTileMap();
+
+		try
+		{
+			write(map.getTileGrid(),args[1],size,repeatX,repeatY);
+		}
+		catch (IOException e)
+		{
+			GameLog.error("Can't write " + args[1] + ": " + e);
+			GameLog.flush();
+			System.exit(1);
+		}
+
+		GameLog.info(	"Wrote a " + map.getNumRows()*repeatY + "x" + map.getNumColumns()*repeatX +
+						" grid to " + args[1] + ".");
+		GameLog.flush();
+	}
+//==============================================================================
+}
@@ -0,0 +1,857 @@
+package com.them.clyde;
+//==============================================================================
+// Date Created:		16 October 2026
+// Last Updated:		16 October 2026
+//
+// File Name:			PathFinder.java
+// File Author:			M Matthew Hydock
+//
+// File Description:	Finds the cheapest way for Clyde to get around a
+//						TileMap, for hints and for checking levels. Clyde is
+//						taken to be a tile in size, and can only be somewhere
+//						he can stand: an empty cell with a solid one under it.
+//						From there he can:
+//
+//							walk to the next cell, if he can stand in it;
+//							step off into the next cell, and fall;
+//							jump: rise up to a few rows, carry on sideways
+//							for up to a few columns, and fall.
+//
+//						How far a jump reaches is worked out from ClydeSprite's
+//						physics (see ClydeSprite.getJumpRise()), for the map's
+//						tile size and the length of a game tick, so a level
+//						that asks more of Clyde than that is reported as having
+//						no way through.
+//
+//						Every step costs Clyde energy (see ClydeSprite.
+//						takeDamage()), so a move costs WALK_COST for each
+//						column it crosses, and a jump JUMP_COST more. Falling
+//						is free.
+//
+//						Paths are found with A*, pruned the way jump point
+//						search prunes a grid: walking along a platform only
+//						stops at cells with a way off the platform (a step
+//						off, or a jump that lands elsewhere), or the goal,
+//						since the cells in between offer nothing that walking
+//						doesn't. The open set is a binary heap in a pair of
+//						int arrays, and the costs and parents of cells are kept
+//						in arrays reused by every search.
+//
+//						For hints, a distance field can also be made for a
+//						goal: the cost of the cheapest way there from every
+//						cell, and the next cell to go to, found by running
+//						Dijkstra's algorithm backwards from the goal. Fields
+//						are cached (see MAX_FIELDS). When a cell of the map
+//						becomes solid or not solid (the TileMap keeps a log),
+//						only the cells whose moves could pass through it, and
+//						the cells whose way to the goal went through those,
+//						are worked out again.
+//==============================================================================
+
+import java.util.*;
+
+public class PathFinder
+{
+	public static final int WALK_COST = 10;				// Crossing a column.
+	public static final int JUMP_COST = 10;				// Leaving the ground.
+
+	// Length of a tick, in nanosecs, if the map has no clock (30 updates per
+	// second, as in HeadlessClyde).
+	public static final long DEFAULT_TICK_DURATION = 1000000000L/30;
+
+	public static final int MAX_FIELDS = 4;				// Distance fields kept.
+
+	private static final int INFINITE = Integer.MAX_VALUE;
+
+	private TileMap tilemap;
+	private int numRows;
+	private int numCols;
+
+	private int jumpHeight;
+	private int jumpLength;
+
+	// Scratch space for searches, allocated when first needed. A cell's cost
+	// and parent only count if it is marked with the current search.
+	private int[] cost;
+	private int[] parent;
+	private int[] mark;
+	private int search;
+
+	private byte[] jumpPoints;				// Per cell: 0 not known yet, 1 not
+											// a jump point, 2 a jump point.
+
+	// Open set: a binary heap of cells and their keys.
+	private int[] heapCells;
+	private int[] heapKeys;
+	private int heapSize;
+
+	private int[] stack;					// Cells left to visit.
+
+	private Moves moves;					// Moves being looked at, and moves
+	private Moves probe;					// for finding jump points.
+
+	private int expanded;					// Cells expanded by the last search.
+	private int pathCost;					// Cost of the last path found.
+
+	// Distance fields by goal cell, least recently used first.
+	private LinkedHashMap<Integer,Field> fields;
+	private long changesSeen;				// Changes to the map caught up on.
+	private int resetsSeen;
+
+	private static class Moves
+	// A list of moves, as the cells moved to (or from) and their costs.
+	{
+		int[] cells = new int[32];
+		int[] costs = new int[32];
+		int size;
+
+		void add(int cell, int c)
+		{
+			if (size == cells.length)
+			{
+				cells = Arrays.copyOf(cells,size*2);
+				costs = Arrays.copyOf(costs,size*2);
+			}
+
+			cells[size] = cell;
+			costs[size] = c;
+			size++;
+		}
+	}
+
+	private static class Field
+	// The cost of the cheapest way to a goal from every cell, and the next
+	// cell on the way.
+	{
+		int goal;
+		int[] dist;
+		int[] next;
+	}
+
+	public PathFinder(TileMap m)
+	// Create a path finder for a map, with the jump Clyde makes when the game
+	// runs on the map's clock.
+	{
+		tilemap = m;
+		numRows = m.getNumRows();
+		numCols = m.getNumColumns();
+
+		heapCells = new int[64];
+		heapKeys = new int[64];
+		stack = new int[64];
+		moves = new Moves();
+		probe = new Moves();
+
+		fields = new LinkedHashMap<Integer,Field>(16,0.75f,true)
+		{
+			protected boolean removeEldestEntry(Map.Entry<Integer,Field> eldest)
+			{
+				return size() > MAX_FIELDS;
+			}
+		};
+
+		if (m.getClock() != null)
+			setTickDuration(m.getClock().getTickDuration());
+		else
+			setTickDuration(DEFAULT_TICK_DURATION);
+
+		changesSeen = m.getNumberSolidChanges();
+		resetsSeen = m.getNumberSolidResets();
+	}
+
+//==============================================================================
+// Getters and setters.
+//==============================================================================
+	public TileMap getTileMap()
+	{
+		return tilemap;
+	}
+
+	public void setJumpSize(int height, int length)
+	// Set how many rows a jump can rise, and how many columns it can cross.
+	// Every cached distance field is thrown away.
+	{
+		jumpHeight = Math.max(0,height);
+		jumpLength = Math.max(1,length);
+
+		fields.clear();
+		if (jumpPoints != null)
+			Arrays.fill(jumpPoints,(byte)0);
+	}
+
+	public void setTickDuration(long d)
+	// Set the jump size to how far Clyde really jumps, in whole tiles, if the
+	// game is updated every d nanosecs.
+	{
+		int size = tilemap.getTileSize();
+
+		setJumpSize((int)(ClydeSprite.getJumpRise(d)/size),(int)(ClydeSprite.getJumpReach(d)/size));
+	}
+
+	public int getJumpHeight()
+	{
+		return jumpHeight;
+	}
+
+	public int getJumpLength()
+	{
+		return jumpLength;
+	}
+
+	public int getNumberExpanded()
+	// Return the number of cells expanded by the last search.
+	{
+		return expanded;
+	}
+
+	public int getPathCost()
+	// Return the cost of the last path found, or -1 if there was none.
+	{
+		return pathCost;
+	}
+
+	public int getNumberFields()
+	// Return the number of distance fields cached.
+	{
+		return fields.size();
+	}
+//==============================================================================
+
+
+//==============================================================================
+// Path methods.
+//==============================================================================
+	public int[] findPath(int fromX, int fromY, int toX, int toY)
+	// Find the cheapest way from one cell to another, as the cells (row*columns
+	// + column) at which Clyde has to do something other than keep walking,
+	// from the first to the last. Both cells are first dropped to where Clyde
+	// would land. Returns null if there is no way there.
+	{
+		sync();
+		allocate();
+
+		pathCost = -1;
+		expanded = 0;
+
+		int start = drop(fromX,fromY);
+		int goal = drop(toX,toY);
+		if (start < 0 || goal < 0)
+			return null;
+
+		if (++search == 0)
+		// Marks have wrapped around; start them over.
+		{
+			Arrays.fill(mark,0);
+			search = 1;
+		}
+
+		heapSize = 0;
+		mark[start] = search;
+		cost[start] = 0;
+		parent[start] = -1;
+		push(start,estimate(start,goal));
+
+		while (heapSize > 0)
+		{
+			int key = heapKeys[0];
+			int u = pop();
+
+			// A cell pushed again with a lower cost is left behind in the heap.
+			if (key != cost[u]+estimate(u,goal))
+				continue;
+
+			if (u == goal)
+			{
+				pathCost = cost[goal];
+				return tracePath(goal);
+			}
+
+			expanded++;
+			successors(u,goal,moves);
+
+			for (int i = 0; i < moves.size; i++)
+			{
+				int v = moves.cells[i];
+				int g = cost[u]+moves.costs[i];
+
+				if (mark[v] != search || g < cost[v])
+				{
+					mark[v] = search;
+					cost[v] = g;
+					parent[v] = u;
+					push(v,g+estimate(v,goal));
+				}
+			}
+		}
+
+		return null;
+	}
+
+	public int[] findExitPath()
+	// Find the cheapest way from the start of the map to its exit.
+	{
+		return findPath(tilemap.getStartX(),tilemap.getStartY(),tilemap.getExitX(),tilemap.getExitY());
+	}
+
+	private int[] tracePath(int goal)
+	// Follow the parents back from the goal, and return the cells in order.
+	{
+		int n = 0;
+		for (int v = goal; v >= 0; v = parent[v])
+			n++;
+
+		int[] path = new int[n];
+		for (int v = goal; v >= 0; v = parent[v])
+			path[--n] = v;
+
+		return path;
+	}
+
+	private int estimate(int cell, int goal)
+	// A lower bound on the cost from a cell to the goal: every move costs at
+	// least WALK_COST for each column it crosses.
+	{
+		return WALK_COST*Math.abs(cell%numCols - goal%numCols);
+	}
+
+	private void successors(int cell, int goal, Moves out)
+	// The moves worth trying from a cell: every move off its platform, and a
+	// walk to the nearest jump point (or the goal) each way along it.
+	{
+		forward(cell,out,true);
+
+		int r = cell/numCols;
+		int c = cell%numCols;
+
+		for (int d = -1; d <= 1; d += 2)
+			for (int j = c+d; canStand(r,j); j += d)
+			{
+				int v = r*numCols + j;
+
+				if (v == goal || isJumpPoint(v))
+				{
+					out.add(v,WALK_COST*Math.abs(j-c));
+					break;
+				}
+			}
+	}
+
+	private boolean isJumpPoint(int cell)
+	// Whether Clyde can get off his platform from a cell, other than by
+	// walking to its end. Remembered until the map around it changes.
+	{
+		if (jumpPoints[cell] == 0)
+		{
+			forward(cell,probe,true);
+			jumpPoints[cell] = (byte)((probe.size > 0)?2:1);
+		}
+
+		return jumpPoints[cell] == 2;
+	}
+//==============================================================================
+
+
+//==============================================================================
+// Distance field methods.
+//==============================================================================
+	public int getDistance(int fromX, int fromY, int toX, int toY)
+	// Return the cost of the cheapest way from one cell to another (both
+	// dropped to where Clyde would land), or -1 if there is no way. Uses a
+	// distance field for the goal, made and cached if there isn't one.
+	{
+		Field f = getField(toX,toY);
+		int start = drop(fromX,fromY);
+
+		if (f == null || start < 0 || f.dist[start] == INFINITE)
+			return -1;
+
+		return f.dist[start];
+	}
+
+	public int getNextStep(int fromX, int fromY, int toX, int toY)
+	// Return the next cell (row*columns + column) to go to, on the cheapest
+	// way from one cell to another, or -1 if there is no way (or Clyde is
+	// already there).
+	{
+		Field f = getField(toX,toY);
+		int start = drop(fromX,fromY);
+
+		if (f == null || start < 0)
+			return -1;
+
+		return f.next[start];
+	}
+
+	public int getExitDistance(int x, int y)
+	// Return the cost of the cheapest way from a cell to the exit.
+	{
+		return getDistance(x,y,tilemap.getExitX(),tilemap.getExitY());
+	}
+
+	public int getNextStepToExit(int x, int y)
+	// Return the next cell to go to on the cheapest way to the exit.
+	{
+		return getNextStep(x,y,tilemap.getExitX(),tilemap.getExitY());
+	}
+
+	private Field getField(int x, int y)
+	// Return the distance field for a goal, making it if needed.
+	{
+		sync();
+
+		int goal = drop(x,y);
+		if (goal < 0)
+			return null;
+
+		Field f = fields.get(goal);
+		if (f == null)
+		{
+			f = new Field();
+			f.goal = goal;
+			f.dist = new int[numRows*numCols];
+			f.next = new int[numRows*numCols];
+			Arrays.fill(f.dist,INFINITE);
+			Arrays.fill(f.next,-1);
+
+			heapSize = 0;
+			f.dist[goal] = 0;
+			push(goal,0);
+			settle(f);
+
+			fields.put(goal,f);
+		}
+
+		return f;
+	}
+
+	private void settle(Field f)
+	// Run Dijkstra's algorithm backwards, from the cells in the heap, until
+	// every cell's cost is final.
+	{
+		while (heapSize > 0)
+		{
+			int key = heapKeys[0];
+			int v = pop();
+
+			if (key != f.dist[v])
+				continue;
+
+			reverse(v,moves);
+
+			for (int i = 0; i < moves.size; i++)
+			{
+				int u = moves.cells[i];
+				int d = key+moves.costs[i];
+
+				if (d < f.dist[u])
+				{
+					f.dist[u] = d;
+					f.next[u] = v;
+					push(u,d);
+				}
+			}
+		}
+	}
+
+	private void repair(Field f, int top, int bottom, int left, int right)
+	// The moves out of the cells in the given block may have changed. Forget
+	// what is known about those cells, and about every cell whose way to the
+	// goal went through one of them, then work them out again from the cells
+	// around them, letting any improvement spread.
+	{
+		int n = 0;
+
+		for (int i = top; i <= bottom; i++)
+			for (int j = left; j <= right; j++)
+			{
+				int cell = i*numCols + j;
+				if (cell == f.goal)
+					continue;
+
+				f.dist[cell] = INFINITE;
+				f.next[cell] = -1;
+				n = pushStack(n,cell);
+			}
+
+		// Everything upstream of the block.
+		for (int k = 0; k < n; k++)
+		{
+			int w = stack[k];
+			reverse(w,moves);
+
+			for (int i = 0; i < moves.size; i++)
+			{
+				int u = moves.cells[i];
+
+				if (f.next[u] == w && f.dist[u] != INFINITE)
+				{
+					f.dist[u] = INFINITE;
+					f.next[u] = -1;
+					n = pushStack(n,u);
+				}
+			}
+		}
+
+		// Start each forgotten cell off from its neighbours that still know
+		// their way.
+		heapSize = 0;
+		for (int k = 0; k < n; k++)
+		{
+			int u = stack[k];
+			if (!canStand(u/numCols,u%numCols))
+				continue;
+
+			forward(u,moves,false);
+
+			for (int i = 0; i < moves.size; i++)
+			{
+				int v = moves.cells[i];
+
+				if (f.dist[v] != INFINITE && f.dist[v]+moves.costs[i] < f.dist[u])
+				{
+					f.dist[u] = f.dist[v]+moves.costs[i];
+					f.next[u] = v;
+				}
+			}
+
+			if (f.dist[u] != INFINITE)
+				push(u,f.dist[u]);
+		}
+
+		settle(f);
+	}
+
+	private void sync()
+	// Catch up with the changes made to the map since last time. If the map
+	// has been refreshed, or the log no longer goes back far enough, start
+	// over.
+	{
+		if (tilemap.getNumberSolidResets() != resetsSeen || changesSeen < tilemap.getFirstSolidChange())
+		// Anything could have changed.
+		{
+			resetsSeen = tilemap.getNumberSolidResets();
+			changesSeen = tilemap.getNumberSolidChanges();
+
+			fields.clear();
+			if (jumpPoints != null)
+				Arrays.fill(jumpPoints,(byte)0);
+
+			return;
+		}
+
+		while (changesSeen < tilemap.getNumberSolidChanges())
+			changed(tilemap.getSolidChange(changesSeen++));
+	}
+
+	private void changed(int cell)
+	// A cell has become solid, or not solid. The only moves that can pass
+	// through it, or land on it, start within a jump's length to either side,
+	// no more than a jump's height below it, and below the nearest solid cell
+	// above it.
+	{
+		int y = cell/numCols;
+		int x = cell%numCols;
+
+		int top = Math.max(0,tilemap.findSolidInColumn(x,y-1,0)+1);
+		int bottom = Math.min(numRows-1,y+jumpHeight);
+		int left = Math.max(0,x-jumpLength);
+		int right = Math.min(numCols-1,x+jumpLength);
+
+		if (jumpPoints != null)
+			for (int i = top; i <= bottom; i++)
+				for (int j = left; j <= right; j++)
+					jumpPoints[i*numCols + j] = 0;
+
+		Iterator<Field> it = fields.values().iterator();
+		while (it.hasNext())
+		{
+			Field f = it.next();
+
+			// The goal itself is gone; start over if it is asked for again.
+			if (!canStand(f.goal/numCols,f.goal%numCols))
+				it.remove();
+			else
+				repair(f,top,bottom,left,right);
+		}
+	}
+//==============================================================================
+
+
+//==============================================================================
+// Move methods.
+//==============================================================================
+	private boolean isEmpty(int r, int c)
+	// Whether a cell is inside the map, and not solid.
+	{
+		return r >= 0 && r < numRows && c >= 0 && c < numCols && !tilemap.isSolid(r,c);
+	}
+
+	public boolean canStand(int r, int c)
+	// Whether Clyde can stand in a cell: it is empty, and the one below isn't.
+	{
+		return isEmpty(r,c) && tilemap.isSolid(r+1,c);
+	}
+
+	private int land(int r, int c)
+	// The row Clyde lands in, falling from an empty cell, or -1 if he falls
+	// out of the map.
+	{
+		int floor = tilemap.findSolidInColumn(c,r,numRows-1);
+
+		return (floor < 0)?-1:floor-1;
+	}
+
+	private int drop(int x, int y)
+	// The cell Clyde would end up standing in, let go of at (x,y), or -1.
+	{
+		if (!isEmpty(y,x))
+			return -1;
+
+		int r = land(y,x);
+
+		return (r < 0)?-1:r*numCols + x;
+	}
+
+	private boolean onPlatform(int r, int c, int lr, int lc)
+	// Whether Clyde can walk from one cell to another.
+	{
+		if (lr != r)
+			return false;
+
+		for (int j = Math.min(c,lc); j <= Math.max(c,lc); j++)
+			if (!canStand(r,j))
+				return false;
+
+		return true;
+	}
+
+	private void forward(int cell, Moves out, boolean leaving)
+	// List the moves from a cell Clyde can stand in: a walk or a step off to
+	// either side, and every jump. If only moves leaving the platform are
+	// wanted, walks, and jumps landing back on the platform, are left out.
+	{
+		out.size = 0;
+
+		int r = cell/numCols;
+		int c = cell%numCols;
+
+		for (int d = -1; d <= 1; d += 2)
+		{
+			// Walk, or step off and fall.
+			if (isEmpty(r,c+d))
+			{
+				if (!canStand(r,c+d))
+				{
+					int l = land(r,c+d);
+					if (l >= 0)
+						out.add(l*numCols + c+d,WALK_COST);
+				}
+				else if (!leaving)
+					out.add(cell+d,WALK_COST);
+			}
+
+			// Jump: rise h rows, carry on k columns, and fall.
+			for (int h = 1; h <= jumpHeight && isEmpty(r-h,c); h++)
+				for (int k = 1; k <= jumpLength && isEmpty(r-h,c+d*k); k++)
+				{
+					int l = land(r-h,c+d*k);
+
+					if (l >= 0 && !(leaving && onPlatform(r,c,l,c+d*k)))
+						out.add(l*numCols + c+d*k,JUMP_COST+k*WALK_COST);
+				}
+		}
+	}
+
+	private void reverse(int cell, Moves out)
+	// List the moves into a cell Clyde can stand in; exactly the moves that
+	// forward() finds out of other cells.
+	{
+		out.size = 0;
+
+		int r = cell/numCols;
+		int c = cell%numCols;
+
+		if (!canStand(r,c))
+			return;
+
+		for (int d = -1; d <= 1; d += 2)
+		{
+			// Walk over from the side.
+			if (canStand(r,c-d))
+				out.add(cell-d,WALK_COST);
+
+			// Step off from higher up to the side, and fall down this column.
+			for (int r0 = r-1; isEmpty(r0,c); r0--)
+				if (canStand(r0,c-d))
+					out.add(r0*numCols + c-d,WALK_COST);
+
+			// Jump, carrying on along row g, and falling down this column.
+			for (int g = r; isEmpty(g,c); g--)
+				for (int k = 1; k <= jumpLength; k++)
+				{
+					int sc = c-d*k;
+
+					if (sc < 0 || sc >= numCols || (k > 1 && !isEmpty(g,c-d*(k-1))))
+						break;
+
+					for (int h = 1; h <= jumpHeight && isEmpty(g+h-1,sc); h++)
+						if (canStand(g+h,sc))
+							out.add((g+h)*numCols + sc,JUMP_COST+k*WALK_COST);
+				}
+		}
+	}
+//==============================================================================
+
+
+//==============================================================================
+// Scratch space methods.
+//==============================================================================
+	private void allocate()
+	// Make the per-cell scratch arrays, the first time they are needed.
+	{
+		if (cost != null)
+			return;
+
+		cost = new int[numRows*numCols];
+		parent = new int[numRows*numCols];
+		mark = new int[numRows*numCols];
+		jumpPoints = new byte[numRows*numCols];
+	}
+
+	private void push(int cell, int key)
+	// Add a cell to the heap.
+	{
+		if (heapSize == heapCells.length)
+		{
+			heapCells = Arrays.copyOf(heapCells,heapSize*2);
+			heapKeys = Arrays.copyOf(heapKeys,heapSize*2);
+		}
+
+		int i = heapSize++;
+		while (i > 0)
+		{
+			int p = (i-1)/2;
+			if (heapKeys[p] <= key)
+				break;
+
+			heapCells[i] = heapCells[p];
+			heapKeys[i] = heapKeys[p];
+			i = p;
+		}
+
+		heapCells[i] = cell;
+		heapKeys[i] = key;
+	}
+
+	private int pop()
+	// Take the cell with the lowest key off of the heap.
+	{
+		int top = heapCells[0];
+
+		heapSize--;
+		int cell = heapCells[heapSize];
+		int key = heapKeys[heapSize];
+
+		int i = 0;
+		while (2*i+1 < heapSize)
+		{
+			int child = 2*i+1;
+			if (child+1 < heapSize && heapKeys[child+1] < heapKeys[child])
+				child++;
+			if (heapKeys[child] >= key)
+				break;
+
+			heapCells[i] = heapCells[child];
+			heapKeys[i] = heapKeys[child];
+			i = child;
+		}
+
+		heapCells[i] = cell;
+		heapKeys[i] = key;
+
+		return top;
+	}
+
+	private int pushStack(int n, int cell)
+	// Add a cell to the stack, which holds n cells, and return its new size.
+	{
+		if (n == stack.length)
+			stack = Arrays.copyOf(stack,n*2);
+
+		stack[n] = cell;
+
+		return n+1;
+	}
+//==============================================================================
+
+
+//==============================================================================
+// Command line tool.
+//==============================================================================
+	public static void main(String args[])
+	// Find the cheapest way from the start of a map to its exit, and print it.
+	{
+		System.setProperty("java.awt.headless","true");
+
+		if (args.length < 1)
+		{
+			GameLog.error("Usage: PathFinder <map> [fps=<updates per second>] [jump=<height>x<length>]");
+			GameLog.flush();
+			System.exit(1);
+		}
+
+		TileMapFactory loader = TileMapFactory.getInstanceOf();
+		loader.setInputFile(args[0]);
+		loader.setParent(HeadlessClyde.createViewport(640,480));
+		TileMap map = loader.produceTileMap();
+
+		PathFinder finder = new PathFinder(map);
+
+		for (int i = 1; i < args.length; i++)
+		{
+			try
+			{
+				if (args[i].startsWith("fps="))
+					finder.setTickDuration(1000000000L/Integer.parseInt(args[i].substring(4)));
+				else if (args[i].startsWith("jump="))
+				{
+					String[] size = args[i].substring(5).split("x");
+					finder.setJumpSize(Integer.parseInt(size[0]),Integer.parseInt(size[1]));
+				}
+				else
+					GameLog.warn("Unknown option: " + args[i]);
+			}
+			catch (RuntimeException e)
+			{
+				GameLog.warn("Incorrect option: " + args[i]);
+			}
+		}
+
+		GameLog.info("Jump: " + finder.getJumpHeight() + "x" + finder.getJumpLength() + " tiles.");
+
+		long time = System.nanoTime();
+		int[] path = finder.findExitPath();
+		time = System.nanoTime()-time;
+
+		if (path == null)
+			GameLog.info("No way from the start to the exit.");
+		else
+		{
+			StringBuilder route = new StringBuilder();
+			for (int i = 0; i < path.length; i++)
+				route.append(" (" + path[i]%map.getNumColumns() + "," + path[i]/map.getNumColumns() + ")");
+
+			GameLog.info("Route:" + route);
+			GameLog.info("Cost: " + finder.getPathCost() + ", " + path.length + " stops, " +
+							finder.getNumberExpanded() + " cells expanded, " + time/1000 + "us.");
+		}
+
+		time = System.nanoTime();
+		int distance = finder.getExitDistance(map.getStartX(),map.getStartY());
+		time = System.nanoTime()-time;
+
+		GameLog.info("Distance field to the exit: " + time/1000 + "us; cost from the start " + distance + ".");
+		GameLog.flush();
+	}
+//==============================================================================
+}
@@ -0,0 +1,527 @@
+package com.them.clyde;
+//==============================================================================
+// Date Created:		16 October 2026
+// Last Updated:		16 October 2026
+//
+// File Name:			RenderHarness.java
+// File Author:			M Matthew Hydock
+//
+// File Description:	Renders frames of Clyde's Adventure into off-screen
+//						images, without a window, and checks them against
+//						stored "golden" PNGs. Each frame is also drawn many
+//						times over, to measure what it costs to render. Used to
+//						speed up the renderers while proving the output hasn't
+//						changed.
+//
+//						Frames are given as tick[,x,y]: the simulation is run
+//						(with no input) up to that tick, and the frame is drawn
+//						with the camera's top left corner at (x,y) in the map,
+//						or with the simulation's own camera if no position is
+//						given. Frames are rendered in order of their ticks.
+//
+//						Options, all in the form name=value:
+//							map=<file>		tilemap to load
+//							sprite=<file>	Clyde's sprite sheet
+//							golden=<dir>	where the golden PNGs are kept
+//							size=<w>x<h>	size of the frames
+//							repeat=<n>		draws per frame, for timing
+//							frame=<spec>	a frame to render (may be repeated)
+//							seed=<n>		seed for the random animations
+//							renderer=<name>	graphics (the default), java2d,
+//											banded, or gl
+//						a plain "update", which saves every frame as its
+//						golden image instead of comparing it, and a plain
+//						"snapshot", which draws the frames that use the
+//						simulation's camera from a RenderSnapshot, the way the
+//						render thread does, instead of from the game objects.
+//
+//						A missing golden image is saved rather than compared.
+//						If any frame doesn't match, the rendered frame is saved
+//						next to its golden image as <name>.actual.png, and the
+//						harness exits with status 1. Golden images don't depend
+//						on the renderer, so one made with a Graphics checks the
+//						other renderers too. (Only a broken sprite differs: a
+//						Renderer draws it as a rectangle, not an oval.)
+//
+//						The gl renderer is loaded by name, so the harness
+//						builds and runs without LWJGL unless it is asked for.
+//						It needs a display to make its context; on a machine
+//						without one, run the harness under a virtual X server,
+//						with Mesa's software rasterizer:
+//
+//							LIBGL_ALWAYS_SOFTWARE=1 xvfb-run -a java ...
+//==============================================================================
+
+import java.awt.*;
+import java.awt.image.*;
+import java.io.*;
+import java.lang.reflect.*;
+import java.util.*;
+import javax.imageio.*;
+
+public class RenderHarness
+{
+//==============================================================================
+// Constants.
+//==============================================================================
+	// Files to be used if none are given.
+	private static final String TILE_MAP = "../data/maps/testmap.txt";
+	private static final String CLYDE = "../data/sprites/clyde.png";
+	private static final String GOLDEN = "../data/golden";
+
+	// Frames rendered if none are given: the starting camera, Clyde's camera
+	// after a few seconds, and a few fixed camera positions.
+	private static final String[] DEFAULT_FRAMES = {"0", "90", "300", "0,0,0",
+													"0,320,0", "150,600,160"};
+
+	// Simulated time per tick, in nanosecs (30 updates per simulated second).
+	private static final long TICK_DURATION = 1000000000L/30;
+
+	private static final int DEFAULT_WIDTH = 640;
+	private static final int DEFAULT_HEIGHT = 480;
+	private static final int DEFAULT_REPEAT = 100;
+	private static final long DEFAULT_SEED = 1;
+
+	// The OpenGL renderer, which is only loaded if it is asked for.
+	private static final String GL_RENDERER = "com.them.clyde.gl.GLRenderer";
+//==============================================================================
+
+
+//==============================================================================
+// Internal objects and variables.
+//==============================================================================
+	private ClydeSimulation sim;
+	private ClydeScene scene;
+	private int width;
+	private int height;
+	private BufferedImage frame;				// Image the frames are drawn in.
+	private Renderer renderer;					// Null to draw with a Graphics.
+	private Method frameReader;					// Its getFrame(), if it draws
+												// off the Java heap.
+	private RenderSnapshot snapshot;			// Null to draw the game itself.
+//==============================================================================
+
+	public RenderHarness(String mapFile, String spriteFile, int w, int h)
+	// Load a level, to be drawn in w x h frames.
+	{
+		width = w;
+		height = h;
+
+		sim = new ClydeSimulation(	mapFile,spriteFile,
+									HeadlessClyde.createViewport(w,h),
+									new GameClock(TICK_DURATION));
+		scene = new ClydeScene(sim);
+
+		frame = new BufferedImage(w,h,BufferedImage.TYPE_INT_RGB);
+	}
+
+//==============================================================================
+// Rendering methods.
+//==============================================================================
+	public ClydeSimulation getSimulation()
+	{
+		return sim;
+	}
+
+	public void setRenderer(Renderer r)
+	// Draw with the given Renderer, or straight to a Graphics if null. A
+	// Renderer with a getFrame(BufferedImage) method, like GLRenderer, has
+	// its frames read back with it.
+	{
+		renderer = r;
+		frameReader = null;
+
+		if (r != null)
+		{
+			try
+			{
+				frameReader = r.getClass().getMethod("getFrame",BufferedImage.class);
+			}
+			catch (NoSuchMethodException e)
+			// Draws into the frame, or into an image of its own.
+			{
+			}
+		}
+	}
+
+	public Renderer getRenderer()
+	{
+		return renderer;
+	}
+
+	public void setSnapshots(boolean s)
+	// Draw frames with the simulation's own camera from a snapshot taken after
+	// each update, as the render thread does, or from the game objects.
+	{
+		snapshot = s?new RenderSnapshot():null;
+
+		if (snapshot != null)
+			snapshot.capture(sim);
+	}
+
+	public void advanceTo(long tick)
+	// Run the simulation up to the given tick, if it isn't there already.
+	{
+		if (tick > sim.getTicks())
+		{
+			HeadlessClyde.runTicks(sim,tick-sim.getTicks(),new FrameStats());
+			scene.updateOffsets();
+
+			if (snapshot != null)
+				snapshot.capture(sim);
+		}
+	}
+
+	public BufferedImage render(boolean ownCamera, int x, int y)
+	// Draw a frame with the simulation's own camera, or with the camera's top
+	// left corner at (x,y). The same image is reused for every frame.
+	{
+		Graphics2D g = frame.createGraphics();
+
+		if (renderer == null)
+		{
+			if (ownCamera && snapshot != null)
+				scene.render(g,width,height,snapshot,1);
+			else if (ownCamera)
+				scene.render(g,width,height);
+			else
+				scene.render(g,width,height,-x,-y);
+		}
+		else
+		{
+			if (renderer instanceof Java2DRenderer)
+				((Java2DRenderer)renderer).setGraphics(g);
+
+			renderer.begin(width,height);
+			if (ownCamera && snapshot != null)
+				scene.render(renderer,width,height,snapshot,1);
+			else if (ownCamera)
+				scene.render(renderer,width,height);
+			else
+				scene.render(renderer,width,height,-x,-y);
+			renderer.end();
+
+			// Renderers that draw into their own image are copied over.
+			if (renderer instanceof BandedRenderer)
+				g.drawImage(((BandedRenderer)renderer).getImage(),0,0,null);
+			else if (frameReader != null)
+				readFrame();
+
+			scene.drawEndScreen(g,width,height,sim.isGameOver(),sim.getClyde().getHealth());
+		}
+
+		g.dispose();
+
+		return frame;
+	}
+
+	private void readFrame()
+	// Read the frame back from a Renderer that draws off the Java heap.
+	{
+		try
+		{
+			frameReader.invoke(renderer,frame);
+		}
+		catch (InvocationTargetException e)
+		{
+			throw new IllegalStateException("Can't read the frame back: " + e.getCause(),e.getCause());
+		}
+		catch (Exception e)
+		{
+			throw new IllegalStateException("Can't read the frame back: " + e,e);
+		}
+	}
+
+	public static Renderer loadRenderer(String name, int w, int h)
+	// Load a Renderer by class name, made with a (width, height) constructor.
+	// Throws an IllegalStateException if it isn't there, or can't be made.
+	{
+		try
+		{
+			Class<?> c = Class.forName(name);
+
+			return (Renderer)c.getConstructor(int.class,int.class).newInstance(w,h);
+		}
+		catch (InvocationTargetException e)
+		// The constructor itself failed (no OpenGL, say).
+		{
+			throw new IllegalStateException("Can't create " + name + ": " + e.getCause(),e.getCause());
+		}
+		catch (Exception e)
+		// Not on the class path.
+		{
+			throw new IllegalStateException("Can't load " + name + ": " + e,e);
+		}
+		catch (LinkageError e)
+		// On the class path, but its libraries (LWJGL, say) aren't.
+		{
+			throw new IllegalStateException("Can't load " + name + ": " + e,e);
+		}
+	}
+
+	public void dispose()
+	// Let go of the Renderer, if it holds on to anything (a GL context, say).
+	{
+		if (renderer != null)
+		{
+			try
+			{
+				renderer.getClass().getMethod("dispose").invoke(renderer);
+			}
+			catch (Exception e)
+			// Nothing to let go of.
+			{
+			}
+		}
+	}
+
+	public long[] time(boolean ownCamera, int x, int y, int repeat)
+	// Draw the same frame repeatedly, and return how long each draw took, in
+	// nanosecs, sorted.
+	{
+		long[] times = new long[repeat];
+
+		for (int i = 0; i < repeat; i++)
+		{
+			long start = System.nanoTime();
+			render(ownCamera,x,y);
+			times[i] = System.nanoTime() - start;
+		}
+
+		Arrays.sort(times);
+
+		return times;
+	}
+//==============================================================================
+
+
+//==============================================================================
+// Comparison methods.
+//==============================================================================
+	public static int countDifferences(BufferedImage a, BufferedImage b)
+	// Count the pixels that differ between two images of the same size. An
+	// image of a different size differs everywhere.
+	{
+		int w = a.getWidth();
+		int h = a.getHeight();
+
+		if (b.getWidth() != w || b.getHeight() != h)
+			return Math.max(w*h,b.getWidth()*b.getHeight());
+
+		int[] rowA = new int[w];
+		int[] rowB = new int[w];
+		int count = 0;
+
+		for (int y = 0; y < h; y++)
+		{
+			a.getRGB(0,y,w,1,rowA,0,w);
+			b.getRGB(0,y,w,1,rowB,0,w);
+
+			for (int x = 0; x < w; x++)
+				if ((rowA[x] & 0xFFFFFF) != (rowB[x] & 0xFFFFFF))
+					count++;
+		}
+
+		return count;
+	}
+//==============================================================================
+
+
+//==============================================================================
+// Main method.
+//==============================================================================
+	public static void main(String args[])
+	// Render every frame asked for, compare it against (or save it as) its
+	// golden image, and report how long it took to render.
+	{
+		// Must be set before anything touches AWT.
+		System.setProperty("java.awt.headless","true");
+
+		String mapFile = TILE_MAP;
+		String spriteFile = CLYDE;
+		String goldenDir = GOLDEN;
+		int w = DEFAULT_WIDTH;
+		int h = DEFAULT_HEIGHT;
+		int repeat = DEFAULT_REPEAT;
+		long seed = DEFAULT_SEED;
+		String rendererName = "graphics";
+		boolean update = false;
+		boolean snapshots = false;
+		ArrayList<String> frames = new ArrayList<String>();
+
+		for (int i = 0; i < args.length; i++)
+		{
+			String arg = args[i];
+
+			try
+			{
+				if (arg.equals("update"))
+					update = true;
+				else if (arg.equals("snapshot"))
+					snapshots = true;
+				else if (arg.startsWith("map="))
+					mapFile = arg.substring(4);
+				else if (arg.startsWith("sprite="))
+					spriteFile = arg.substring(7);
+				else if (arg.startsWith("golden="))
+					goldenDir = arg.substring(7);
+				else if (arg.startsWith("repeat="))
+					repeat = Math.max(1,Integer.parseInt(arg.substring(7)));
+				else if (arg.startsWith("seed="))
+					seed = Long.parseLong(arg.substring(5));
+				else if (arg.startsWith("renderer="))
+					rendererName = arg.substring(9);
+				else if (arg.startsWith("frame="))
+					frames.add(arg.substring(6));
+				else if (arg.startsWith("size="))
+				{
+					String[] dims = arg.substring(5).split("x");
+					w = Integer.parseInt(dims[0]);
+					h = Integer.parseInt(dims[1]);
+				}
+				else
+					GameLog.warn("Unknown option: " + arg);
+			}
+			catch (RuntimeException e)
+			// Bad number, or missing part; keep the default.
+			{
+				GameLog.warn("Incorrect option: " + arg);
+			}
+		}
+
+		if (frames.isEmpty())
+			frames.addAll(Arrays.asList(DEFAULT_FRAMES));
+
+		// Parse the frames into {tick, x, y, own camera}, in order of ticks.
+		ArrayList<long[]> specs = new ArrayList<long[]>();
+		for (String f : frames)
+		{
+			try
+			{
+				String[] parts = f.split(",");
+				long[] spec = new long[4];
+				spec[0] = Long.parseLong(parts[0].trim());
+				spec[3] = (parts.length < 3)?1:0;
+				if (parts.length >= 3)
+				{
+					spec[1] = Long.parseLong(parts[1].trim());
+					spec[2] = Long.parseLong(parts[2].trim());
+				}
+				specs.add(spec);
+			}
+			catch (RuntimeException e)
+			{
+				GameLog.warn("Incorrect frame: " + f);
+			}
+		}
+		Collections.sort(specs,new Comparator<long[]>()
+		{
+			public int compare(long[] a, long[] b)
+			{
+				return Long.compare(a[0],b[0]);
+			}
+		});
+
+		File dir = new File(goldenDir);
+		if (!dir.isDirectory() && !dir.mkdirs())
+		{
+			GameLog.error("Can't create golden image directory " + goldenDir);
+			GameLog.flush();
+			System.exit(1);
+		}
+
+		// Animations start at random; seed them so every run looks the same.
+		GameAnimation.setRandomSeed(seed);
+		RenderHarness harness = new RenderHarness(mapFile,spriteFile,w,h);
+
+		if (rendererName.equals("java2d"))
+			harness.setRenderer(new Java2DRenderer(null,w,h));
+		else if (rendererName.equals("banded"))
+			harness.setRenderer(new BandedRenderer());
+		else if (rendererName.equals("gl"))
+		{
+			try
+			{
+				harness.setRenderer(loadRenderer(GL_RENDERER,w,h));
+			}
+			catch (IllegalStateException e)
+			{
+				GameLog.error(e.getMessage());
+				GameLog.flush();
+				System.exit(1);
+			}
+		}
+		else if (!rendererName.equals("graphics"))
+			GameLog.warn("Unknown renderer " + rendererName + ", using graphics.");
+		harness.setSnapshots(snapshots);
+		int failures = 0;
+
+		GameLog.info("");
+		GameLog.info("Frame                        Result       Mean (us)  Median (us)  Max (us)");
+
+		for (long[] spec : specs)
+		{
+			boolean ownCamera = spec[3] != 0;
+			int x = (int)spec[1];
+			int y = (int)spec[2];
+
+			harness.advanceTo(spec[0]);
+
+			String name = "frame_" + spec[0] + (ownCamera?"":"_" + x + "_" + y) + "_" + w + "x" + h;
+			File golden = new File(dir,name + ".png");
+
+			// Warm up, then time, then take the frame to be checked.
+			harness.time(ownCamera,x,y,Math.min(repeat,10));
+			long[] times = harness.time(ownCamera,x,y,repeat);
+			BufferedImage image = harness.render(ownCamera,x,y);
+
+			String result;
+			try
+			{
+				if (update || !golden.exists())
+				{
+					ImageIO.write(image,"png",golden);
+					result = "saved";
+				}
+				else
+				{
+					BufferedImage expected = ImageIO.read(golden);
+					int diff = (expected == null)?w*h:countDifferences(image,expected);
+
+					if (diff == 0)
+						result = "ok";
+					else
+					{
+						ImageIO.write(image,"png",new File(dir,name + ".actual.png"));
+						result = diff + " px off";
+						failures++;
+					}
+				}
+			}
+			catch (IOException e)
+			{
+				GameLog.error("Can't read or write " + golden + ":\n" + e);
+				result = "error";
+				failures++;
+			}
+
+			long total = 0;
+			for (long t : times)
+				total += t;
+
+			GameLog.info(String.format(	"%-28s %-12s %9.1f  %11.1f  %8.1f",name,result,
+										total/1000.0/times.length,times[times.length/2]/1000.0,
+										times[times.length-1]/1000.0));
+		}
+
+		harness.dispose();
+
+		GameLog.info("");
+		GameLog.info((failures == 0)?"All frames match.":failures + " frame(s) differ.");
+		GameLog.flush();
+
+		if (failures > 0)
+			System.exit(1);
+	}
+//==============================================================================
+}
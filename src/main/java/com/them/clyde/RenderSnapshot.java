@@ -0,0 +1,222 @@
+package com.them.clyde;
+//==============================================================================
+// Date Created:		16 October 2026
+// Last Updated:		16 October 2026
+//
+// File Name:			RenderSnapshot.java
+// File Author:			M Matthew Hydock
+//
+// File Description:	Everything needed to draw a single frame of Clyde's
+//						Adventure: the camera offsets, the kind and frame of
+//						every visible tile, the pre-rendered images of the
+//						visible chunks of the map, and Clyde's position and
+//						frame.
+//						Captured by the simulation thread after an update, and
+//						handed to the render thread through a TripleBuffer.
+//						Once published, a snapshot is never changed until the
+//						TripleBuffer hands it back to the simulation thread, so
+//						the render thread can treat it as immutable, and never
+//						has to look at the tilemap, which the simulation
+//						thread may be changing.
+//
+//						Positions are kept from both before and after the
+//						update, so the render thread can draw at any point in
+//						between when it renders faster than the game updates.
+//==============================================================================
+
+import java.awt.image.*;
+import java.util.*;
+
+public class RenderSnapshot
+{
+	// When the snapshot was captured (System.nanoTime()).
+	private long captureTime;
+
+	// Camera offsets, before and after the update.
+	private int xOffset;
+	private int yOffset;
+	private int prevXOffset;
+	private int prevYOffset;
+
+	// Visible range of the tilemap {startX, startY, endX, endY}, and the kind
+	// and frame of every tile in it (negative for static tiles). The range
+	// covers the view both before and after the update.
+	private int[] tileRange;
+	private int[] prevTileRange;
+	private short[] tileTypes;
+	private int[] tileFrames;
+	private int tileSize;
+
+	// Chunks covering the visible range, and their images.
+	private int[] chunkRange;
+	private BufferedImage[] chunkImages;
+
+	// Clyde's global location, before and after the update, and appearance.
+	private double clydeX;
+	private double clydeY;
+	private double prevClydeX;
+	private double prevClydeY;
+	private int clydeRow;
+	private int clydeFrame;
+	private boolean clydeFacingRight;
+	private int clydeHealth;
+
+	private boolean gameOver;
+
+	public RenderSnapshot()
+	// Create an empty snapshot. The frame list is allocated on the first
+	// capture, once the size of the view is known.
+	{
+		tileRange = new int[4];
+		prevTileRange = new int[4];
+		tileTypes = new short[0];
+		tileFrames = new int[0];
+		chunkRange = new int[4];
+		chunkImages = new BufferedImage[0];
+	}
+
+//==============================================================================
+// Capture method.
+//==============================================================================
+	public void capture(ClydeSimulation sim)
+	// Copy the drawable state of the simulation into this snapshot. Must be
+	// called from the simulation thread.
+	{
+		TileMap map = sim.getTileMap();
+		Camera camera = sim.getCamera();
+		ClydeSprite clyde = sim.getClyde();
+
+		captureTime = System.nanoTime();
+
+		xOffset = sim.getXOffset();
+		yOffset = sim.getYOffset();
+		prevXOffset = sim.getPrevXOffset();
+		prevYOffset = sim.getPrevYOffset();
+
+		// Cover every tile visible anywhere between the two camera positions.
+		System.arraycopy(camera.getVisibleRange(),0,tileRange,0,4);
+		camera.getVisibleRange(prevXOffset,prevYOffset,prevTileRange);
+		tileRange[0] = Math.min(tileRange[0],prevTileRange[0]);
+		tileRange[1] = Math.min(tileRange[1],prevTileRange[1]);
+		tileRange[2] = Math.max(tileRange[2],prevTileRange[2]);
+		tileRange[3] = Math.max(tileRange[3],prevTileRange[3]);
+
+		int numTiles = Math.max(0,tileRange[2]-tileRange[0]+1)*Math.max(0,tileRange[3]-tileRange[1]+1);
+		if (tileFrames.length < numTiles)
+		{
+			tileTypes = new short[numTiles];
+			tileFrames = new int[numTiles];
+		}
+		map.captureTypes(tileRange,tileTypes);
+		map.captureFrames(tileRange,tileFrames);
+		tileSize = map.getTileSize();
+
+		// Render any chunks that need it here, rather than on the render thread.
+		int numChunks = map.getChunkRange(tileRange,chunkRange);
+		if (chunkImages.length < numChunks)
+			chunkImages = new BufferedImage[numChunks];
+		map.captureChunks(chunkRange,chunkImages);
+		Arrays.fill(chunkImages,numChunks,chunkImages.length,null);
+
+		clydeX = clyde.getXPos();
+		clydeY = clyde.getYPos();
+		prevClydeX = clyde.getPrevXPos();
+		prevClydeY = clyde.getPrevYPos();
+		clydeRow = clyde.getAnimationRow();
+		clydeFrame = clyde.getSpriteMap().getCurrentFrame();
+		clydeFacingRight = clyde.isFacingRight();
+		clydeHealth = clyde.getHealth();
+
+		gameOver = sim.isGameOver();
+	}
+//==============================================================================
+
+
+//==============================================================================
+// Getters.
+//==============================================================================
+	public long getCaptureTime()
+	{
+		return captureTime;
+	}
+
+	public int getXOffset(double alpha)
+	// Camera x offset, part way (0 to 1) through the update.
+	{
+		return (int)Math.round(prevXOffset + (xOffset-prevXOffset)*alpha);
+	}
+
+	public int getYOffset(double alpha)
+	// Camera y offset, part way (0 to 1) through the update.
+	{
+		return (int)Math.round(prevYOffset + (yOffset-prevYOffset)*alpha);
+	}
+
+	public int[] getTileRange()
+	{
+		return tileRange;
+	}
+
+	public short[] getTileTypes()
+	{
+		return tileTypes;
+	}
+
+	public int[] getTileFrames()
+	{
+		return tileFrames;
+	}
+
+	public int getTileSize()
+	{
+		return tileSize;
+	}
+
+	public int[] getChunkRange()
+	{
+		return chunkRange;
+	}
+
+	public BufferedImage[] getChunkImages()
+	{
+		return chunkImages;
+	}
+
+	public int getClydeX(double alpha)
+	// Clyde's on-screen x location, part way (0 to 1) through the update.
+	{
+		return (int)(prevClydeX + (clydeX-prevClydeX)*alpha) + getXOffset(alpha);
+	}
+
+	public int getClydeY(double alpha)
+	// Clyde's on-screen y location, part way (0 to 1) through the update.
+	{
+		return (int)(prevClydeY + (clydeY-prevClydeY)*alpha) + getYOffset(alpha);
+	}
+
+	public int getClydeRow()
+	{
+		return clydeRow;
+	}
+
+	public int getClydeFrame()
+	{
+		return clydeFrame;
+	}
+
+	public boolean isClydeFacingRight()
+	{
+		return clydeFacingRight;
+	}
+
+	public int getClydeHealth()
+	{
+		return clydeHealth;
+	}
+
+	public boolean isGameOver()
+	{
+		return gameOver;
+	}
+//==============================================================================
+}
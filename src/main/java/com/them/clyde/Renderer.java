@@ -0,0 +1,52 @@
+package com.them.clyde;
+//==============================================================================
+// Date Created:		16 October 2026
+// Last Updated:		16 October 2026
+//
+// File Name:			Renderer.java
+// File Author:			M Matthew Hydock
+//
+// File Description:	Something the game can be drawn with. Everything the
+//						game draws comes down to filled rectangles and
+//						rectangles copied out of images (usually atlas pages),
+//						so that is all a renderer has to do. Java2DRenderer
+//						draws with a java.awt.Graphics; the OpenGL renderer (in
+//						com.them.clyde.gl) batches the rectangles into a vertex
+//						buffer instead.
+//
+//						A frame is drawn between begin() and end(). Drawing may
+//						be queued until end() or flush(), so the results are
+//						only guaranteed to be visible after one of those.
+//==============================================================================
+
+import java.awt.*;
+import java.awt.image.*;
+
+public interface Renderer
+{
+	public void begin(int w, int h);
+	// Start drawing a frame of the given size.
+
+	public void end();
+	// Finish drawing the frame.
+
+	public void flush();
+	// Draw anything that has been queued so far.
+
+	public int getWidth();
+	// Width of the frame being drawn.
+
+	public int getHeight();
+	// Height of the frame being drawn.
+
+	public void fillRect(int x, int y, int w, int h, Color c);
+	// Fill a rectangle with a solid color.
+
+	public void drawImage(BufferedImage src, int sx, int sy, int w, int h, int dx, int dy, boolean mirrored);
+	// Copy the w x h rectangle at (sx,sy) of the source image to (dx,dy),
+	// mirrored left to right if asked.
+
+	public void imageChanged(BufferedImage src);
+	// Tell the renderer that an image's pixels have changed, in case it keeps
+	// its own copy.
+}
@@ -1,7 +1,7 @@
 package com.them.clyde;
 //==============================================================================
 // Date Created:		14 December 2011
-// Last Updated:		16 December 2011
+// Last Updated:		16 October 2026
 //
 // File Name:			Ribbon.java
 // File Author:			M Matthew Hydock
@@ -9,6 +9,10 @@ package com.them.clyde;
 // File Description:	Creates a scrollable image background. An extension of
 //						the GameLayer class, it scrolls faster or slower based
 //						on its depth.
+//
+//						Only the parts of the ribbon that land inside the clip
+//						(or the screen) are drawn, however many times the ribbon
+//						has to repeat to cover it.
 //==============================================================================
 
 import java.awt.*;
@@ -21,7 +25,6 @@ public class Ribbon extends GameLayer
 	private GameImage image;
 	private boolean horz_repeat;
 	private boolean vert_repeat;
-	private boolean isVisible = true;
 	
 	private int xPos;
 	private int yPos;
@@ -71,114 +74,135 @@ public class Ribbon extends GameLayer
 	{
 		return image.getHeight();
 	}
+	
+	public GameImage getImage()
+	// Return the ribbon's image.
+	{
+		return image;
+	}
+	
+	public boolean isHorizontalRepeat()
+	{
+		return horz_repeat;
+	}
+	
+	public boolean isVerticalRepeat()
+	{
+		return vert_repeat;
+	}
 
 	public void setOffsets(int x, int y)
 	// Slightly different offset command. If the ribbon is repeating in the x
-	// or y directions, modulo the offsets with the panel's dimensions.
+	// or y directions, modulo the offsets with the image's dimensions.
 	{
 		super.setOffsets(x,y);
 		
-		if (horz_repeat)
+		if (horz_repeat && image.getWidth() > 0)
 			xOffset %= image.getWidth();
-		if (vert_repeat)
+		if (vert_repeat && image.getHeight() > 0)
 			yOffset %= image.getHeight();
-		
-		// Did the offset move the image offscreen? (If horz_repeat and
-		// vert_repeat are on, this should always be true).
-		isVisible = (xOffset < parent.getWidth() && xOffset+image.getWidth() > 0) &&
-					(yOffset < parent.getHeight() && yOffset+image.getHeight() > 0);
 	}
 	
 	public void display(Graphics g)
-	// Display the ribbon. If it is repeating in both directions, it needs to be
-	// drawn at most 4 times. If it is only repeating in one direction, then it
-	// needs to be drawn at most 2 times. Can probably be cleaned up so that
-	// clipped regions aren't drawn, but for now, whatever.
+	// Display the ribbon, using its current offsets.
+	{
+		drawAt(g,xPos+xOffset,yPos+yOffset);
+	}
+	
+	public void display(Graphics g, int x, int y)
+	// Display the ribbon as it would be with the camera offsets (x,y), without
+	// changing the ribbon's own offsets. Can be used from a render thread.
+	{
+		drawAt(g,xPos+(int)(x*move_factor),yPos+(int)(y*move_factor));
+	}
+	
+	public void display(Renderer r)
+	// Display the ribbon with a Renderer, using its current offsets.
+	{
+		drawAt(r,xPos+xOffset,yPos+yOffset);
+	}
+	
+	public void display(Renderer r, int x, int y)
+	// Display the ribbon with a Renderer, as it would be with the camera
+	// offsets (x,y).
+	{
+		drawAt(r,xPos+(int)(x*move_factor),yPos+(int)(y*move_factor));
+	}
+	
+	private void drawAt(Graphics g, int x, int y)
+	// Draw the ribbon with one copy of the image at (x,y), repeating it as
+	// needed to cover the clip. Each copy is trimmed to the part inside the
+	// clip, so nothing off-screen is drawn.
 	{
-		// If the ribbon isn't visible, don't even try drawing it.
-		if (!isVisible)
+		int w = image.getWidth();
+		int h = image.getHeight();
+		if (image.isBroken() || w <= 0 || h <= 0)
 			return;
 		
-		// It's going to be on screen at least once...
-		image.draw(g,xOffset,yOffset);
-		
-		if (horz_repeat)
-		// If horizontal repeat is on, check if the ribbon needs to be drawn
-		// again, along the x axis.
+		// Area that needs to be covered.
+		int clipX1, clipY1, clipX2, clipY2;
+		Rectangle clip = g.getClipBounds();
+		if (clip != null)
 		{
-			if (xOffset+image.getWidth() < parent.getWidth())
-			// If the ribbon is too far left, draw it again to the right.
-			{
-				int xOffset2 = xOffset+image.getWidth();
-				image.draw(g,xOffset2,yOffset);
-			}
-			else if (xOffset > 0)
-			// If the ribbon is too far right, draw it again to the left.
-			{
-				int xOffset2 = xOffset-image.getWidth();
-				image.draw(g,xOffset2,yOffset);
-			}
+			clipX1 = clip.x;
+			clipY1 = clip.y;
+			clipX2 = clip.x + clip.width;
+			clipY2 = clip.y + clip.height;
 		}
-		
-		if (vert_repeat)
-		// If vertical repeat is on, check if the ribbon needs to be drawn
-		// again, along the y axis.
+		else
 		{
-			if (yOffset+image.getHeight() < parent.getHeight())
-			// If the ribbon is too far above, draw it again lower.
-			{
-				int yOffset2 = yOffset+image.getHeight();
-				image.draw(g,xOffset,yOffset2);
-			}
-			else if (yOffset > 0)
-			// If the ribbon is too far down, draw it again above.
-			{
-				int yOffset2 = yOffset-image.getHeight();
-				image.draw(g,xOffset,yOffset2);
-			}
+			clipX1 = 0;
+			clipY1 = 0;
+			clipX2 = getViewWidth();
+			clipY2 = getViewHeight();
 		}
 		
-		if (horz_repeat && vert_repeat)
-		// If both horizontal and vertical repeat are on, a corner somewhere
-		// might need to be filled.
-		{
-			if (xOffset+image.getWidth() < parent.getWidth())
-			// If the ribbon is too far left, draw it again to the right.
-			{				
-				if (yOffset+image.getHeight() < parent.getHeight())
-				// If the ribbon is too far above, draw it again lower.
-				{
-					int xOffset2 = xOffset+image.getWidth();
-					int yOffset2 = yOffset+image.getHeight();
-					image.draw(g,xOffset2,yOffset2);
-				}
-				else if (yOffset > 0)
-				// If the ribbon is too far down, draw it again above.
-				{
-					int xOffset2 = xOffset+image.getWidth();
-					int yOffset2 = yOffset-image.getHeight();
-					image.draw(g,xOffset2,yOffset2);
-				}
+		// First copy at or left of/above the clip, if repeating.
+		int startX = horz_repeat?x + Math.floorDiv(clipX1-x,w)*w:x;
+		int startY = vert_repeat?y + Math.floorDiv(clipY1-y,h)*h:y;
+		int endX = horz_repeat?clipX2:x+1;
+		int endY = vert_repeat?clipY2:y+1;
+		
+		for (int ty = startY; ty < endY; ty += h)
+			for (int tx = startX; tx < endX; tx += w)
+			{
+				// Part of this copy inside the clip.
+				int dx1 = Math.max(tx,clipX1);
+				int dy1 = Math.max(ty,clipY1);
+				int dx2 = Math.min(tx+w,clipX2);
+				int dy2 = Math.min(ty+h,clipY2);
+				
+				if (dx1 < dx2 && dy1 < dy2)
+					image.draw(g,dx1,dy1,dx1-tx,dy1-ty,dx2-dx1,dy2-dy1);
 			}
-			
-			else if (xOffset > 0)
-			// If the ribbon is too far right, draw it again to the left.
+	}
+	
+	private void drawAt(Renderer r, int x, int y)
+	// Same as above, covering the whole of the renderer's frame.
+	{
+		int w = image.getWidth();
+		int h = image.getHeight();
+		if (image.isBroken() || w <= 0 || h <= 0)
+			return;
+		
+		int clipX2 = r.getWidth();
+		int clipY2 = r.getHeight();
+		
+		int startX = horz_repeat?x + Math.floorDiv(-x,w)*w:x;
+		int startY = vert_repeat?y + Math.floorDiv(-y,h)*h:y;
+		int endX = horz_repeat?clipX2:x+1;
+		int endY = vert_repeat?clipY2:y+1;
+		
+		for (int ty = startY; ty < endY; ty += h)
+			for (int tx = startX; tx < endX; tx += w)
 			{
-				if (yOffset+image.getHeight() < parent.getHeight())
-				// If the ribbon is too far above, draw it again lower.
-				{
-					int xOffset2 = xOffset-image.getWidth();
-					int yOffset2 = yOffset+image.getHeight();
-					image.draw(g,xOffset2,yOffset2);
-				}
-				else if (yOffset > 0)
-				// If the ribbon is too far down, draw it again above.
-				{
-					int xOffset2 = xOffset-image.getWidth();
-					int yOffset2 = yOffset-image.getHeight();
-					image.draw(g,xOffset2,yOffset2);
-				}
+				int dx1 = Math.max(tx,0);
+				int dy1 = Math.max(ty,0);
+				int dx2 = Math.min(tx+w,clipX2);
+				int dy2 = Math.min(ty+h,clipY2);
+				
+				if (dx1 < dx2 && dy1 < dy2)
+					image.draw(r,dx1,dy1,dx1-tx,dy1-ty,dx2-dx1,dy2-dy1);
 			}
-		}
 	}
 }
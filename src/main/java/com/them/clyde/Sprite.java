@@ -1,7 +1,7 @@
 package com.them.clyde;
 //==============================================================================
 // Date Created:		10 December 2011
-// Last Updated:		20 December 2011
+// Last Updated:		16 October 2026
 //
 // File Name:			Sprite.java
 // File Author:			M Matthew Hydock
@@ -34,6 +34,9 @@ public class Sprite extends GameLayer
 	// Sprite map and animation player.
 	protected GameImageStrip image;
 	protected GameAnimation animator;
+	
+	// Simulation clock, shared with the animation player.
+	protected GameClock clock;
 
 	// A sprite is updated and drawn only when it is active.
 	protected boolean isActive = true;
@@ -41,6 +44,7 @@ public class Sprite extends GameLayer
 
 	// Position and movement variables.
 	protected double xPos, yPos;			// Global location of sprite.
+	protected double prevXPos, prevYPos;	// Location before the last update.
 	protected double dx, dy;				// Amount to move for each update.
 
 	public Sprite(GameImageStrip i, int x, int y, Component p)
@@ -52,6 +56,7 @@ public class Sprite extends GameLayer
 		
 		xPos = x;
 		yPos = y;
+		savePosition();
 
 		image = i;
 		
@@ -116,6 +121,28 @@ public class Sprite extends GameLayer
 		return image;
 	}
 	
+	public void setClock(GameClock c)
+	// Set the clock used to time the sprite, and pass it on to the animator.
+	{
+		clock = c;
+		animator.setClock(c);
+	}
+	
+	public GameClock getClock()
+	// Return the clock used to time the sprite.
+	{
+		return clock;
+	}
+	
+	protected long currentTime()
+	// Read the time from the clock, or from the system if there is no clock.
+	{
+		if (clock != null)
+			return clock.getTime();
+			
+		return System.nanoTime();
+	}
+	
 	public int getWidth()
 	// Return the width of a frame in the GameImageStrip.
 	{
@@ -153,10 +180,46 @@ public class Sprite extends GameLayer
 	}
 
 	public void setPosition(double x, double y)
-	// Manually set the x and y locations.
+	// Manually set the x and y locations. The sprite jumps straight there, so
+	// the previous location is moved as well.
 	{
 		xPos = x;
 		yPos = y;
+		savePosition();
+	}
+	
+	public void savePosition()
+	// Remember the current location as the previous location. Should be called
+	// once at the start of every update, before the sprite moves.
+	{
+		prevXPos = xPos;
+		prevYPos = yPos;
+	}
+	
+	public double getPrevXPos()
+	// Return the x position before the last update.
+	{
+		return prevXPos;
+	}
+	
+	public double getPrevYPos()
+	// Return the y position before the last update.
+	{
+		return prevYPos;
+	}
+	
+	public double getInterpolatedXPos(double alpha)
+	// Return the x position, part way (0 to 1) between the previous and the
+	// current positions.
+	{
+		return prevXPos + (xPos-prevXPos)*alpha;
+	}
+	
+	public double getInterpolatedYPos(double alpha)
+	// Return the y position, part way (0 to 1) between the previous and the
+	// current positions.
+	{
+		return prevYPos + (yPos-prevYPos)*alpha;
 	}
 
 	public double getXPos()
@@ -242,15 +305,24 @@ public class Sprite extends GameLayer
 //==============================================================================
 
 
+	public void display(Graphics g)
+	// Draw the sprite as a layer.
+	{
+		drawSprite(g);
+	}
+	
+	public void display(Renderer r)
+	// Draw the sprite as a layer, with a Renderer.
+	{
+		drawSprite(r);
+	}
+	
 	public void drawSprite(Graphics g)
 	// Draw the current frame of the sprite, at its global location, shifted by
 	// a predetermined offset.
 	{
-		// If the sprite is not within the dimensions of the display, don't draw
-		// the sprite.
-		if ((xPos+xOffset) > parent.getWidth() || (xPos+xOffset+getWidth()) < 0)
-			return;
-		if ((yPos+yOffset) > parent.getHeight() || (yPos+yOffset+getHeight()) < 0)
+		// If the sprite is not within the view, don't draw the sprite.
+		if (!isOnScreen((int)xPos+xOffset,(int)yPos+yOffset,getWidth(),getHeight()))
 			return;
 			
 		if (isActive())
@@ -265,4 +337,24 @@ public class Sprite extends GameLayer
 				image.draw(g,(int)xPos+xOffset,(int)yPos+yOffset);
 		}
 	}
+	
+	public void drawSprite(Renderer r)
+	// Draw the current frame of the sprite with a Renderer. A sprite with no
+	// image is drawn as a yellow square, since a Renderer only fills
+	// rectangles.
+	{
+		int x = (int)xPos+xOffset;
+		int y = (int)yPos+yOffset;
+		
+		if (!Camera.intersects(x,y,getWidth(),getHeight(),r.getWidth(),r.getHeight()))
+			return;
+			
+		if (isActive())
+		{
+			if (image == null || image.isBroken())
+				r.fillRect(x, y, SIZE, SIZE, Color.yellow);
+			else
+				image.draw(r,x,y);
+		}
+	}
 }
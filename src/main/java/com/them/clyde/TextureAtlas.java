@@ -0,0 +1,229 @@
+package com.them.clyde;
+//==============================================================================
+// Date Created:		16 October 2026
+// Last Updated:		16 October 2026
+//
+// File Name:			TextureAtlas.java
+// File Author:			M Matthew Hydock
+//
+// File Description:	Packs many GameImages into a few large images (pages),
+//						so that the game draws from a handful of accelerated
+//						surfaces instead of one per tile type. Images are added
+//						first, then packed all at once; packing copies each
+//						image into a page, and turns the GameImage into a view
+//						of its rectangle of that page (see
+//						GameImage.setAtlasRegion()).
+//
+//						Images are packed onto shelves: sorted tallest first,
+//						placed left to right, and a new shelf is started below
+//						when a row fills up. Simple, and wastes little space
+//						when most images are the same height, as tiles are.
+//						Images bigger than a page are left as they are.
+//
+//						Images are only packed with others of the same
+//						transparency class (see GameImage.getTransparency()),
+//						and each page is made with that class. Opaque tiles end
+//						up on opaque pages, which are copied rather than
+//						blended when drawn, and a single translucent image
+//						can't make a whole page of tiles expensive to draw.
+//==============================================================================
+
+import java.awt.*;
+import java.awt.image.*;
+import java.util.*;
+
+public class TextureAtlas
+{
+	public static final int DEFAULT_PAGE_SIZE = 1024;
+
+	private static final int PADDING = 1;		// Gap between packed images.
+
+	private int pageSize;						// Largest width/height of a page.
+	private ArrayList<GameImage> pending;		// Images waiting to be packed.
+	private ArrayList<BufferedImage> pages;		// Pages packed so far.
+	private ArrayList<Integer> pageTransparency;	// Class of each page.
+
+	public TextureAtlas()
+	// Create an empty atlas, with pages of the default size.
+	{
+		this(DEFAULT_PAGE_SIZE);
+	}
+
+	public TextureAtlas(int size)
+	// Create an empty atlas, with pages up to size x size pixels.
+	{
+		pageSize = (size > 0)?size:DEFAULT_PAGE_SIZE;
+		pending = new ArrayList<GameImage>();
+		pages = new ArrayList<BufferedImage>();
+		pageTransparency = new ArrayList<Integer>();
+	}
+
+//==============================================================================
+// Getters.
+//==============================================================================
+	public int getPageSize()
+	{
+		return pageSize;
+	}
+
+	public int getNumberPages()
+	// Return the number of pages packed so far.
+	{
+		return pages.size();
+	}
+
+	public BufferedImage getPage(int i)
+	{
+		return pages.get(i);
+	}
+
+	public int getPageTransparency(int i)
+	// Return the transparency class of the images on a page.
+	{
+		return pageTransparency.get(i);
+	}
+
+	public int getNumberPending()
+	// Return the number of images waiting to be packed.
+	{
+		return pending.size();
+	}
+//==============================================================================
+
+
+//==============================================================================
+// Packing methods.
+//==============================================================================
+	public void add(GameImage i)
+	// Queue an image to be packed by the next call to pack(). Broken images,
+	// images already in an atlas, and images too big for a page are skipped,
+	// as are strips that draw from their own sliced frames.
+	{
+		if (i == null || i.isBroken() || i.isPacked() || pending.contains(i))
+			return;
+		
+		if (i instanceof GameImageStrip && ((GameImageStrip)i).isFrameCaching())
+			return;
+
+		if (i.getWidth() > pageSize || i.getHeight() > pageSize)
+		{
+			GameLog.debug("Image " + i.getName() + " is too big for the atlas.");
+			return;
+		}
+
+		pending.add(i);
+	}
+
+	public void pack()
+	// Pack every queued image into new pages, one transparency class at a
+	// time, and point each image at its new location.
+	{
+		if (pending.isEmpty())
+			return;
+
+		int n = pending.size();
+		int before = pages.size();
+
+		int[] classes = {Transparency.OPAQUE, Transparency.BITMASK, Transparency.TRANSLUCENT};
+		for (int c = 0; c < classes.length; c++)
+		{
+			ArrayList<GameImage> group = new ArrayList<GameImage>();
+			for (int i = 0; i < pending.size(); i++)
+				if (pending.get(i).getTransparency() == classes[c])
+					group.add(pending.get(i));
+
+			packGroup(group,classes[c]);
+		}
+
+		GameLog.debug("Packed " + n + " images into " + (pages.size()-before) + " atlas page(s).");
+
+		pending.clear();
+	}
+
+	private void packGroup(ArrayList<GameImage> group, int transparency)
+	// Pack a group of images of the same transparency class into new pages.
+	{
+		if (group.isEmpty())
+			return;
+
+		// Tallest first, so each shelf is filled with images of similar height.
+		Collections.sort(group,new Comparator<GameImage>()
+		{
+			public int compare(GameImage a, GameImage b)
+			{
+				if (a.getHeight() != b.getHeight())
+					return b.getHeight() - a.getHeight();
+
+				return b.getWidth() - a.getWidth();
+			}
+		});
+
+		int n = group.size();
+		int[] xs = new int[n];
+		int[] ys = new int[n];
+
+		int first = 0;				// First image on the current page.
+		int x = 0;					// Next free spot on the current shelf.
+		int shelfY = 0;				// Top of the current shelf.
+		int shelfHeight = 0;		// Height of the tallest image on the shelf.
+		int pageWidth = 0;			// Space used on the current page.
+
+		for (int i = 0; i < n; i++)
+		{
+			GameImage im = group.get(i);
+			int w = im.getWidth();
+			int h = im.getHeight();
+
+			if (x + w > pageSize)
+			// Shelf is full, start a new one below it.
+			{
+				shelfY += shelfHeight + PADDING;
+				x = 0;
+				shelfHeight = 0;
+			}
+
+			if (shelfY + h > pageSize)
+			// Page is full, finish it and start a new one.
+			{
+				makePage(group,transparency,first,i,xs,ys,pageWidth,shelfY-PADDING);
+				first = i;
+				shelfY = 0;
+				pageWidth = 0;
+			}
+
+			xs[i] = x;
+			ys[i] = shelfY;
+
+			x += w + PADDING;
+			shelfHeight = Math.max(shelfHeight,h);
+			pageWidth = Math.max(pageWidth,x-PADDING);
+		}
+
+		makePage(group,transparency,first,n,xs,ys,pageWidth,shelfY+shelfHeight);
+	}
+
+	private void makePage(	ArrayList<GameImage> group, int transparency, int first, int last,
+							int[] xs, int[] ys, int w, int h)
+	// Copy the images of the group from first up to (not including) last into
+	// a new page of the given size and transparency, and point them at it.
+	{
+		if (first >= last || w <= 0 || h <= 0)
+			return;
+
+		BufferedImage page = GameImage.createCompatibleImage(w,h,transparency);
+		Graphics2D g = page.createGraphics();
+		g.setComposite(AlphaComposite.Src);
+
+		for (int i = first; i < last; i++)
+			g.drawImage(group.get(i).getImage(),xs[i],ys[i],null);
+
+		g.dispose();
+
+		for (int i = first; i < last; i++)
+			group.get(i).setAtlasRegion(page,xs[i],ys[i]);
+
+		pages.add(page);
+		pageTransparency.add(transparency);
+	}
+//==============================================================================
+}
@@ -1,7 +1,7 @@
 package com.them.clyde;
 //==============================================================================
 // Date Created:		24 November 2011
-// Last Updated:		19 December 2011
+// Last Updated:		16 October 2026
 //
 // File Name:			Tile.java
 // File Author:			M Matthew Hydock
@@ -23,6 +23,9 @@ public class Tile
 										// collision calculations or not.
 
 	protected boolean isRemoved;		// Is this tile scheduled for removal?
+	
+	private TileMap map;				// Map to tell when a removal is
+										// scheduled, if any.
 
 	public Tile(GameImage i, boolean c)
 	// Creates a basic tile, that may or may not be collidable.
@@ -51,7 +54,7 @@ public class Tile
 	public void setAnimation(GameAnimation a)
 	// For compatability with animated tiles, and descendents thereof.
 	{
-		System.out.println("Can't animate basic tile. Convert to AnimatedTile first.");
+		GameLog.warn("Can't animate basic tile. Convert to AnimatedTile first.");
 	}
 	
 	public GameAnimation getAnimation()
@@ -69,6 +72,8 @@ public class Tile
 	
 	public void setCollidable(boolean c)
 	// Set whether the tile should be included in collision calculations or not.
+	// A TileMap already using the tile has to be told (see
+	// TileMap.refreshSolids()).
 	{
 		isCollidable = c;
 	}
@@ -79,10 +84,30 @@ public class Tile
 		return isRemoved;
 	}
 	
+	public void setTileMap(TileMap m)
+	// Set the tilemap using this tile, which is told when the tile schedules
+	// its removal.
+	{
+		map = m;
+	}
+	
 	public void scheduleRemoval()
-	// Schedule this tile for removal from the tilemap.
+	// Schedule this tile for removal from the tilemap. The map is told, so
+	// that a tile it doesn't visit every update (see isActive()) is still
+	// removed on its next update.
 	{
 		isRemoved = true;
+		
+		if (map != null)
+			map.removalScheduled(this);
+	}
+	
+	public boolean isActive()
+	// Whether the tilemap needs to visit this tile every update, because it
+	// changes over time or can schedule its own removal. A plain tile never
+	// does either, so it is never visited.
+	{
+		return false;
 	}
 //==============================================================================
 
@@ -117,4 +142,24 @@ public class Tile
 		if (image != null && !image.isBroken())
 			image.draw(g,x,y);
 	}
+	
+	public void draw(Graphics g, int x, int y, int frame)
+	// Draw a specific frame of the tile at location (x,y). A basic tile only
+	// has one frame, so the frame is ignored.
+	{
+		draw(g,x,y);
+	}
+	
+	public void draw(Renderer r, int x, int y)
+	// Draw the tile at location (x,y) with a Renderer.
+	{
+		if (image != null && !image.isBroken())
+			image.draw(r,x,y);
+	}
+	
+	public void draw(Renderer r, int x, int y, int frame)
+	// Draw a specific frame of the tile with a Renderer.
+	{
+		draw(r,x,y);
+	}
 }
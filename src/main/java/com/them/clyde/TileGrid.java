@@ -0,0 +1,275 @@
+package com.them.clyde;
+//==============================================================================
+// Date Created:		16 October 2026
+// Last Updated:		16 October 2026
+//
+// File Name:			TileGrid.java
+// File Author:			M Matthew Hydock
+//
+// File Description:	The arrangement of tiles in a TileMap, stored compactly.
+//						Every cell holds a short: 0 for an empty cell, or the
+//						id of a kind of tile (its index in the tile list, plus
+//						one). The tiles themselves are flyweights, shared by
+//						every cell of their kind, so a cell costs two bytes
+//						instead of a reference. No cell has a tile of its own;
+//						a tile whose look depends on its cell (such as a
+//						sporadic animation) works it out from the cell's
+//						position when it is drawn.
+//
+//						The grid also keeps the set of active cells: those
+//						holding a kind of tile that has to be updated (see
+//						Tile.isActive()), in order, in a sorted array searched
+//						by binary search. It is kept up to date as cells
+//						change, so the map can find every cell that is doing
+//						something without looking at the plain ones.
+//
+//						Subclasses can keep the ids somewhere other than a
+//						short[] by overriding getCell() and putCell(); see
+//						MappedTileGrid, which streams them from disk.
+//==============================================================================
+
+import java.util.*;
+
+public class TileGrid
+{
+	public static final short EMPTY = 0;		// Id of an empty cell.
+
+	private int numRows;
+	private int numCols;
+	private short[] cells;						// Tile ids, row by row.
+
+	private ArrayList<Tile> types;				// Shared tiles, by id-1.
+	private int[] typeCount;					// Cells of each kind.
+
+	private boolean[] activeType;				// Whether each kind is active,
+	private int[] activeTypes;					// and the active kinds' ids.
+	private int[] activeCells;					// Sorted indices of the cells
+	private int numActive;						// holding an active kind.
+
+	public TileGrid(int rows, int cols, ArrayList<Tile> list)
+	// Create an empty grid, for the given list of tiles. There can be no more
+	// than Short.MAX_VALUE kinds of tile.
+	{
+		this(rows,cols,list,true);
+	}
+
+	protected TileGrid(int rows, int cols, ArrayList<Tile> list, boolean allocate)
+	// Create an empty grid, without an array of ids if a subclass stores them
+	// itself.
+	{
+		if (list.size() > Short.MAX_VALUE)
+			throw new IllegalArgumentException("Too many kinds of tile: " + list.size());
+
+		numRows = rows;
+		numCols = cols;
+		if (allocate)
+			cells = new short[rows*cols];
+
+		types = list;
+		typeCount = new int[list.size()+1];
+		typeCount[EMPTY] = rows*cols;
+
+		activeType = new boolean[list.size()+1];
+		int n = 0;
+		for (int id = 1; id <= list.size(); id++)
+			if (list.get(id-1).isActive())
+			{
+				activeType[id] = true;
+				n++;
+			}
+
+		activeTypes = new int[n];
+		for (int id = 1, k = 0; id <= list.size(); id++)
+			if (activeType[id])
+				activeTypes[k++] = id;
+
+		activeCells = new int[16];
+		numActive = 0;
+	}
+
+//==============================================================================
+// Getters.
+//==============================================================================
+	public int getNumRows()
+	{
+		return numRows;
+	}
+
+	public int getNumColumns()
+	{
+		return numCols;
+	}
+
+	public int getNumberTypes()
+	// Return the number of kinds of tile. Ids run from 1 to this number.
+	{
+		return types.size();
+	}
+
+	public Tile getType(int id)
+	// Return the shared tile for an id, or null for EMPTY.
+	{
+		return (id == EMPTY)?null:types.get(id-1);
+	}
+
+	public int getNumberCells(int id)
+	// Return the number of cells holding the given kind of tile.
+	{
+		return typeCount[id];
+	}
+
+	public boolean isActiveType(int id)
+	// Whether the given kind of tile has to be updated.
+	{
+		return activeType[id];
+	}
+
+	public int getNumberActiveTypes()
+	{
+		return activeTypes.length;
+	}
+
+	public int getActiveType(int i)
+	// Return the id of the i'th active kind of tile. Ids are kept in order.
+	{
+		return activeTypes[i];
+	}
+
+	public int getNumberActive()
+	// Return the number of cells holding an active kind of tile.
+	{
+		return numActive;
+	}
+
+	public int getActiveCell(int i)
+	// Return the cell index (row*columns + column) of the i'th active cell.
+	// Cells are kept in order, row by row.
+	{
+		return activeCells[i];
+	}
+//==============================================================================
+
+
+//==============================================================================
+// Cell methods.
+//==============================================================================
+	public int getTypeId(int row, int col)
+	// Return the id of the kind of tile in a cell, or EMPTY.
+	{
+		return getCell(row*numCols+col);
+	}
+
+	public Tile getTile(int row, int col)
+	// Return the shared tile of the kind in a cell, or null if it is empty.
+	{
+		int id = getCell(row*numCols+col);
+
+		return (id == EMPTY)?null:types.get(id-1);
+	}
+
+	public void setType(int row, int col, int id)
+	// Fill a cell with the shared tile of the given kind (or EMPTY).
+	{
+		int cell = row*numCols+col;
+		int old = getCell(cell);
+
+		typeCount[old]--;
+		putCell(cell,id);
+		typeCount[id]++;
+
+		if (activeType[old] && !activeType[id])
+			removeActive(cell);
+		else if (!activeType[old] && activeType[id])
+			addActive(cell);
+	}
+
+	public void clear(int row, int col)
+	// Empty a cell.
+	{
+		setType(row,col,EMPTY);
+	}
+
+	public void prefetch(int[] range)
+	// Hint that the given range of cells, {startX, startY, endX, endY}, is
+	// about to be used. Nothing to do when every cell is in memory.
+	{
+	}
+//==============================================================================
+
+
+//==============================================================================
+// Storage methods.
+//==============================================================================
+	protected int getCell(int cell)
+	// Read the id stored for a cell (row*columns + column).
+	{
+		return cells[cell];
+	}
+
+	protected void putCell(int cell, int id)
+	// Store the id for a cell.
+	{
+		cells[cell] = (short)id;
+	}
+
+	protected void setCount(int id, int n)
+	// Set the number of cells of the given kind, for a subclass whose cells
+	// were filled in without setType().
+	{
+		typeCount[id] = n;
+	}
+
+	protected void setActiveCells(int[] cells, int n)
+	// Set the cells holding an active kind of tile (in any order), for a
+	// subclass whose cells were filled in without setType(). The array is
+	// kept.
+	{
+		Arrays.sort(cells,0,n);
+
+		activeCells = (cells.length > 0)?cells:new int[16];
+		numActive = n;
+	}
+//==============================================================================
+
+
+//==============================================================================
+// Active set methods.
+//==============================================================================
+	private static int find(int[] cells, int n, int cell)
+	// Find a cell in the first n entries of a sorted array of cells. Returns
+	// its position, or -(insertion point)-1 if it isn't there.
+	{
+		if (n > 0 && cells[n-1] < cell)
+			return -n-1;
+
+		return Arrays.binarySearch(cells,0,n,cell);
+	}
+
+	private void addActive(int cell)
+	// Add a cell to the active set.
+	{
+		int i = find(activeCells,numActive,cell);
+		if (i >= 0)
+			return;
+		i = -(i+1);
+
+		if (numActive == activeCells.length)
+			activeCells = Arrays.copyOf(activeCells,numActive*2);
+
+		System.arraycopy(activeCells,i,activeCells,i+1,numActive-i);
+		activeCells[i] = cell;
+		numActive++;
+	}
+
+	private void removeActive(int cell)
+	// Take a cell out of the active set.
+	{
+		int i = find(activeCells,numActive,cell);
+		if (i < 0)
+			return;
+
+		System.arraycopy(activeCells,i+1,activeCells,i,numActive-i-1);
+		numActive--;
+	}
+//==============================================================================
+}
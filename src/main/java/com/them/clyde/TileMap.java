@@ -1,14 +1,15 @@
 package com.them.clyde;
 //==============================================================================
 // Date Created:		11 December 2011
-// Last Updated:		24 December 2011
+// Last Updated:		16 October 2026
 //
 // File Name:			TileMap.java
 // File Author:			M Matthew Hydock
 //
-// File Description:	A simple tile map. Contains an array of all the tiles,
-//						along with a list of the different kinds of tiles used.
-//						Handles sprite collision detection.
+// File Description:	A simple tile map. Keeps the kind of tile in each cell
+//						in a TileGrid, draws the static tiles from
+//						pre-rendered chunks, and keeps a bitset of the solid
+//						cells for sprite collision detection.
 //
 //						Partially adapted from Andrew Davison's BricksManager
 //						class. The tilemap loading has been separated into
@@ -22,12 +23,21 @@ import java.util.*;
 
 public class TileMap extends GameLayer
 {
+	private static final int CHUNK_SIZE = 8;	// Length of a side of a chunk, in tiles.
+	
+	// Chunk images kept if no other budget is set. A chunk of 64 pixel tiles
+	// is 512x512, or 1 MB.
+	public static final int DEFAULT_CHUNK_BUDGET = 64;
+
+	// Frames recorded by captureFrames() for cells that aren't animated.
+	public static final int STATIC_FRAME = -1;
+	public static final int EMPTY_FRAME = -2;
+
 	private int tile_size;				// Length of a side of a (square) tile.
 	private int numCols;				// Number of columns.
 	private int numRows;				// Number of rows.
 	
-	private ArrayList<Tile> tile_list;	// List of tiles to be used in the tilemap.
-	private Tile[][] tilemap;			// Grid of tiles that make up the tilemap.
+	private TileGrid tiles;				// Grid of tiles that make up the tilemap.
 
 	private int startX;					// Where the hero sprite starts.
 	private int startY;
@@ -38,21 +48,78 @@ public class TileMap extends GameLayer
 	private int numGems;				// Number of gems at initialization of
 										// the level.
 	
-	public TileMap(Tile[][] map, ArrayList<Tile> list, int d, int s, Component p)
-	// Create a new TileMap, using a preloaded list of tiles and a 2D array of
-	// tiles representing the tilemap itself. Also asks for the depth of the
-	// layer and the size of a tile, which will be the on-screen space reserved
-	// when drawing a single tile.
+	private int numChunkCols;			// Number of chunk columns.
+	private int chunkBudget;			// Most chunk images kept at once.
+	private LinkedHashMap<Integer,Chunk> chunks;	// Pre-rendered static
+													// tiles, in LRU order.
+	
+	// Blocks of the solid bitset kept if no other budget is set. A block is
+	// 64x64 cells, a long per row, or 512 bytes. Blocks are built when first
+	// used, so a map streamed from disk (see MappedTileGrid) isn't read in
+	// full to build the bitset.
+	public static final int DEFAULT_SOLID_BUDGET = 4096;
+	
+	// Changes of solidity kept in the log.
+	public static final int SOLID_LOG_SIZE = 1024;
+	
+	private long[][] solid;				// Bitset of solid cells, in blocks
+										// (row by row). Null if not built.
+	private int blockCols;				// Blocks across the map.
+	private int[] builtBlocks;			// Blocks built, oldest first, in a
+	private int numBuilt;				// ring, how many there are, and
+	private int nextBuilt;				// where the next one goes.
+	private boolean[] kindSolid;		// Whether each kind of tile is solid.
+	private int[] solidChanges;			// The latest cells whose solidity has
+	private long numSolidChanges;		// changed (a ring), and how many
+										// there have been in all.
+	private int numSolidResets;			// Number of whole-map refreshes.
+	
+	private GameClock clock;			// Clock that times the tile animations.
+	
+	private boolean removalsPending;	// Whether an inactive kind of tile has
+										// scheduled its removal.
+	
+	private static class Chunk
+	// A pre-rendered chunk. A chunk with no static tiles in it has no image.
+	{
+		BufferedImage image;
+		boolean dirty;
+		boolean shared;					// Image handed to a snapshot.
+	}
+	
+	public TileMap(TileGrid grid, int d, int s, Component p)
+	// Create a new TileMap, using a preloaded grid of tiles. Also asks for the
+	// depth of the layer and the size of a tile, which will be the on-screen
+	// space reserved when drawing a single tile.
 	{
 		super(d,p);
 		
-		numRows = map.length;
-		numCols = map[0].length;
+		numRows = grid.getNumRows();
+		numCols = grid.getNumColumns();
 		
 		tile_size = s;
 		
-		tile_list	= list;
-		tilemap		= map;
+		tiles = grid;
+		
+		numChunkCols = (numCols+CHUNK_SIZE-1)/CHUNK_SIZE;
+		chunkBudget = DEFAULT_CHUNK_BUDGET;
+		
+		chunks = new LinkedHashMap<Integer,Chunk>(16,0.75f,true)
+		{
+			protected boolean removeEldestEntry(Map.Entry<Integer,Chunk> eldest)
+			{
+				return size() > chunkBudget;
+			}
+		};
+		
+		for (int id = 1; id <= tiles.getNumberTypes(); id++)
+			tiles.getType(id).setTileMap(this);
+		
+		blockCols = (numCols+63)/64;
+		solid = new long[((numRows+63)/64)*blockCols][];
+		builtBlocks = new int[Math.max(1,Math.min(DEFAULT_SOLID_BUDGET,solid.length))];
+		solidChanges = new int[SOLID_LOG_SIZE];
+		refreshSolids();
 	}
 
 //==============================================================================
@@ -115,11 +182,56 @@ public class TileMap extends GameLayer
 	}
 	
 	public void setTileSize(int s)
-	// Set the size of a tile (the length of a side).
+	// Set the size of a tile (the length of a side). Every chunk will need to
+	// be re-rendered at the new size.
 	{
 		tile_size = s;
+		invalidateChunks();
 	}
 
+	public void setChunkBudget(int n)
+	// Set the most chunk images kept at once. It should be at least the number
+	// of chunks that can be seen at once, or they'll be re-rendered every time
+	// they are drawn.
+	{
+		chunkBudget = Math.max(1,n);
+		
+		for (Iterator<Integer> it = chunks.keySet().iterator(); chunks.size() > chunkBudget; )
+		{
+			it.next();
+			it.remove();
+		}
+	}
+	
+	public int getChunkBudget()
+	// Return the most chunk images kept at once.
+	{
+		return chunkBudget;
+	}
+	
+	public int getNumberChunks()
+	// Return the number of chunks kept right now.
+	{
+		return chunks.size();
+	}
+	
+	public void setSolidBudget(int n)
+	// Set the most blocks of the solid bitset kept at once. Every block is let
+	// go, to be built again when it is next used.
+	{
+		builtBlocks = new int[Math.max(1,Math.min(n,solid.length))];
+		
+		Arrays.fill(solid,null);
+		numBuilt = 0;
+		nextBuilt = 0;
+	}
+	
+	public int getSolidBudget()
+	// Return the most blocks of the solid bitset kept at once.
+	{
+		return builtBlocks.length;
+	}
+	
 	public int getMapWidth()
 	// Get the width of the whole map, in pixels.
 	{
@@ -143,6 +255,28 @@ public class TileMap extends GameLayer
 	{
 		return numCols;
 	}
+	
+	public TileGrid getTileGrid()
+	// Get the grid of tiles.
+	{
+		return tiles;
+	}
+	
+	public void setClock(GameClock c)
+	// Set the clock used by every tile animation in the map.
+	{
+		clock = c;
+		
+		for (int id = 1; id <= tiles.getNumberTypes(); id++)
+			if (tiles.getType(id).getAnimation() != null)
+				tiles.getType(id).getAnimation().setClock(c);
+	}
+	
+	public GameClock getClock()
+	// Return the clock used by the tile animations.
+	{
+		return clock;
+	}
 //==============================================================================
 
 
@@ -152,54 +286,482 @@ public class TileMap extends GameLayer
 	private void checkForGaps() throws Exception
 	// Make sure there aren't any gaps for the hero sprite to fall through.
 	{
-		for (int i = 0; i < tilemap[0].length; i++)
-			if (tilemap[tilemap.length-1][i] == null || !tilemap[tilemap.length-1][i].isCollidable())
+		for (int i = 0; i < numCols; i++)
+			if (tiles.getTile(numRows-1,i) == null || !tiles.getTile(numRows-1,i).isCollidable())
 				throw new Exception("WARNING: There is at least one gap in the floor. Please correct this.");
 	}
 
+	public int getTileRange(int xOff, int yOff, int x, int y, int w, int h, int[] range)
+	// Work out the range of tiles that overlap the given rectangle of the
+	// screen, with the given offsets, clamped to the edges of the map. The
+	// range is stored as {startX, startY, endX, endY} (inclusive), and the
+	// number of tiles in the range is returned.
+	{
+		range[0] = Math.max(0,Math.floorDiv(x-xOff,tile_size));
+		range[1] = Math.max(0,Math.floorDiv(y-yOff,tile_size));
+		range[2] = Math.min(numCols-1,Math.floorDiv(x+w-1-xOff,tile_size));
+		range[3] = Math.min(numRows-1,Math.floorDiv(y+h-1-yOff,tile_size));
+		
+		return Math.max(0,range[2]-range[0]+1)*Math.max(0,range[3]-range[1]+1);
+	}
+	
+	public void captureFrames(int[] range, int[] frames)
+	// Record the current frame of every animated tile in the range, row by
+	// row. Static tiles are recorded as STATIC_FRAME, and empty cells as
+	// EMPTY_FRAME, so that comparing two captures also shows removed tiles.
+	// Used to take a snapshot of the map for a separate render thread, and to
+	// find the tiles that changed since the last frame.
+	{
+		int k = 0;
+		
+		for (int i = range[1]; i <= range[3]; i++)
+			for (int j = range[0]; j <= range[2]; j++, k++)
+			{
+				Tile t = tiles.getTile(i,j);
+				
+				if (t == null)
+					frames[k] = EMPTY_FRAME;
+				else if (isStatic(t))
+					frames[k] = STATIC_FRAME;
+				else
+					frames[k] = getFrame(t,i,j);
+			}
+	}
+	
+	public void captureTypes(int[] range, short[] ids)
+	// Record the kind of tile in every cell of the range, row by row (see
+	// TileGrid), so that the range can be drawn without looking at the map.
+	{
+		int k = 0;
+		
+		for (int i = range[1]; i <= range[3]; i++)
+			for (int j = range[0]; j <= range[2]; j++, k++)
+				ids[k] = (short)tiles.getTypeId(i,j);
+	}
+	
+	public int getChunkRange(int[] range, int[] chunkRange)
+	// Work out the range of chunks covering a range of tiles, stored as
+	// {startX, startY, endX, endY} (inclusive), and return the number of
+	// chunks in it.
+	{
+		chunkRange[0] = range[0]/CHUNK_SIZE;
+		chunkRange[1] = range[1]/CHUNK_SIZE;
+		chunkRange[2] = (range[2] < range[0])?chunkRange[0]-1:range[2]/CHUNK_SIZE;
+		chunkRange[3] = (range[3] < range[1])?chunkRange[1]-1:range[3]/CHUNK_SIZE;
+		
+		return Math.max(0,chunkRange[2]-chunkRange[0]+1)*Math.max(0,chunkRange[3]-chunkRange[1]+1);
+	}
+	
+	public void captureChunks(int[] chunkRange, BufferedImage[] images)
+	// Record the image of every chunk in the range, row by row, rendering any
+	// that have changed. Null is recorded for a chunk with no static tiles.
+	// The images are never drawn over afterwards, so they can be drawn from
+	// another thread.
+	{
+		int k = 0;
+		
+		for (int i = chunkRange[1]; i <= chunkRange[3]; i++)
+			for (int j = chunkRange[0]; j <= chunkRange[2]; j++, k++)
+			{
+				Chunk c = getChunk(i,j);
+				
+				c.shared = true;
+				images[k] = c.image;
+			}
+	}
+	
+	public int getFrame(Tile t, int row, int col)
+	// The frame an animated tile should show in the given cell right now: its
+	// animation's current frame, or, for a sporadic tile, the frame for the
+	// cell's own phase.
+	{
+		GameAnimation anim = t.getAnimation();
+		
+		if (anim.isSporadic())
+			return anim.getFrameAt(cellSeed(row,col));
+		
+		return anim.getCurrentFrame();
+	}
+	
+	private static int cellSeed(int row, int col)
+	// A seed for a cell's animation phase, mixed from its position.
+	{
+		return row*0x9E3779B1 + col*0x7FEB352D;
+	}
+	
+	private int[] getVisibleRange()
+	// The range of tiles that can be seen with the map's current offsets. The
+	// camera's, if the map has one; otherwise worked out from the view.
+	{
+		if (camera != null)
+			return camera.getVisibleRange();
+		
+		int[] range = new int[4];
+		getTileRange(xOffset,yOffset,0,0,getViewWidth(),getViewHeight(),range);
+		
+		return range;
+	}
+	
 	public void display(Graphics g)
-	// Draw all of the tiles that should be at least partly visible.
+	// Draw all of the tiles that should be at least partly visible, using the
+	// map's current offsets and animation frames.
 	{
-		// Range of tiles to draw.
-		int startX = -xOffset/tile_size;
-		int startY = -yOffset/tile_size;
-		int endX = parent.getWidth()/tile_size + startX;
-		int endY = parent.getHeight()/tile_size + startY;
+		int[] range = getVisibleRange();
 		
-		System.out.println(startX + "  " + endX + "  " + tilemap[0].length);
-		System.out.println(startY + "  " + endY + "  " + tilemap.length);
+		if (GameLog.isDebugEnabled())
+		{
+			GameLog.debug(range[0] + "  " + range[2] + "  " + numCols);
+			GameLog.debug(range[1] + "  " + range[3] + "  " + numRows);
+			GameLog.debug(xOffset + "  " + yOffset);
+		}
+		
+		display(g,xOffset,yOffset,range,null);
+	}
+	
+	public void display(Graphics g, int xOff, int yOff, int[] range, int[] frames)
+	// Draw the given range of tiles, shifted by the given offsets. Static
+	// tiles are drawn as pre-rendered chunks, and animated tiles are drawn
+	// individually on top of them. If a list of frames is provided (see
+	// captureFrames()), animated tiles are drawn with those frames, instead of
+	// their animations' current frames. Must be called from the thread
+	// updating the map; a render thread should draw a snapshot instead.
+	{
+		int startX = range[0];
+		int startY = range[1];
+		int endX = range[2];
+		int endY = range[3];
 		
-		// Calculate the real offset for the section of the tilemap that needs
-		// to be drawn.
-		int newXOffset = xOffset + startX*tile_size;
-		int newYOffset = yOffset + startY*tile_size;
+		// Nothing of the map is in view.
+		if (endX < startX || endY < startY)
+			return;
 		
-		System.out.println(newXOffset + "  " + newYOffset);
+		// Draw the chunks that overlap the range of tiles, re-rendering any
+		// that have changed since they were last drawn.
+		int chunkSide = CHUNK_SIZE*tile_size;
+		for (int i = startY/CHUNK_SIZE; i <= endY/CHUNK_SIZE; i++)
+			for (int j = startX/CHUNK_SIZE; j <= endX/CHUNK_SIZE; j++)
+			{
+				BufferedImage im = getChunk(i,j).image;
+				
+				if (im != null)
+					g.drawImage(im,j*chunkSide+xOff,i*chunkSide+yOff,null);
+			}
 		
-		// Draw the desired range of tiles, shifting them appropriately.
+		// Draw the animated tiles in the range, shifting them appropriately.
+		int k = 0;
 		for (int i = startY; i <= endY; i++)
-			for (int j = startX; j <= endX; j++)
-				if (tilemap[i][j] != null)
-					tilemap[i][j].draw(g,(j-startX)*tile_size+newXOffset,(i-startY)*tile_size+newYOffset);
+			for (int j = startX; j <= endX; j++, k++)
+			{
+				Tile t = tiles.getTile(i,j);
+				
+				if (t == null || isStatic(t))
+					continue;
+				
+				if (frames == null && t.getAnimation().isSporadic())
+					t.draw(g,j*tile_size+xOff,i*tile_size+yOff,getFrame(t,i,j));
+				else if (frames == null)
+					t.draw(g,j*tile_size+xOff,i*tile_size+yOff);
+				else if (frames[k] >= 0)
+					t.draw(g,j*tile_size+xOff,i*tile_size+yOff,frames[k]);
+			}
+	}
+	
+	public void display(Graphics g, int xOff, int yOff, RenderSnapshot s)
+	// Draw the tiles captured in a snapshot, shifted by the given offsets:
+	// the chunk images it holds, then its animated tiles, with their
+	// captured frames. Nothing but the snapshot and the (unchanging) kinds
+	// of tile is looked at, so this can be called from a render thread.
+	{
+		int[] range = s.getTileRange();
+		int[] chunkRange = s.getChunkRange();
+		short[] ids = s.getTileTypes();
+		int[] frames = s.getTileFrames();
+		BufferedImage[] images = s.getChunkImages();
+		int size = s.getTileSize();
+		
+		int chunkSide = CHUNK_SIZE*size;
+		int k = 0;
+		for (int i = chunkRange[1]; i <= chunkRange[3]; i++)
+			for (int j = chunkRange[0]; j <= chunkRange[2]; j++, k++)
+				if (images[k] != null)
+					g.drawImage(images[k],j*chunkSide+xOff,i*chunkSide+yOff,null);
+		
+		k = 0;
+		for (int i = range[1]; i <= range[3]; i++)
+			for (int j = range[0]; j <= range[2]; j++, k++)
+				if (ids[k] != TileGrid.EMPTY && frames[k] >= 0)
+					tiles.getType(ids[k]).draw(g,j*size+xOff,i*size+yOff,frames[k]);
+	}
+	
+	public void display(Renderer r)
+	// Draw all of the tiles that should be at least partly visible with a
+	// Renderer, using the map's current offsets and animation frames.
+	{
+		int[] range = getVisibleRange();
+		
+		display(r,xOffset,yOffset,range,null);
+	}
+	
+	public void display(Renderer r, int xOff, int yOff, int[] range, int[] frames)
+	// Draw the given range of tiles with a Renderer, shifted by the given
+	// offsets. Every tile is drawn on its own, straight from its image (or
+	// atlas page), instead of from the pre-rendered chunks; a renderer that
+	// batches its drawing would rather have many small copies from one atlas
+	// page than a few large copies from many chunk images. Must be called from
+	// the thread updating the map.
+	{
+		int k = 0;
+		for (int i = range[1]; i <= range[3]; i++)
+			for (int j = range[0]; j <= range[2]; j++, k++)
+			{
+				Tile t = tiles.getTile(i,j);
+				
+				if (t == null)
+					continue;
+				
+				int x = j*tile_size+xOff;
+				int y = i*tile_size+yOff;
+				
+				if (isStatic(t))
+					t.draw(r,x,y);
+				else if (frames == null && t.getAnimation().isSporadic())
+					t.draw(r,x,y,getFrame(t,i,j));
+				else if (frames == null)
+					t.draw(r,x,y);
+				else if (frames[k] >= 0)
+					t.draw(r,x,y,frames[k]);
+			}
+	}
+	
+	public void display(Renderer r, int xOff, int yOff, RenderSnapshot s)
+	// Draw the tiles captured in a snapshot with a Renderer, each on its own,
+	// from the captured kinds of tile and frames. Can be called from a render
+	// thread.
+	{
+		int[] range = s.getTileRange();
+		short[] ids = s.getTileTypes();
+		int[] frames = s.getTileFrames();
+		int size = s.getTileSize();
+		
+		int k = 0;
+		for (int i = range[1]; i <= range[3]; i++)
+			for (int j = range[0]; j <= range[2]; j++, k++)
+			{
+				if (ids[k] == TileGrid.EMPTY)
+					continue;
+				
+				Tile t = tiles.getType(ids[k]);
+				int x = j*size+xOff;
+				int y = i*size+yOff;
+				
+				if (frames[k] == STATIC_FRAME)
+					t.draw(r,x,y);
+				else if (frames[k] >= 0)
+					t.draw(r,x,y,frames[k]);
+			}
 	}
 	
 	public void update()
-	// Update all of the tiles in the tilemap. If a removal has been scheduled,
-	// remove the tile.
+	// Update the active tiles in the tilemap: each active kind of tile once,
+	// if any cell still uses it. If a removal has been scheduled, the tile is
+	// removed from every cell of its kind. Inactive kinds are only looked at
+	// when one of them has scheduled its removal.
 	{
-		for (int i = 0; i < tilemap.length; i++)
-			for (int j = 0; j < tilemap[0].length; j++)
+		for (int k = 0; k < tiles.getNumberActiveTypes(); k++)
+		{
+			int id = tiles.getActiveType(k);
+			Tile t = tiles.getType(id);
+			
+			if (tiles.getNumberCells(id) == 0)
+				continue;
+			else if (!t.isRemovalScheduled())
+				t.update();
+			else
+				removeType(id);
+		}
+		
+		if (removalsPending)
+		{
+			removalsPending = false;
+			
+			for (int id = 1; id <= tiles.getNumberTypes(); id++)
+				if (!tiles.isActiveType(id) && tiles.getType(id).isRemovalScheduled())
+					removeInactiveType(id);
+		}
+	}
+	
+	public void removalScheduled(Tile t)
+	// Called by a tile of this map when it schedules its removal. Active tiles
+	// are checked every update anyway; any other kind is removed on the next
+	// update.
+	{
+		if (!t.isActive())
+			removalsPending = true;
+	}
+	
+	private void removeType(int id)
+	// Remove every tile of the given (active) kind from the map, going
+	// through the active cells only.
+	{
+		for (int i = 0; i < tiles.getNumberActive(); i++)
+		{
+			int cell = tiles.getActiveCell(i);
+			int row = cell/numCols;
+			int col = cell%numCols;
+			
+			if (tiles.getTypeId(row,col) == id)
 			{
-				if (tilemap[i][j] != null)
+				// The cell leaves the active set.
+				removeTile(col,row);
+				i--;
+			}
+		}
+	}
+	
+	private void removeInactiveType(int id)
+	// Remove every tile of the given (inactive) kind from the map. Those cells
+	// aren't tracked, so the map is searched, stopping once the last of them
+	// has been found.
+	{
+		for (int i = 0; i < numRows && tiles.getNumberCells(id) > 0; i++)
+			for (int j = 0; j < numCols; j++)
+				if (tiles.getTypeId(i,j) == id)
+					removeTile(j,i);
+	}
+//==============================================================================
+
+
+//==============================================================================
+// Chunk management methods.
+//==============================================================================
+	private boolean isStatic(Tile t)
+	// Whether a tile can be pre-rendered into a chunk (it isn't animated).
+	{
+		return t.getAnimation() == null;
+	}
+	
+	private boolean isOpaque(Tile t)
+	// Whether a tile is static, and covers its whole cell with opaque pixels.
+	// Only single images are checked; a strip's size is not its frame size.
+	{
+		if (t == null || !isStatic(t))
+			return false;
+		
+		GameImage im = t.getImage();
+		
+		return	im != null && im.getClass() == GameImage.class &&
+				im.getTransparency() == Transparency.OPAQUE &&
+				im.getWidth() >= tile_size && im.getHeight() >= tile_size;
+	}
+	
+	private int getChunkTransparency(int row, int col)
+	// A chunk can be opaque if it lies completely within the map, and every
+	// cell in it is covered by an opaque tile.
+	{
+		if ((row+1)*CHUNK_SIZE > numRows || (col+1)*CHUNK_SIZE > numCols)
+			return Transparency.TRANSLUCENT;
+		
+		for (int i = row*CHUNK_SIZE; i < (row+1)*CHUNK_SIZE; i++)
+			for (int j = col*CHUNK_SIZE; j < (col+1)*CHUNK_SIZE; j++)
+				if (!isOpaque(tiles.getTile(i,j)))
+					return Transparency.TRANSLUCENT;
+		
+		return Transparency.OPAQUE;
+	}
+	
+	private Chunk getChunk(int row, int col)
+	// Return a chunk, rendering it first if it isn't being kept, or has
+	// changed.
+	{
+		Integer key = row*numChunkCols + col;
+		Chunk c = chunks.get(key);
+		
+		if (c == null)
+		{
+			c = new Chunk();
+			c.dirty = true;
+			chunks.put(key,c);
+		}
+		
+		if (c.dirty)
+			bakeChunk(row,col,c);
+		
+		return c;
+	}
+	
+	private void bakeChunk(int row, int col, Chunk c)
+	// Render all of the static tiles within a chunk into the chunk's image. If
+	// the chunk doesn't have any static tiles, it doesn't get an image.
+	{
+		c.dirty = false;
+		
+		int startX = col*CHUNK_SIZE;
+		int startY = row*CHUNK_SIZE;
+		int endX = Math.min(numCols,startX+CHUNK_SIZE);
+		int endY = Math.min(numRows,startY+CHUNK_SIZE);
+		
+		int transparency = getChunkTransparency(row,col);
+		
+		// Make a new image if the chunk's transparency class has changed, or
+		// if its old image may still be drawn by a render thread.
+		if (c.image != null && (c.shared || c.image.getTransparency() != transparency))
+			c.image = null;
+		c.shared = false;
+		
+		Graphics2D g2d = null;
+		
+		for (int i = startY; i < endY; i++)
+			for (int j = startX; j < endX; j++)
+				if (tiles.getTile(i,j) != null && isStatic(tiles.getTile(i,j)))
 				{
-					if (tilemap[i][j].isRemovalScheduled())
-						tilemap[i][j] = null;
-					else
-						tilemap[i][j].update();
+					if (g2d == null)
+					// First static tile found, so prepare a blank image.
+					{
+						if (c.image == null)
+							c.image = GameImage.createCompatibleImage(	CHUNK_SIZE*tile_size,
+																		CHUNK_SIZE*tile_size,
+																		transparency);
+						
+						g2d = c.image.createGraphics();
+						
+						// An opaque chunk is about to be covered completely.
+						if (transparency != Transparency.OPAQUE)
+						{
+							g2d.setComposite(AlphaComposite.Clear);
+							g2d.fillRect(0,0,CHUNK_SIZE*tile_size,CHUNK_SIZE*tile_size);
+							g2d.setComposite(AlphaComposite.SrcOver);
+						}
+					}
+					
+					tiles.getTile(i,j).draw(g2d,(j-startX)*tile_size,(i-startY)*tile_size);
 				}
-			}
+		
+		if (g2d != null)
+			g2d.dispose();
+		else
+		// Nothing static in this chunk, there's no need to keep an image.
+			c.image = null;
+	}
+	
+	public void invalidateTile(int x, int y)
+	// The tile located at (x,y) has changed in appearance; re-render its chunk
+	// the next time it is drawn.
+	{
+		if (x >= 0 && x < numCols && y >= 0 && y < numRows)
+		{
+			Chunk c = chunks.get((y/CHUNK_SIZE)*numChunkCols + x/CHUNK_SIZE);
 			
-//		System.out.println("Tilemap updated.");
+			// A chunk that isn't kept will be rendered afresh anyway.
+			if (c != null)
+				c.dirty = true;
+		}
+	}
+	
+	public void invalidateChunks()
+	// Re-render every chunk the next time it is drawn. Chunk images are thrown
+	// away, in case the tile size has changed.
+	{
+		chunks.clear();
 	}
 //==============================================================================
 
@@ -211,7 +773,7 @@ public class TileMap extends GameLayer
 	// Simple method to obtain a tile, given a global x and y.
 	{
 		if (x >= 0 && x < getMapWidth() && y >= 0 && y < getMapHeight())
-			return tilemap[y/tile_size][x/tile_size];
+			return tiles.getTile(y/tile_size,x/tile_size);
 			
 		return null;
 	}
@@ -219,18 +781,397 @@ public class TileMap extends GameLayer
 	public boolean insideSolidTile(int x, int y)
 	// Check if the given coordinate is inside a solid brick.
 	{
-		Tile t = getTileAt(x,y);
-		if (t != null)
-			return t.isCollidable();
+		if (x >= 0 && x < getMapWidth() && y >= 0 && y < getMapHeight())
+			return isSolid(y/tile_size,x/tile_size);
 			
 		return false;
 	}
 	
+	public boolean isSolid(int row, int col)
+	// Whether a cell holds a solid brick. Cells outside the map never do.
+	{
+		if (row < 0 || row >= numRows || col < 0 || col >= numCols)
+			return false;
+		
+		return (solidWord(row,col >>> 6) & (1L << col)) != 0;
+	}
+	
+	public int findSolidInRow(int row, int from, int to)
+	// Find the first solid cell in a row, going from column 'from' to column
+	// 'to' (in either direction), a word of the bitset at a time. Returns its
+	// column, or -1 if there isn't one.
+	{
+		if (row < 0 || row >= numRows)
+			return -1;
+		
+		if (from <= to)
+		{
+			from = Math.max(0,from);
+			to = Math.min(numCols-1,to);
+			if (from > to)
+				return -1;
+			
+			long bits = solidWord(row,from >>> 6) & (-1L << from);
+			for (int w = from >>> 6; ; bits = solidWord(row,++w))
+			{
+				if (w == to >>> 6)
+					bits &= -1L >>> (63 - (to & 63));
+				if (bits != 0)
+					return (w << 6) + Long.numberOfTrailingZeros(bits);
+				if (w == to >>> 6)
+					return -1;
+			}
+		}
+		else
+		{
+			from = Math.min(numCols-1,from);
+			to = Math.max(0,to);
+			if (from < to)
+				return -1;
+			
+			long bits = solidWord(row,from >>> 6) & (-1L >>> (63 - (from & 63)));
+			for (int w = from >>> 6; ; bits = solidWord(row,--w))
+			{
+				if (w == to >>> 6)
+					bits &= -1L << to;
+				if (bits != 0)
+					return (w << 6) + 63 - Long.numberOfLeadingZeros(bits);
+				if (w == to >>> 6)
+					return -1;
+			}
+		}
+	}
+	
+	public int findSolidInColumn(int col, int from, int to)
+	// Find the first solid cell in a column, going from row 'from' to row 'to'
+	// (in either direction). Returns its row, or -1 if there isn't one.
+	{
+		if (col < 0 || col >= numCols)
+			return -1;
+		
+		if (Math.max(from,to) < 0 || Math.min(from,to) >= numRows)
+			return -1;
+		
+		int step = (from <= to)?1:-1;
+		from = Math.max(0,Math.min(numRows-1,from));
+		to = Math.max(0,Math.min(numRows-1,to));
+		
+		long bit = 1L << col;
+		for (int i = from, w = col >>> 6; ; i += step)
+		{
+			if ((solidWord(i,w) & bit) != 0)
+				return i;
+			if (i == to)
+				return -1;
+		}
+	}
+	
+	public double raycast(double x0, double y0, double x1, double y1, int[] cell)
+	// Follow a line from (x0,y0) to (x1,y1) through the map, and find the
+	// first solid cell it passes through. Returns the fraction of the line
+	// before it enters that cell (1 if nothing is in the way), and stores the
+	// cell in cell, as {column, row} ({-1,-1} if nothing was hit).
+	//
+	// The line is followed a row at a time: the columns it crosses within a
+	// row are found directly, and searched with findSolidInRow(), so a long,
+	// shallow line costs a few words per row rather than a step per cell.
+	{
+		cell[0] = -1;
+		cell[1] = -1;
+		
+		double dx = x1-x0;
+		double dy = y1-y0;
+		int stepY = (dy > 0)?1:(dy < 0)?-1:0;
+		
+		int row = (dy < 0)?lastCell(y0):firstCell(y0);
+		double enter = 0;
+		
+		while (enter < 1)
+		{
+			// When the line leaves this row.
+			double exit = 1;
+			if (stepY != 0)
+				exit = Math.min(1,((row+(stepY > 0?1:0))*tile_size - y0)/dy);
+			
+			if (row >= 0 && row < numRows)
+			{
+				double xa = x0+dx*enter;
+				double xb = x0+dx*exit;
+				int from = (dx < 0)?lastCell(xa):firstCell(xa);
+				int to = (dx > 0)?lastCell(xb):(dx < 0)?firstCell(xb):from;
+				
+				// A line ending exactly on a boundary doesn't reach past it.
+				if (dx > 0)
+					to = Math.max(from,to);
+				else if (dx < 0)
+					to = Math.min(from,to);
+				
+				int col = findSolidInRow(row,from,to);
+				if (col >= 0)
+				{
+					cell[0] = col;
+					cell[1] = row;
+					
+					// The line enters the cell through its side, or through the
+					// row boundary.
+					double t = enter;
+					if (col != from)
+						t = Math.max(t,((col+(dx < 0?1:0))*tile_size - x0)/dx);
+					
+					return t;
+				}
+			}
+			else if ((row < 0 && stepY <= 0) || (row >= numRows && stepY >= 0))
+			// Left the map for good.
+				return 1;
+			
+			enter = exit;
+			row += stepY;
+		}
+		
+		return 1;
+	}
+	
+	public boolean hasLineOfSight(double x0, double y0, double x1, double y1)
+	// Whether nothing solid lies on the line between two points.
+	{
+		return raycast(x0,y0,x1,y1,new int[2]) >= 1;
+	}
+	
+	public void refreshSolid(int x, int y)
+	// Work out again whether the cell at (x,y) is solid, after its tile has
+	// been changed, or made solid or not solid. removeTile() does this itself;
+	// anything else that changes a cell has to call it (or refreshSolids()).
+	{
+		if (x < 0 || x >= numCols || y < 0 || y >= numRows)
+			return;
+		
+		Tile t = tiles.getTile(y,x);
+		long[] block = solid[(y >>> 6)*blockCols + (x >>> 6)];
+		
+		// A block that isn't built will be built from the tiles as they are,
+		// but what the cell was isn't known, so it is logged regardless.
+		boolean changed = true;
+		
+		if (block != null)
+		{
+			boolean was = (block[y & 63] & (1L << x)) != 0;
+			
+			if (t != null && t.isCollidable())
+				block[y & 63] |= 1L << x;
+			else
+				block[y & 63] &= ~(1L << x);
+			
+			changed = was != ((block[y & 63] & (1L << x)) != 0);
+		}
+		
+		if (changed)
+		// Log the change.
+		{
+			solidChanges[(int)(numSolidChanges % SOLID_LOG_SIZE)] = y*numCols + x;
+			numSolidChanges++;
+		}
+	}
+	
+	public long getNumberSolidChanges()
+	// Return the number of times a single cell has become solid or not solid.
+	// Also serves as the generation of the log: it only ever goes up.
+	{
+		return numSolidChanges;
+	}
+	
+	public long getFirstSolidChange()
+	// Return the number of the oldest change still in the log. A reader that
+	// has seen fewer changes than this has missed some, and has to start over.
+	{
+		return Math.max(0,numSolidChanges - SOLID_LOG_SIZE);
+	}
+	
+	public int getSolidChange(long i)
+	// Return the cell index (row*columns + column) of the i'th cell to change,
+	// which must still be in the log.
+	{
+		if (i < getFirstSolidChange() || i >= numSolidChanges)
+			throw new IndexOutOfBoundsException("Change " + i + " is not in the log.");
+		
+		return solidChanges[(int)(i % SOLID_LOG_SIZE)];
+	}
+	
+	public int getNumberSolidResets()
+	// Return the number of times the whole map has been refreshed, after which
+	// any cell may have changed.
+	{
+		return numSolidResets;
+	}
+	
+	public void refreshSolids()
+	// Work out again which cells are solid, for the whole map. Needed after a
+	// shared tile has been made solid or not solid, since every cell of its
+	// kind changes. Every block of the bitset is let go, to be built again
+	// when it is next used.
+	{
+		kindSolid = new boolean[tiles.getNumberTypes()+1];
+		for (int id = 1; id <= tiles.getNumberTypes(); id++)
+			kindSolid[id] = tiles.getType(id).isCollidable();
+		
+		Arrays.fill(solid,null);
+		numBuilt = 0;
+		nextBuilt = 0;
+		
+		numSolidResets++;
+	}
+	
+	private long solidWord(int row, int w)
+	// The word of the bitset holding columns w*64 to w*64+63 of a row,
+	// building its block if need be.
+	{
+		long[] block = solid[(row >>> 6)*blockCols + w];
+		
+		if (block == null)
+			block = buildBlock(row >>> 6,w);
+		
+		return block[row & 63];
+	}
+	
+	private long[] buildBlock(int blockRow, int blockCol)
+	// Work out which cells of a block are solid, going by kind of tile. If
+	// the budget of blocks is spent, the oldest is let go first.
+	{
+		if (numBuilt == builtBlocks.length)
+			solid[builtBlocks[nextBuilt]] = null;
+		else
+			numBuilt++;
+		
+		int index = blockRow*blockCols + blockCol;
+		builtBlocks[nextBuilt] = index;
+		nextBuilt = (nextBuilt+1)%builtBlocks.length;
+		
+		long[] block = new long[64];
+		int endY = Math.min(numRows,(blockRow+1)*64);
+		int endX = Math.min(numCols,(blockCol+1)*64);
+		
+		for (int i = blockRow*64; i < endY; i++)
+			for (int j = blockCol*64; j < endX; j++)
+				if (kindSolid[tiles.getTypeId(i,j)])
+					block[i & 63] |= 1L << j;
+		
+		solid[index] = block;
+		
+		return block;
+	}
+	
+	public double sweep(double x, double y, double w, double h, double dx, double dy, int[] normal)
+	// Move a box, with its top left corner at (x,y), by (dx,dy), and find the
+	// first solid brick it runs into. Returns the fraction of the move made
+	// before touching the brick (1 if nothing is in the way), and stores the
+	// normal of the face that was hit in normal, as {x, y}: {-1,0} for a wall
+	// on the right, {0,-1} for a floor, and so on ({0,0} if nothing was hit).
+	//
+	// The box is stepped from one tile boundary to the next, in the order
+	// they are crossed, and only the row or column of cells it moves into is
+	// checked each time, so only the cells the box actually passes through are
+	// looked at. Cells the box already overlaps are ignored, so a box stuck in
+	// a wall can always move out of it.
+	{
+		normal[0] = 0;
+		normal[1] = 0;
+		
+		int stepX = (dx > 0)?1:(dx < 0)?-1:0;
+		int stepY = (dy > 0)?1:(dy < 0)?-1:0;
+		
+		// The column and row the leading edges are in, and the time at which
+		// they reach the next boundary.
+		int col = (stepX > 0)?lastCell(x+w):firstCell(x);
+		int row = (stepY > 0)?lastCell(y+h):firstCell(y);
+		double nextX = (stepX == 0)?Double.POSITIVE_INFINITY:((col+(stepX > 0?1:0))*tile_size - (stepX > 0?x+w:x))/dx;
+		double nextY = (stepY == 0)?Double.POSITIVE_INFINITY:((row+(stepY > 0?1:0))*tile_size - (stepY > 0?y+h:y))/dy;
+		double deltaX = (stepX == 0)?0:tile_size/Math.abs(dx);
+		double deltaY = (stepY == 0)?0:tile_size/Math.abs(dy);
+		
+		while (nextX < 1 || nextY < 1)
+		{
+			if (nextX <= nextY)
+			// The box moves into the next column; check the rows it spans.
+			{
+				double t = Math.max(0,nextX);
+				col += stepX;
+				
+				int first = firstCell(y+dy*t);
+				int last = Math.max(first,lastCell(y+dy*t+h));
+				if (stepY != 0)
+				// Include the row just moved into, if it was at the same time.
+				{
+					first = Math.min(first,row);
+					last = Math.max(last,row);
+				}
+				
+				if (findSolidInColumn(col,first,last) >= 0)
+				{
+					normal[0] = -stepX;
+					return t;
+				}
+				
+				nextX += deltaX;
+			}
+			else
+			// The box moves into the next row; check the columns it spans.
+			{
+				double t = Math.max(0,nextY);
+				row += stepY;
+				
+				int first = firstCell(x+dx*t);
+				int last = Math.max(first,lastCell(x+dx*t+w));
+				if (stepX != 0)
+				// Include the column just moved into, if it was at the same
+				// time.
+				{
+					first = Math.min(first,col);
+					last = Math.max(last,col);
+				}
+				
+				if (findSolidInRow(row,first,last) >= 0)
+				{
+					normal[1] = -stepY;
+					return t;
+				}
+				
+				nextY += deltaY;
+			}
+		}
+		
+		return 1;
+	}
+	
+	private int firstCell(double edge)
+	// The row or column of cells starting at a box's top or left edge. An edge
+	// within a hair of a tile boundary counts as on it.
+	{
+		return (int)Math.floor(edge/tile_size + 1e-9);
+	}
+	
+	private int lastCell(double edge)
+	// The row or column of cells ending at a box's bottom or right edge. The
+	// box doesn't reach into the cell past a boundary it is touching.
+	{
+		return (int)Math.ceil(edge/tile_size - 1e-9) - 1;
+	}
+	
 	public void removeTile(int x, int y)
-	// Remove the tile located at (x,y).
+	// Remove the tile located at (x,y). If it was a static tile, its chunk
+	// needs to be re-rendered.
 	{
 		if (x >= 0 && x < numCols && y >= 0 && y < numRows)
-			tilemap[y][x] = null;
+		{
+			Tile t = tiles.getTile(y,x);
+			
+			// Clear the cell before marking the chunk, so that a chunk being
+			// re-rendered on another thread can't miss the removal.
+			tiles.clear(y,x);
+			refreshSolid(x,y);
+			
+			if (t != null && isStatic(t))
+				invalidateTile(x,y);
+		}
 	}
 //==============================================================================
 }
@@ -0,0 +1,631 @@
+package com.them.clyde;
+//==============================================================================
+// Date Created:		16 October 2026
+// Last Updated:		16 October 2026
+//
+// File Name:			TileMapCheck.java
+// File Author:			M Matthew Hydock
+//
+// File Description:	Checks the fast collision queries of TileMap against
+//						slow, obviously correct versions of them, on randomly
+//						filled maps. Each query is asked many times, with
+//						random arguments, and every answer that differs is
+//						reported.
+//
+//						Checked so far:
+//							sweep		TileMap.sweep(), against testing
+//										the moving box against every solid
+//										cell of the map
+//							solid		isSolid(), insideSolidTile(),
+//										findSolidInRow() and
+//										findSolidInColumn(), against
+//										asking each cell's tile
+//							raycast		raycast(), against testing the line
+//										against every solid cell of the map
+//							path		PathFinder: the cost of the path
+//										found by findPath(), against the
+//										distance fields, and the fields of
+//										a finder kept as the map changes,
+//										against those of a new one
+//
+//						Between rounds of queries, cells are cleared and
+//						filled, and a kind of tile is made solid or not solid,
+//						so the bitset of solid cells is checked as it is kept
+//						up to date, and not only as it is first built. It is
+//						given a small budget of blocks, so blocks are let go
+//						and built again all the time. Before the last round,
+//						more cells are changed than the log of changes holds,
+//						so a PathFinder that missed some has to start over.
+//
+//						Options, all in the form name=value:
+//							seed=<n>		seed for the maps and queries
+//							size=<w>x<h>	size of the maps, in tiles
+//							maps=<n>		number of maps to fill
+//							queries=<n>		queries of each kind per map
+//							budget=<n>		blocks of the solid bitset kept
+//							paths=<n>		paths found per map
+//
+//						Exits with status 1 if any answer differs.
+//==============================================================================
+
+import java.util.*;
+
+public class TileMapCheck
+{
+//==============================================================================
+// Constants.
+//==============================================================================
+	private static final int TILE_SIZE = 32;
+	private static final double FILL = 0.3;			// Share of solid cells.
+
+	private static final long DEFAULT_SEED = 1;
+	private static final int DEFAULT_COLUMNS = 150;	// More than two words of
+	private static final int DEFAULT_ROWS = 70;		// the bitset, each way.
+	private static final int DEFAULT_MAPS = 10;
+	private static final int DEFAULT_QUERIES = 20000;
+	private static final int DEFAULT_BUDGET = 4;		// Of the 6 blocks.
+	private static final int DEFAULT_PATHS = 400;
+
+	private static final int GOALS = 3;				// Kept as fields, per map.
+
+	private static final int ROUNDS = 4;				// Of queries, per map.
+	private static final int CHANGES = 200;			// Between rounds.
+
+	// Times closer than this count as the same.
+	private static final double EPSILON = 1e-9;
+
+	// Failures reported in full, per kind of query.
+	private static final int MAX_REPORTS = 5;
+//==============================================================================
+
+
+//==============================================================================
+// Internal objects and variables.
+//==============================================================================
+	private Random random;
+	private TileMap map;
+	private Tile solid;
+	private Tile empty;
+
+	private PathFinder finder;						// Kept as the map changes.
+	private int[] goals;							// As {x, y, x, y, ...}.
+
+	private int numQueries;
+	private int numFailures;
+	private HashMap<String,Integer> numReports;
+//==============================================================================
+
+	public TileMapCheck(long seed)
+	// Create a checker whose maps and queries come from the given seed.
+	{
+		random = new Random(seed);
+		numReports = new HashMap<String,Integer>();
+
+		solid = new Tile(null,true);
+		empty = new Tile(null,false);
+	}
+
+//==============================================================================
+// Maps.
+//==============================================================================
+	public TileMap fillMap(int cols, int rows)
+	// Make a new map of solid cells, empty cells, and cells holding a tile
+	// that isn't solid, at random.
+	{
+		ArrayList<Tile> list = new ArrayList<Tile>();
+		list.add(solid);
+		list.add(empty);
+
+		TileGrid grid = new TileGrid(rows,cols,list);
+
+		for (int i = 0; i < rows; i++)
+			for (int j = 0; j < cols; j++)
+			{
+				double p = random.nextDouble();
+
+				if (p < FILL)
+					grid.setType(i,j,1);
+				else if (p < FILL+0.1)
+					grid.setType(i,j,2);
+			}
+
+		empty.setCollidable(false);
+		map = new TileMap(grid,0,TILE_SIZE,null);
+
+		// A jump of 1x2 to 4x10 tiles.
+		finder = new PathFinder(map);
+		finder.setJumpSize(1+random.nextInt(4),2+random.nextInt(9));
+
+		goals = new int[GOALS*2];
+		for (int i = 0; i < GOALS; i++)
+		{
+			goals[i*2] = random.nextInt(cols);
+			goals[i*2+1] = random.nextInt(rows);
+		}
+
+		return map;
+	}
+
+	public void changeMap(int n)
+	// Make n changes to the map, clearing and filling cells at random, and
+	// check each cell as it is changed. Now and then, the kind of tile that
+	// isn't solid is made solid (or back again) first. That lets go of the
+	// whole bitset, so it isn't done often, or the changes to cells would
+	// hardly ever find a block already built.
+	{
+		TileGrid grid = map.getTileGrid();
+
+		if (random.nextInt(3) == 0)
+		{
+			empty.setCollidable(!empty.isCollidable());
+			map.refreshSolids();
+		}
+
+		for (int k = 0; k < n; k++)
+		{
+			int row = random.nextInt(map.getNumRows());
+			int col = random.nextInt(map.getNumColumns());
+
+			if (random.nextBoolean())
+				map.removeTile(col,row);
+			else
+			{
+				grid.setType(row,col,1+random.nextInt(2));
+				map.refreshSolid(col,row);
+			}
+
+			// Check the cell straight away, before its block can be let go
+			// and built again from the tiles.
+			numQueries++;
+			if (map.isSolid(row,col) != isSolidCell(row,col))
+				fail("solid","cell (" + col + "," + row + ") after a change: got " +
+							map.isSolid(row,col));
+		}
+	}
+
+	private boolean isSolidCell(int row, int col)
+	// Whether a cell is solid, going by its tile alone.
+	{
+		Tile t = map.getTileGrid().getTile(row,col);
+
+		return t != null && t.isCollidable();
+	}
+//==============================================================================
+
+
+//==============================================================================
+// Checks.
+//==============================================================================
+	public void checkSweep(int n)
+	// Sweep random boxes across the map, and check when and how they first
+	// hit a solid cell.
+	{
+		int[] normal = new int[2];
+		boolean[] faces = new boolean[2];
+
+		for (int k = 0; k < n; k++)
+		{
+			double w = (0.2 + 1.8*random.nextDouble())*TILE_SIZE;
+			double h = (0.2 + 1.8*random.nextDouble())*TILE_SIZE;
+			double x = randomX() - w/2;
+			double y = randomY() - h/2;
+			double dx = randomMove();
+			double dy = randomMove();
+
+			// Now and then, along one axis only, or at 45 degrees, so that
+			// some boxes cross a row and a column at the same time.
+			if (k%8 == 0)
+				dy = 0;
+			else if (k%8 == 1)
+				dx = 0;
+			else if (k%8 == 2 || k%8 == 3)
+				dy = Math.copySign(dx,dy);
+
+			// Half the time, in whole pixels, as Clyde moves, so that boxes
+			// start out touching cells and move along tile boundaries.
+			if (k%4 >= 2)
+			{
+				w = Math.rint(w);
+				h = Math.rint(h);
+				x = Math.rint(x);
+				y = Math.rint(y);
+				dx = Math.rint(dx);
+				dy = Math.rint(dy);
+			}
+
+			double t = map.sweep(x,y,w,h,dx,dy,normal);
+			double e = sweepAll(x,y,w,h,dx,dy,faces);
+
+			// A box that hits a corner square on may be stopped by either
+			// face, and one that only touches a cell at the end of its move
+			// may or may not be stopped by it.
+			boolean right = Math.abs(t-e) <= EPSILON;
+			if (right && e < 1-EPSILON)
+				right = (faces[0] && normal[0] == -(int)Math.signum(dx) && normal[1] == 0) ||
+						(faces[1] && normal[1] == -(int)Math.signum(dy) && normal[0] == 0);
+
+			numQueries++;
+			if (!right)
+				fail("sweep",String.format(	"box (%.3f,%.3f) %.3fx%.3f by (%.3f,%.3f): " +
+											"got %.6f {%d,%d}, expected %.6f through %s",
+											x,y,w,h,dx,dy,t,normal[0],normal[1],e,
+											faces[0]?(faces[1]?"either face":"a side"):
+													 (faces[1]?"the top or bottom":"nothing")));
+		}
+	}
+
+	private double sweepAll(double x, double y, double w, double h, double dx, double dy, boolean[] faces)
+	// Sweep a box against every solid cell within reach of it, one at a
+	// time. Cells the box starts out overlapping are ignored, as in
+	// TileMap.sweep(). Returns the time of the first hit, and stores in faces
+	// whether it can be through the side of a cell, and through the top or
+	// bottom of one.
+	{
+		faces[0] = false;
+		faces[1] = false;
+
+		double best = 1;
+
+		// Every cell the box could touch on its way, and then some.
+		int top = Math.max(0,(int)Math.floor(Math.min(y,y+dy)/TILE_SIZE) - 1);
+		int bottom = Math.min(map.getNumRows()-1,(int)Math.floor(Math.max(y,y+dy)/TILE_SIZE) + 3);
+		int left = Math.max(0,(int)Math.floor(Math.min(x,x+dx)/TILE_SIZE) - 1);
+		int right = Math.min(map.getNumColumns()-1,(int)Math.floor(Math.max(x,x+dx)/TILE_SIZE) + 3);
+
+		for (int i = top; i <= bottom; i++)
+			for (int j = left; j <= right; j++)
+			{
+				if (!isSolidCell(i,j))
+					continue;
+
+				double cellX = j*TILE_SIZE;
+				double cellY = i*TILE_SIZE;
+
+				if (x < cellX+TILE_SIZE && x+w > cellX && y < cellY+TILE_SIZE && y+h > cellY)
+					continue;
+
+				// When the box overlaps the cell on each axis.
+				double[] spanX = overlap(x,w,dx,cellX);
+				double[] spanY = overlap(y,h,dy,cellY);
+				if (spanX == null || spanY == null)
+					continue;
+
+				double enter = Math.max(spanX[0],spanY[0]);
+				double leave = Math.min(spanX[1],spanY[1]);
+
+				if (enter >= leave || leave <= 0 || enter > best+EPSILON)
+					continue;
+
+				// A clearly earlier hit replaces the ones found so far; one at
+				// the same time adds the faces it can be through.
+				if (enter < best-EPSILON)
+				{
+					faces[0] = false;
+					faces[1] = false;
+				}
+
+				best = Math.min(best,enter);
+				faces[0] |= spanX[0] >= spanY[0]-EPSILON;
+				faces[1] |= spanY[0] >= spanX[0]-EPSILON;
+			}
+
+		return best;
+	}
+
+	public void checkSolid(int n)
+	// Ask whether random cells and places are solid, and look for the first
+	// solid cell along random stretches of rows and columns.
+	{
+		int rows = map.getNumRows();
+		int cols = map.getNumColumns();
+
+		for (int k = 0; k < n; k++)
+		{
+			// Cells, and places, a little way off the map too.
+			int row = random.nextInt(rows+4) - 2;
+			int col = random.nextInt(cols+4) - 2;
+			boolean inside = row >= 0 && row < rows && col >= 0 && col < cols;
+			boolean expected = inside && isSolidCell(row,col);
+
+			numQueries++;
+			if (map.isSolid(row,col) != expected)
+				fail("solid","cell (" + col + "," + row + "): got " + !expected);
+
+			int x = (int)Math.floor(randomX());
+			int y = (int)Math.floor(randomY());
+			expected = x >= 0 && x < map.getMapWidth() && y >= 0 && y < map.getMapHeight() &&
+						isSolidCell(y/TILE_SIZE,x/TILE_SIZE);
+
+			numQueries++;
+			if (map.insideSolidTile(x,y) != expected)
+				fail("solid","place (" + x + "," + y + "): got " + !expected);
+
+			// Stretches of up to a few words, either way.
+			int from = random.nextInt(cols+4) - 2;
+			int to = from + random.nextInt(401) - 200;
+			int found = map.findSolidInRow(row,from,to);
+			int first = -1;
+
+			if (row >= 0 && row < rows)
+				for (int j = from; first < 0; j += (from <= to)?1:-1)
+				{
+					if (j >= 0 && j < cols && isSolidCell(row,j))
+						first = j;
+					if (j == to)
+						break;
+				}
+
+			numQueries++;
+			if (found != first)
+				fail("solid","row " + row + " from " + from + " to " + to + ": got " + found +
+							", expected " + first);
+
+			from = random.nextInt(rows+4) - 2;
+			to = from + random.nextInt(201) - 100;
+			found = map.findSolidInColumn(col,from,to);
+			first = -1;
+
+			if (col >= 0 && col < cols)
+				for (int i = from; first < 0; i += (from <= to)?1:-1)
+				{
+					if (i >= 0 && i < rows && isSolidCell(i,col))
+						first = i;
+					if (i == to)
+						break;
+				}
+
+			numQueries++;
+			if (found != first)
+				fail("solid","column " + col + " from " + from + " to " + to + ": got " + found +
+							", expected " + first);
+		}
+	}
+
+	public void checkRaycast(int n)
+	// Follow random lines through the map, and check where and when they
+	// first enter a solid cell.
+	{
+		int[] cell = new int[2];
+		int[] expected = new int[2];
+
+		for (int k = 0; k < n; k++)
+		{
+			double x0 = randomX();
+			double y0 = randomY();
+			double x1 = x0 + randomMove()*2.5;
+			double y1 = y0 + randomMove()*2.5;
+
+			// Now and then, along a row or a column.
+			if (k%8 == 0)
+				y1 = y0;
+			else if (k%8 == 1)
+				x1 = x0;
+
+			double t = map.raycast(x0,y0,x1,y1,cell);
+			double e = raycastAll(x0,y0,x1,y1,expected);
+
+			numQueries++;
+			if (Math.abs(t-e) > EPSILON || cell[0] != expected[0] || cell[1] != expected[1])
+				fail("raycast",String.format(	"line (%.3f,%.3f) to (%.3f,%.3f): got %.6f at " +
+												"(%d,%d), expected %.6f at (%d,%d)",
+												x0,y0,x1,y1,t,cell[0],cell[1],
+												e,expected[0],expected[1]));
+		}
+	}
+
+	private double raycastAll(double x0, double y0, double x1, double y1, int[] cell)
+	// Test a line against every solid cell within reach of it, one at a
+	// time. Returns when it first enters one (1 if it never does), and stores
+	// that cell, as in TileMap.raycast().
+	{
+		cell[0] = -1;
+		cell[1] = -1;
+
+		double best = 1;
+
+		int top = Math.max(0,(int)Math.floor(Math.min(y0,y1)/TILE_SIZE) - 1);
+		int bottom = Math.min(map.getNumRows()-1,(int)Math.floor(Math.max(y0,y1)/TILE_SIZE) + 1);
+		int left = Math.max(0,(int)Math.floor(Math.min(x0,x1)/TILE_SIZE) - 1);
+		int right = Math.min(map.getNumColumns()-1,(int)Math.floor(Math.max(x0,x1)/TILE_SIZE) + 1);
+
+		for (int i = top; i <= bottom; i++)
+			for (int j = left; j <= right; j++)
+			{
+				if (!isSolidCell(i,j))
+					continue;
+
+				// A line is a box with no size.
+				double[] spanX = overlap(x0,0,x1-x0,j*TILE_SIZE);
+				double[] spanY = overlap(y0,0,y1-y0,i*TILE_SIZE);
+				if (spanX == null || spanY == null)
+					continue;
+
+				double enter = Math.max(0,Math.max(spanX[0],spanY[0]));
+				double leave = Math.min(spanX[1],spanY[1]);
+
+				if (enter < leave && enter < best)
+				{
+					best = enter;
+					cell[0] = j;
+					cell[1] = i;
+				}
+			}
+
+		return best;
+	}
+
+	public void checkPaths(int n)
+	// Find paths between random cells and a few goals, and check that the
+	// path costs and distances agree, and that the finder kept as the map
+	// changes agrees with a new one.
+	{
+		PathFinder fresh = new PathFinder(map);
+		fresh.setJumpSize(finder.getJumpHeight(),finder.getJumpLength());
+
+		for (int k = 0; k < n; k++)
+		{
+			int x = random.nextInt(map.getNumColumns());
+			int y = random.nextInt(map.getNumRows());
+			int g = random.nextInt(GOALS)*2;
+			String route = "(" + x + "," + y + ") to (" + goals[g] + "," + goals[g+1] + ")";
+
+			int expected = fresh.getDistance(x,y,goals[g],goals[g+1]);
+			int kept = finder.getDistance(x,y,goals[g],goals[g+1]);
+
+			numQueries++;
+			if (kept != expected)
+				fail("path",route + ": kept field gives " + kept + ", new one " + expected);
+
+			// The path A* finds should cost just what the field says.
+			int[] path = finder.findPath(x,y,goals[g],goals[g+1]);
+			int cost = (path == null)?-1:finder.getPathCost();
+
+			numQueries++;
+			if (cost != expected)
+				fail("path",route + ": path costs " + cost + ", distance is " + expected);
+		}
+	}
+
+	private double[] overlap(double pos, double size, double d, double cell)
+	// The times at which the span [pos,pos+size], moving by d, overlaps the
+	// cell starting at cell, or null if it never does.
+	{
+		if (d == 0)
+		{
+			if (pos < cell+TILE_SIZE && pos+size > cell)
+				return new double[] {Double.NEGATIVE_INFINITY,Double.POSITIVE_INFINITY};
+
+			return null;
+		}
+
+		double a = (cell - (pos+size))/d;
+		double b = (cell+TILE_SIZE - pos)/d;
+
+		return new double[] {Math.min(a,b),Math.max(a,b)};
+	}
+
+	private double randomX()
+	// A place across the map, or just off either side of it.
+	{
+		return (random.nextDouble()*(map.getNumColumns()+4) - 2)*TILE_SIZE;
+	}
+
+	private double randomY()
+	// A place down the map, or just off the top or bottom of it.
+	{
+		return (random.nextDouble()*(map.getNumRows()+4) - 2)*TILE_SIZE;
+	}
+
+	private double randomMove()
+	// A move of up to eight tiles either way.
+	{
+		return (random.nextDouble()*16 - 8)*TILE_SIZE;
+	}
+//==============================================================================
+
+
+//==============================================================================
+// Results.
+//==============================================================================
+	private void fail(String kind, String message)
+	// Count a wrong answer, and report the first few of each kind in full.
+	{
+		numFailures++;
+
+		int n = numReports.containsKey(kind)?numReports.get(kind):0;
+		numReports.put(kind,n+1);
+
+		if (n < MAX_REPORTS)
+			GameLog.warn(kind + ": " + message);
+	}
+
+	public int getNumberQueries()
+	{
+		return numQueries;
+	}
+
+	public int getNumberFailures()
+	{
+		return numFailures;
+	}
+//==============================================================================
+
+
+//==============================================================================
+// Command line tool.
+//==============================================================================
+	public static void main(String args[])
+	// Fill a number of maps, ask each of them every kind of query, and report
+	// how many answers were wrong.
+	{
+		System.setProperty("java.awt.headless","true");
+
+		long seed = DEFAULT_SEED;
+		int cols = DEFAULT_COLUMNS;
+		int rows = DEFAULT_ROWS;
+		int maps = DEFAULT_MAPS;
+		int queries = DEFAULT_QUERIES;
+		int budget = DEFAULT_BUDGET;
+		int paths = DEFAULT_PATHS;
+
+		for (int i = 0; i < args.length; i++)
+		{
+			String arg = args[i];
+
+			try
+			{
+				if (arg.startsWith("seed="))
+					seed = Long.parseLong(arg.substring(5));
+				else if (arg.startsWith("maps="))
+					maps = Math.max(1,Integer.parseInt(arg.substring(5)));
+				else if (arg.startsWith("queries="))
+					queries = Math.max(1,Integer.parseInt(arg.substring(8)));
+				else if (arg.startsWith("budget="))
+					budget = Integer.parseInt(arg.substring(7));
+				else if (arg.startsWith("paths="))
+					paths = Integer.parseInt(arg.substring(6));
+				else if (arg.startsWith("size="))
+				{
+					String[] dims = arg.substring(5).split("x");
+					cols = Integer.parseInt(dims[0]);
+					rows = Integer.parseInt(dims[1]);
+				}
+				else
+					GameLog.warn("Unknown option: " + arg);
+			}
+			catch (RuntimeException e)
+			// Bad number, or missing part; keep the default.
+			{
+				GameLog.warn("Incorrect option: " + arg);
+			}
+		}
+
+		TileMapCheck check = new TileMapCheck(seed);
+
+		for (int m = 0; m < maps; m++)
+		{
+			check.fillMap(cols,rows).setSolidBudget(budget);
+
+			for (int r = 0; r < ROUNDS; r++)
+			{
+				if (r == ROUNDS-1)
+					check.changeMap(TileMap.SOLID_LOG_SIZE*4);
+				else if (r > 0)
+					check.changeMap(CHANGES);
+
+				check.checkSweep(queries/ROUNDS);
+				check.checkSolid(queries/ROUNDS);
+				check.checkRaycast(queries/ROUNDS);
+				check.checkPaths(paths/ROUNDS);
+			}
+		}
+
+		GameLog.info(check.getNumberQueries() + " queries on " + maps + " maps of " +
+					cols + "x" + rows + ", " + check.getNumberFailures() + " wrong.");
+		GameLog.flush();
+
+		if (check.getNumberFailures() > 0)
+			System.exit(1);
+	}
+//==============================================================================
+}
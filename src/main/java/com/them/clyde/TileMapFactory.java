@@ -1,7 +1,7 @@
 package com.them.clyde;
 //==============================================================================
 // Date Created:		17 December 2011
-// Last Updated:		20 December 2011
+// Last Updated:		16 October 2026
 //
 // File Name:			TileMapFactory.java
 // File Author:			M Matthew Hydock
@@ -10,6 +10,23 @@ package com.them.clyde;
 //						arranged on a grid. It outputs a TileMap object. Very
 //						loosely based on the BricksManager class written by
 //						Andrew Davison ad@fivedots.coe.psu.ac.th
+//
+//						The arrangement is built as a TileGrid, in which every
+//						cell just records which tile from the list it uses.
+//						Sporadic tiles are shared too; the TileMap gives each
+//						cell its own phase when it is drawn.
+//
+//						A large level can keep its grid in a separate file
+//						(see MappedTileGrid), streamed from disk as the camera
+//						moves, by naming the file at the end of the TILEMAP
+//						line. The start and exit, and the number of gems in
+//						the level (none if not given), are then given on their
+//						own:
+//
+//							TILEMAP <rows> <columns> <tile size> <grid file>
+//							START <column> <row>
+//							EXIT <column> <row>
+//							GEMS <number>
 //==============================================================================
 
 import java.awt.*;
@@ -42,7 +59,8 @@ public class TileMapFactory
 	private int tile_size;					// Length of a side of a tile.
 
 	private ArrayList<Tile> tileList;		// Tiles used in the tileMap.
-	private Tile[][] tileMap;				// The arrangement of tiles.
+	private TileGrid tileMap;				// The arrangement of tiles.
+	private String gridFile;				// Grid kept on disk, if any.
 
 	private int startX;						// Where the hero sprite starts.
 	private int startY;
@@ -69,7 +87,7 @@ public class TileMapFactory
 		
 		resetFactory();
 		
-		System.out.println("TileMapFactory initialized.");
+		GameLog.info("TileMapFactory initialized.");
 	}
 	
 	public static TileMapFactory getInstanceOf()
@@ -106,6 +124,7 @@ public class TileMapFactory
 		curr_line = null;
 		tileList = null;
 		tileMap = null;
+		gridFile = null;
 		
 		numRows = 0;
 		numCols = 0;
@@ -124,7 +143,7 @@ public class TileMapFactory
 	// Sets the file to read from. If the path is wrong or there is no readable
 	// file, then the whole system will quit.
 	{
-		System.out.println("Reading file: " + path);
+		GameLog.debug("Reading file: " + path);
 		
 		try
 		{
@@ -132,12 +151,12 @@ public class TileMapFactory
 			inputEnd = false;
 			filePath = path;
 			
-			System.out.println("Tile map " + path + " set up for reading.");
+			GameLog.debug("Tile map " + path + " set up for reading.");
 		}
 		catch (Exception e) 
 		{
-			System.out.println("Error reading file: " + path);
-			System.out.println(e.toString());
+			GameLog.error("Error reading file: " + path);
+			GameLog.error(e.toString());
 			System.exit(1);
 		}
 		
@@ -175,7 +194,7 @@ public class TileMapFactory
 		if (tileList.size() == 0)
 		// No tiles were loaded, so no map can be built.
 		{
-			System.out.println("No tiles could be loaded.");
+			GameLog.error("No tiles could be loaded.");
 			System.exit(1);
 		}
 		
@@ -186,7 +205,7 @@ public class TileMapFactory
 		}
 		catch (IOException e)
 		{
-			System.out.println("TileMapFactory was interrupted: " + e.toString());
+			GameLog.error("TileMapFactory was interrupted: " + e.toString());
 			System.exit(1);
 		}
 			
@@ -198,12 +217,15 @@ public class TileMapFactory
 		// Phrase has been found that defines the dimensions of the tileMap.
 			initTileMap();
 		
-		// Build the tile map.
-		buildTileMap();
+		// Build the tile map, or open it, if it is kept on disk.
+		if (gridFile == null)
+			buildTileMap();
+		else
+			openTileMap();
 		
 		// Initialize the tileMap, set the start and finish locations, and if
 		// any gems were found, set the number of gems found.
-		TileMap map = new TileMap(tileMap,tileList,0,tile_size,parent);
+		TileMap map = new TileMap(tileMap,0,tile_size,parent);
 		map.setStartLoc(startX,startY);
 		map.setExitLoc(exitX,exitY);
 		map.setNumGems(numGems);
@@ -255,10 +277,10 @@ public class TileMapFactory
 			
 		StringTokenizer tokens = new StringTokenizer(line);
 			
-		if (tokens.countTokens() != 4)
+		if (tokens.countTokens() != 4 && tokens.countTokens() != 5)
 		// Not enough tokens to set the dimension of the tileMap.
 		{
-			System.out.println("Malformed tileMap expression: " + line);
+			GameLog.error("Malformed tileMap expression: " + line);
 			System.exit(1);
 		}
 			
@@ -274,18 +296,99 @@ public class TileMapFactory
 		catch(Exception e)
 		// Next token wasn't an integer.
 		{
-			System.out.println("Incorrect formatting for tileMap dimensions: " + line);
+			GameLog.error("Incorrect formatting for tileMap dimensions: " + line);
+			System.exit(1);
+		}
+		
+		if (tokens.hasMoreTokens())
+		// The grid is in its own file, next to this one.
+		{
+			File dir = new File(filePath).getParentFile();
+			gridFile = new File(dir,tokens.nextToken()).getPath();
+		}
+		else
+			tileMap = new TileGrid(numRows,numCols,tileList);
+	}
+	
+	private void openTileMap()
+	// Open a grid kept on disk, then read the start and exit locations, and
+	// the number of gems, from the rest of the file.
+	{
+		try
+		{
+			tileMap = new MappedTileGrid(gridFile,tileList,MappedTileGrid.DEFAULT_BUDGET);
+		}
+		catch (IOException e)
+		{
+			GameLog.error("Can't open tile grid " + gridFile + ": " + e);
+			System.exit(1);
+		}
+		
+		if (tileMap.getNumRows() != numRows || tileMap.getNumColumns() != numCols)
+		{
+			GameLog.error(	"Tile grid " + gridFile + " is " + tileMap.getNumRows() + "x" +
+							tileMap.getNumColumns() + ", not " + numRows + "x" + numCols + ".");
+			System.exit(1);
+		}
+		
+		try
+		{
+			while ((curr_line = input.readLine()) != null)
+			{
+				String line = curr_line;
+				
+				if (line.contains("//"))
+				// Remove any comments from this line.
+					line = line.substring(0,line.indexOf("//"));
+				
+				StringTokenizer tokens = new StringTokenizer(line);
+				if (tokens.countTokens() == 2 && tokens.nextToken().equals("GEMS"))
+				{
+					numGems = Integer.parseInt(tokens.nextToken());
+					continue;
+				}
+				else if (tokens.countTokens() != 3)
+					continue;
+				
+				String key = tokens.nextToken();
+				int x = Integer.parseInt(tokens.nextToken());
+				int y = Integer.parseInt(tokens.nextToken());
+				
+				if (key.equals("START"))
+				{
+					startX = x;
+					startY = y;
+				}
+				else if (key.equals("EXIT"))
+				{
+					exitX = x;
+					exitY = y;
+				}
+			}
+		}
+		catch (IOException e)
+		{
+			GameLog.error("TileMapFactory was interrupted: " + e.toString());
+			System.exit(1);
+		}
+		catch (NumberFormatException e)
+		{
+			GameLog.error("Incorrect formatting for a location or gem count: " + curr_line);
 			System.exit(1);
 		}
 		
-		tileMap = new Tile[numRows][numCols];
+		if (startX == -1 || startY == -1 || exitX == -1 || exitY == -1)
+		// Either start or exit wasn't found. This is a bad map.
+		{
+			GameLog.error("Bad tileMap: start or exit not set.");
+			System.exit(1);
+		}
 	}
 	
 	private void buildTileMap()
-	// Parse the tileMap section of the file. If a brick has no animation, or
-	// it is animated but in normal mode, just use the reference from the tile
-	// list. If a brick is animated, but is in sporadic mode, duplicate the
-	// animation object, to ensure the sporadic animations are unsynchronized.
+	// Parse the tileMap section of the file, recording the place of each
+	// brick in the tile list. Sporadic bricks no longer need copies of their
+	// tile and animation; they are put out of step when they are drawn.
 	{		
 		String line = "";
 		
@@ -299,7 +402,7 @@ public class TileMapFactory
 			}
 			catch (IOException e)
 			{
-				System.out.println("TileMapFactory was interrupted: " + e.toString());
+				GameLog.error("TileMapFactory was interrupted: " + e.toString());
 				System.exit(1);
 			}
 			
@@ -335,51 +438,26 @@ public class TileMapFactory
 					// If the index is within bounds, set the tile in the 
 					// tileMap.
 					{	
-//						System.out.println("Loading tile...");
-						Tile tile = tileList.get(index);
-						
-//						System.out.println("Loading tile animation...");
-						GameAnimation anim = tile.getAnimation();
-						
-//						if (anim == null)
-//							System.out.println("Tile has no animation.");
-						
-						if (anim != null && anim.isSporadic())
-						// Tile is animated and sporadic; duplicate the tile,
-						// and randomize the animation.
-						{
-//							System.out.println("Duplicating animated tile...");
-							tileMap[i][j] = new AnimatedTile((GameImageStrip)tile.getImage(),anim.clone(),tile.isCollidable());
-//							System.out.println("Animated tile duplicated.");
-							tileMap[i][j].getAnimation().restartAt((int)(Math.random() * (anim.getNumberFrames()-1)));
-//							System.out.println("Animation randomized.");
-						}
-						else
-						// Tile is either a basic tile, or animating under
-						// normal mode. Just copy the reference.
-						{
-//							System.out.println("Setting tile reference...");
-							tileMap[i][j] = tile;
-//							System.out.println("Tile reference set.");
-						}	
-						
+//						System.out.println("Setting tile reference...");
+						tileMap.setType(i,j,index+1);
+//						System.out.println("Tile reference set.");
 					}
 				}
 				else if (ch == 'c')
 				// Found the start location.
 				{
-					System.out.println("\nFound start at [" + i + "," + j + "]");
+					GameLog.debug("\nFound start at [" + i + "," + j + "]");
 					startX = j;
 					startY = i;
-					System.out.println("Set start.");
+					GameLog.debug("Set start.");
 				}
 				else if (ch == 'e')
 				// Found the exit location.
 				{
-					System.out.println("\nFound exit at [" + i + "," + j + "]");
+					GameLog.debug("\nFound exit at [" + i + "," + j + "]");
 					exitX = j;
 					exitY = i;
-					System.out.println("Set exit.");
+					GameLog.debug("Set exit.");
 				}
 			}
 		}
@@ -390,7 +468,7 @@ public class TileMapFactory
 		if (startX == -1 || startY == -1 || exitX == -1 || exitY == -1)
 		// Either start or exit wasn't found. This is a bad map.
 		{
-			System.out.println("Bad tileMap: start or exit not set in tileMap.");
+			GameLog.error("Bad tileMap: start or exit not set in tileMap.");
 			System.exit(1);
 		}
 	}					
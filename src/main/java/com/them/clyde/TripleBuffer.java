@@ -0,0 +1,85 @@
+package com.them.clyde;
+//==============================================================================
+// Date Created:		16 October 2026
+// Last Updated:		16 October 2026
+//
+// File Name:			TripleBuffer.java
+// File Author:			M Matthew Hydock
+//
+// File Description:	A lock-free triple buffer, for handing data from one
+//						producer thread to one consumer thread. The producer
+//						always has a back slot to fill, the consumer always has
+//						a front slot to read, and the middle slot holds the
+//						most recently published data. Neither side ever waits
+//						on the other; if the producer publishes faster than
+//						the consumer reads, older data is simply skipped.
+//
+//						The three slots are allocated up front and reused, so
+//						nothing is allocated while the game is running.
+//==============================================================================
+
+import java.util.concurrent.atomic.*;
+
+public class TripleBuffer<T>
+{
+	private static final int INDEX_MASK = 3;	// Bits holding a slot index.
+	private static final int FRESH = 4;			// Set when the middle slot holds
+												// data the consumer hasn't seen.
+
+	private final Object[] slots;				// The three buffers.
+	private final AtomicInteger middle;			// Index of the middle slot, plus
+												// the FRESH flag.
+	private int back;							// Only touched by the producer.
+	private int front;							// Only touched by the consumer.
+
+	public TripleBuffer(T a, T b, T c)
+	// Create a triple buffer from three preallocated slots.
+	{
+		slots = new Object[] {a, b, c};
+
+		back = 0;
+		middle = new AtomicInteger(1);
+		front = 2;
+	}
+
+//==============================================================================
+// Producer methods.
+//==============================================================================
+	@SuppressWarnings("unchecked")
+	public T getBack()
+	// Return the slot the producer should fill next. It must not be touched
+	// again once it has been published.
+	{
+		return (T)slots[back];
+	}
+
+	public void publish()
+	// Make the back slot the most recent data, and take the old middle slot as
+	// the new back slot.
+	{
+		back = middle.getAndSet(back | FRESH) & INDEX_MASK;
+	}
+//==============================================================================
+
+
+//==============================================================================
+// Consumer methods.
+//==============================================================================
+	public boolean hasFresh()
+	// Whether new data has been published since the consumer last looked.
+	{
+		return (middle.get() & FRESH) != 0;
+	}
+
+	@SuppressWarnings("unchecked")
+	public T getFront()
+	// Return the most recently published data. If nothing new has been
+	// published, the same slot as last time is returned.
+	{
+		if (hasFresh())
+			front = middle.getAndSet(front) & INDEX_MASK;
+
+		return (T)slots[front];
+	}
+//==============================================================================
+}
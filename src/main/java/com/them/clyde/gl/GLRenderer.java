@@ -0,0 +1,501 @@
+package com.them.clyde.gl;
+//==============================================================================
+// Date Created:		16 October 2026
+// Last Updated:		16 October 2026
+//
+// File Name:			GLRenderer.java
+// File Author:			M Matthew Hydock
+//
+// File Description:	A Renderer that draws with OpenGL (through LWJGL), into
+//						an off-screen framebuffer. Every rectangle drawn is
+//						added to one batch of quads; the batch is only sent to
+//						OpenGL (as one vertex buffer, and one draw call) when
+//						the source image changes, the batch fills up, or the
+//						frame ends. Tiles and sprites that have been packed
+//						into a TextureAtlas all come from the same page, so a
+//						whole frame usually costs a handful of draw calls.
+//
+//						Each source image is uploaded as a texture the first
+//						time it is drawn, and kept until imageChanged() or
+//						dispose() is called. The finished frame is read back
+//						with getFrame().
+//
+//						Textures remember the transparency class of their
+//						image (see GameImage.classifyTransparency()). Opaque
+//						images are stored without alpha and drawn with blending
+//						off; bitmask images are drawn with an alpha test
+//						instead of blending. Only translucent images and filled
+//						rectangles are blended.
+//
+//						Only the fixed-function pipeline and framebuffer
+//						objects are used, so this runs on a software
+//						rasterizer such as Mesa's llvmpipe, and can be tested
+//						on a machine with no GPU. GLFW still needs a display
+//						to make a context, so on a headless machine run it
+//						under a virtual X server:
+//
+//							LIBGL_ALWAYS_SOFTWARE=1 xvfb-run -a java ...
+//
+//						All methods must be called from the thread that
+//						created the renderer, which holds the GL context.
+//==============================================================================
+
+import static org.lwjgl.glfw.GLFW.*;
+import static org.lwjgl.opengl.GL11.*;
+import static org.lwjgl.opengl.GL12.*;
+import static org.lwjgl.opengl.GL15.*;
+import static org.lwjgl.opengl.GL30.*;
+import static org.lwjgl.system.MemoryUtil.*;
+
+import org.lwjgl.BufferUtils;
+import org.lwjgl.opengl.GLContext;
+
+import java.awt.*;
+import java.awt.image.*;
+import java.nio.*;
+import java.util.*;
+
+import com.them.clyde.GameImage;
+import com.them.clyde.GameLog;
+import com.them.clyde.Renderer;
+
+public class GLRenderer implements Renderer
+{
+	private static final int MAX_QUADS = 4096;			// Quads in one batch.
+	private static final int VERTEX_FLOATS = 8;			// x, y, u, v, r, g, b, a
+	private static final int VERTEX_BYTES = VERTEX_FLOATS*4;
+
+	private long window;					// Hidden window holding the context.
+	private GLContext context;
+
+	private int framebuffer;				// Off-screen target.
+	private int colorbuffer;
+	private int fbWidth;					// Size of the framebuffer.
+	private int fbHeight;
+
+	private int width;						// Size of the frame being drawn.
+	private int height;
+
+	private int vertexBuffer;				// Buffer the batch is streamed into.
+	private FloatBuffer batch;				// Quads waiting to be drawn.
+	private int batchQuads;
+	private int batchTexture;				// Texture the batch is drawn from.
+	private float texWidth;					// Size of that texture.
+	private float texHeight;
+	private int batchTransparency;			// Class of that texture.
+	private int blendMode;					// Class blending is set up for.
+
+	private IdentityHashMap<BufferedImage,Integer> textures;
+	private HashMap<Integer,Integer> transparency;	// Class of each texture.
+	private int whiteTexture;				// 1x1 texture for filled rectangles.
+
+	private int drawCalls;					// Batches drawn this frame.
+
+	public GLRenderer(int w, int h)
+	// Create an OpenGL context, and a w x h off-screen framebuffer to draw in.
+	// Throws an IllegalStateException if OpenGL isn't available, so the game
+	// can fall back on Java2D.
+	{
+		if (glfwInit() != GL_TRUE)
+			throw new IllegalStateException("Unable to initialize GLFW.");
+
+		glfwDefaultWindowHints();
+		glfwWindowHint(GLFW_VISIBLE,GL_FALSE);
+		glfwWindowHint(GLFW_RESIZABLE,GL_FALSE);
+
+		window = glfwCreateWindow(1,1,"JClyde",NULL,NULL);
+		if (window == NULL)
+		{
+			glfwTerminate();
+			throw new IllegalStateException("Unable to create an OpenGL context.");
+		}
+
+		glfwMakeContextCurrent(window);
+		context = GLContext.createFromCurrent();
+
+		if (!context.getCapabilities().OpenGL30)
+		{
+			dispose();
+			throw new IllegalStateException("OpenGL 3.0 or better is required.");
+		}
+
+		GameLog.info("OpenGL renderer: " + glGetString(GL_RENDERER) + ", " + glGetString(GL_VERSION));
+
+		textures = new IdentityHashMap<BufferedImage,Integer>();
+		transparency = new HashMap<Integer,Integer>();
+		batch = BufferUtils.createFloatBuffer(MAX_QUADS*6*VERTEX_FLOATS);
+		vertexBuffer = glGenBuffers();
+
+		// A single white pixel, so filled rectangles can go through the same
+		// path as images, tinted by their vertex color.
+		ByteBuffer white = BufferUtils.createByteBuffer(4);
+		white.put((byte)0xFF).put((byte)0xFF).put((byte)0xFF).put((byte)0xFF).flip();
+		whiteTexture = createTexture(1,1,white,GL_RGBA8);
+		transparency.put(whiteTexture,Transparency.TRANSLUCENT);
+
+		glEnable(GL_TEXTURE_2D);
+		glEnable(GL_BLEND);
+		glBlendFunc(GL_SRC_ALPHA,GL_ONE_MINUS_SRC_ALPHA);
+		glAlphaFunc(GL_GREATER,0f);
+		glDisable(GL_DEPTH_TEST);
+		blendMode = Transparency.TRANSLUCENT;
+
+		resize(w,h);
+	}
+
+//==============================================================================
+// Getters.
+//==============================================================================
+	public int getWidth()
+	{
+		return width;
+	}
+
+	public int getHeight()
+	{
+		return height;
+	}
+
+	public int getDrawCalls()
+	// Return the number of batches drawn so far this frame.
+	{
+		return drawCalls;
+	}
+
+	public int getNumberTextures()
+	// Return the number of images uploaded as textures.
+	{
+		return textures.size();
+	}
+//==============================================================================
+
+
+//==============================================================================
+// Renderer methods.
+//==============================================================================
+	public void begin(int w, int h)
+	// Start drawing a frame, growing the framebuffer if needed.
+	{
+		if (w > fbWidth || h > fbHeight)
+			resize(Math.max(w,fbWidth),Math.max(h,fbHeight));
+
+		width = w;
+		height = h;
+		drawCalls = 0;
+
+		glBindFramebuffer(GL_FRAMEBUFFER,framebuffer);
+		glViewport(0,0,w,h);
+
+		// One unit is one pixel, with (0,0) at the top left, as in Java2D.
+		glMatrixMode(GL_PROJECTION);
+		glLoadIdentity();
+		glOrtho(0,w,h,0,-1,1);
+		glMatrixMode(GL_MODELVIEW);
+		glLoadIdentity();
+	}
+
+	public void end()
+	// Draw whatever is left in the batch.
+	{
+		flush();
+	}
+
+	public void flush()
+	// Send the batch to OpenGL as a single vertex buffer, and draw it.
+	{
+		if (batchQuads == 0)
+			return;
+
+		batch.flip();
+
+		glBindBuffer(GL_ARRAY_BUFFER,vertexBuffer);
+		glBufferData(GL_ARRAY_BUFFER,batch,GL_STREAM_DRAW);
+
+		glEnableClientState(GL_VERTEX_ARRAY);
+		glEnableClientState(GL_TEXTURE_COORD_ARRAY);
+		glEnableClientState(GL_COLOR_ARRAY);
+		glVertexPointer(2,GL_FLOAT,VERTEX_BYTES,0);
+		glTexCoordPointer(2,GL_FLOAT,VERTEX_BYTES,2*4);
+		glColorPointer(4,GL_FLOAT,VERTEX_BYTES,4*4);
+
+		setBlendMode(batchTransparency);
+		glBindTexture(GL_TEXTURE_2D,batchTexture);
+		glDrawArrays(GL_TRIANGLES,0,batchQuads*6);
+
+		glDisableClientState(GL_COLOR_ARRAY);
+		glDisableClientState(GL_TEXTURE_COORD_ARRAY);
+		glDisableClientState(GL_VERTEX_ARRAY);
+		glBindBuffer(GL_ARRAY_BUFFER,0);
+
+		batch.clear();
+		batchQuads = 0;
+		drawCalls++;
+	}
+
+	public void fillRect(int x, int y, int w, int h, Color c)
+	// Fill a rectangle. Filling the whole frame before anything else has been
+	// drawn is done with a clear instead.
+	{
+		if (w <= 0 || h <= 0)
+			return;
+
+		float r = c.getRed()/255f;
+		float g = c.getGreen()/255f;
+		float b = c.getBlue()/255f;
+		float a = c.getAlpha()/255f;
+
+		if (drawCalls == 0 && batchQuads == 0 && x <= 0 && y <= 0 && x+w >= width && y+h >= height && a == 1f)
+		{
+			glClearColor(r,g,b,a);
+			glClear(GL_COLOR_BUFFER_BIT);
+			return;
+		}
+
+		useTexture(whiteTexture,1,1);
+		addQuad(x,y,w,h,0,0,1,1,r,g,b,a);
+	}
+
+	public void drawImage(BufferedImage src, int sx, int sy, int w, int h, int dx, int dy, boolean mirrored)
+	// Add a rectangle of an image to the batch. Mirroring is done by swapping
+	// the texture coordinates.
+	{
+		if (src == null || w <= 0 || h <= 0)
+			return;
+
+		Integer tex = textures.get(src);
+		if (tex == null)
+		{
+			tex = uploadImage(src);
+			textures.put(src,tex);
+		}
+
+		useTexture(tex,src.getWidth(),src.getHeight());
+
+		float u1 = sx/texWidth;
+		float v1 = sy/texHeight;
+		float u2 = (sx+w)/texWidth;
+		float v2 = (sy+h)/texHeight;
+
+		if (mirrored)
+			addQuad(dx,dy,w,h,u2,v1,u1,v2,1,1,1,1);
+		else
+			addQuad(dx,dy,w,h,u1,v1,u2,v2,1,1,1,1);
+	}
+
+	public void imageChanged(BufferedImage src)
+	// Throw away the texture made from an image; it is uploaded again the
+	// next time it is drawn.
+	{
+		Integer tex = textures.remove(src);
+
+		if (tex != null)
+		{
+			if (batchTexture == tex)
+				flush();
+
+			transparency.remove(tex);
+			glDeleteTextures(tex);
+		}
+	}
+//==============================================================================
+
+
+//==============================================================================
+// Output and cleanup.
+//==============================================================================
+	public BufferedImage getFrame(BufferedImage dest)
+	// Copy the finished frame into a BufferedImage, creating one if dest is
+	// null or the wrong size. Waits for OpenGL to finish drawing.
+	{
+		flush();
+
+		if (dest == null || dest.getWidth() != width || dest.getHeight() != height)
+			dest = new BufferedImage(width,height,BufferedImage.TYPE_INT_ARGB);
+
+		ByteBuffer pixels = BufferUtils.createByteBuffer(width*height*4);
+		glBindFramebuffer(GL_FRAMEBUFFER,framebuffer);
+		glPixelStorei(GL_PACK_ALIGNMENT,1);
+		glReadPixels(0,0,width,height,GL_RGBA,GL_UNSIGNED_BYTE,pixels);
+
+		// OpenGL rows go bottom to top.
+		int[] row = new int[width];
+		for (int y = 0; y < height; y++)
+		{
+			int p = (height-1-y)*width*4;
+
+			for (int x = 0; x < width; x++, p += 4)
+				row[x] =	((pixels.get(p+3) & 0xFF) << 24) |
+							((pixels.get(p) & 0xFF) << 16) |
+							((pixels.get(p+1) & 0xFF) << 8) |
+							(pixels.get(p+2) & 0xFF);
+
+			dest.setRGB(0,y,width,1,row,0,width);
+		}
+
+		return dest;
+	}
+
+	public void dispose()
+	// Free every texture and buffer, and the context itself.
+	{
+		if (textures != null)
+		{
+			for (Integer tex : textures.values())
+				glDeleteTextures(tex);
+			textures.clear();
+			transparency.clear();
+
+			glDeleteTextures(whiteTexture);
+			glDeleteBuffers(vertexBuffer);
+		}
+
+		if (framebuffer != 0)
+		{
+			glBindFramebuffer(GL_FRAMEBUFFER,0);
+			glDeleteFramebuffers(framebuffer);
+			glDeleteRenderbuffers(colorbuffer);
+			framebuffer = 0;
+		}
+
+		if (window != NULL)
+		{
+			glfwDestroyWindow(window);
+			window = NULL;
+		}
+
+		glfwTerminate();
+	}
+//==============================================================================
+
+
+//==============================================================================
+// Helper methods.
+//==============================================================================
+	private void resize(int w, int h)
+	// Replace the framebuffer with one of the given size.
+	{
+		if (framebuffer != 0)
+		{
+			glDeleteFramebuffers(framebuffer);
+			glDeleteRenderbuffers(colorbuffer);
+		}
+
+		colorbuffer = glGenRenderbuffers();
+		glBindRenderbuffer(GL_RENDERBUFFER,colorbuffer);
+		glRenderbufferStorage(GL_RENDERBUFFER,GL_RGBA8,w,h);
+
+		framebuffer = glGenFramebuffers();
+		glBindFramebuffer(GL_FRAMEBUFFER,framebuffer);
+		glFramebufferRenderbuffer(GL_FRAMEBUFFER,GL_COLOR_ATTACHMENT0,GL_RENDERBUFFER,colorbuffer);
+
+		if (glCheckFramebufferStatus(GL_FRAMEBUFFER) != GL_FRAMEBUFFER_COMPLETE)
+			throw new IllegalStateException("Unable to create a " + w + "x" + h + " framebuffer.");
+
+		fbWidth = w;
+		fbHeight = h;
+	}
+
+	private void useTexture(int tex, int w, int h)
+	// Make the batch draw from the given texture, drawing what was queued for
+	// the previous texture first.
+	{
+		if (tex != batchTexture)
+		{
+			flush();
+
+			batchTexture = tex;
+			texWidth = w;
+			texHeight = h;
+			batchTransparency = transparency.get(tex);
+		}
+	}
+
+	private void setBlendMode(int t)
+	// Set up blending for drawing a texture of the given transparency class,
+	// if it isn't already.
+	{
+		if (t == blendMode)
+			return;
+
+		if (t == Transparency.TRANSLUCENT)
+			glEnable(GL_BLEND);
+		else
+			glDisable(GL_BLEND);
+
+		if (t == Transparency.BITMASK)
+			glEnable(GL_ALPHA_TEST);
+		else
+			glDisable(GL_ALPHA_TEST);
+
+		blendMode = t;
+	}
+
+	private void addQuad(	int x, int y, int w, int h, float u1, float v1, float u2, float v2,
+							float r, float g, float b, float a)
+	// Add a quad to the batch, as two triangles.
+	{
+		if (batchQuads == MAX_QUADS)
+			flush();
+
+		float x2 = x+w;
+		float y2 = y+h;
+
+		vertex(x,y,u1,v1,r,g,b,a);
+		vertex(x2,y,u2,v1,r,g,b,a);
+		vertex(x2,y2,u2,v2,r,g,b,a);
+
+		vertex(x,y,u1,v1,r,g,b,a);
+		vertex(x2,y2,u2,v2,r,g,b,a);
+		vertex(x,y2,u1,v2,r,g,b,a);
+
+		batchQuads++;
+	}
+
+	private void vertex(float x, float y, float u, float v, float r, float g, float b, float a)
+	{
+		batch.put(x).put(y).put(u).put(v).put(r).put(g).put(b).put(a);
+	}
+
+	private int uploadImage(BufferedImage src)
+	// Copy an image into a new texture, without alpha if it is opaque.
+	{
+		int w = src.getWidth();
+		int h = src.getHeight();
+		int[] argb = src.getRGB(0,0,w,h,null,0,w);
+
+		ByteBuffer pixels = BufferUtils.createByteBuffer(w*h*4);
+		for (int i = 0; i < argb.length; i++)
+		{
+			int p = argb[i];
+			pixels.put((byte)(p >> 16)).put((byte)(p >> 8)).put((byte)p).put((byte)(p >> 24));
+		}
+		pixels.flip();
+
+		int t = GameImage.classifyTransparency(src);
+		int tex = createTexture(w,h,pixels,(t == Transparency.OPAQUE)?GL_RGB8:GL_RGBA8);
+		transparency.put(tex,t);
+
+		GameLog.debug("Uploaded a " + w + "x" + h + " texture.");
+
+		return tex;
+	}
+
+	private int createTexture(int w, int h, ByteBuffer pixels, int format)
+	// Make a texture from RGBA pixels, stored in the given internal format.
+	// Pixels are copied as-is, never blurred.
+	{
+		int tex = glGenTextures();
+
+		glBindTexture(GL_TEXTURE_2D,tex);
+		glTexParameteri(GL_TEXTURE_2D,GL_TEXTURE_MIN_FILTER,GL_NEAREST);
+		glTexParameteri(GL_TEXTURE_2D,GL_TEXTURE_MAG_FILTER,GL_NEAREST);
+		glTexParameteri(GL_TEXTURE_2D,GL_TEXTURE_WRAP_S,GL_CLAMP_TO_EDGE);
+		glTexParameteri(GL_TEXTURE_2D,GL_TEXTURE_WRAP_T,GL_CLAMP_TO_EDGE);
+		glPixelStorei(GL_UNPACK_ALIGNMENT,1);
+		glTexImage2D(GL_TEXTURE_2D,0,format,w,h,0,GL_RGBA,GL_UNSIGNED_BYTE,pixels);
+		glBindTexture(GL_TEXTURE_2D,0);
+
+		return tex;
+	}
+//==============================================================================
+}